@@ -0,0 +1,77 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.ConnectorTracker;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one "Click Me" click: {@code clickCount++}, {@code updateStatistics()}
+ * and {@code addClickToHistory()}, as run by the button's click listener.
+ * {@code clickBatch} measures the same per click when the browser batches
+ * the clicks and {@code applyClicks()} takes them in one pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ClickPathBenchmark {
+
+    // A browser gets a response after every click; flushing every few clicks
+    // keeps pending Grid row changes from piling up without dominating the cost
+    private static final int CLICKS_PER_RESPONSE = 64;
+
+    private MyVaadinUI ui;
+    private Button clickButton;
+    private int pendingClicks;
+    private final long[] batch = new long[CLICKS_PER_RESPONSE];
+
+    @Setup(Level.Iteration)
+    public void createUI() {
+        ui = new MyVaadinUI();
+        ui.init(null);
+        clickButton = ui.getClickButton();
+        pendingClicks = 0;
+    }
+
+    @Benchmark
+    public void click() {
+        clickButton.click();
+        if (++pendingClicks == CLICKS_PER_RESPONSE) {
+            pendingClicks = 0;
+            completeRoundTrip();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLICKS_PER_RESPONSE)
+    public void clickBatch() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = now;
+        }
+        ui.applyClicks(batch);
+        completeRoundTrip();
+    }
+
+    private void completeRoundTrip() {
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        for (ClientConnector connector : tracker.getDirtyConnectors()) {
+            connector.beforeClientResponse(false);
+            connector.retrievePendingRpcCalls();
+        }
+        tracker.markAllConnectorsClean();
+    }
+}
@@ -0,0 +1,92 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput against compression ratio of the gzip-encoded CSV export.
+ * <p>
+ * Besides exports per second, the {@code csvBytes} and {@code gzipBytes}
+ * counters report bytes per second before and after compression; their
+ * quotient is the compression ratio. Level 0 is the uncompressed baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(jvmArgsAppend = "-Xmx1g")
+public class CsvCompressionBenchmark {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+    private static final int ROWS = 100_000;
+
+    @Param({"0", "1", "6", "9"})
+    public int level;
+
+    @Param({"8192", "65536"})
+    public int bufferSize;
+
+    private ClickTimestampLog log;
+    private byte[] readBuffer;
+
+    /** Bytes produced per second, reported next to the export rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long csvBytes;
+        public long gzipBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            csvBytes = 0;
+            gzipBytes = 0;
+        }
+    }
+
+    @Setup
+    public void createHistory() {
+        log = new ClickTimestampLog();
+        for (int i = 0; i < ROWS; i++) {
+            log.add(BASE_TIME + i * 1_731L);
+        }
+        readBuffer = new byte[bufferSize];
+    }
+
+    @Benchmark
+    public long export(Bytes bytes) throws IOException {
+        final long[] csvBytes = new long[1];
+        InputStream csv = new CsvExportStream(log.snapshot(), bufferSize) {
+            @Override
+            public int read(byte[] b, int off, int len) {
+                int read = super.read(b, off, len);
+                csvBytes[0] += Math.max(0, read);
+                return read;
+            }
+        };
+        long total = 0;
+        try (InputStream in = level == 0 ? csv : new GzipEncodingInputStream(csv, level, bufferSize)) {
+            int read;
+            while ((read = in.read(readBuffer)) > 0) {
+                total += read;
+            }
+        }
+        bytes.csvBytes += csvBytes[0];
+        bytes.gzipBytes += total;
+        return total;
+    }
+}
@@ -0,0 +1,70 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.FileDownloader;
+import com.vaadin.server.StreamResource;
+import com.vaadin.ui.Button;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a CSV export: clicking "Export CSV" runs {@code createCsvResource()},
+ * then the download reads the whole {@code getStream()} result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(jvmArgsAppend = "-Xmx2g")
+public class CsvExportBenchmark {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    @Param({"1000", "100000", "1000000"})
+    public int clicks;
+
+    private Button exportButton;
+    private FileDownloader downloader;
+    private final byte[] readBuffer = new byte[8192];
+
+    @Setup
+    public void createHistory() {
+        MyVaadinUI ui = new MyVaadinUI();
+        ui.init(null);
+        // Fill the log directly with clicks spread over several seconds each,
+        // as a real session would; clicking a million times would only slow
+        // down the setup
+        ClickTimestampLog log = ui.getClickTimestamps();
+        for (int i = 0; i < clicks; i++) {
+            log.add(BASE_TIME + i * 1_731L);
+        }
+        exportButton = ui.getExportButton();
+        downloader = (FileDownloader) exportButton.getExtensions().iterator().next();
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        exportButton.click();
+        StreamResource resource = (StreamResource) downloader.getFileDownloadResource();
+        long total = 0;
+        try (InputStream in = resource.getStreamSource().getStream()) {
+            int read;
+            while ((read = in.read(readBuffer)) > 0) {
+                total += read;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,84 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rate and size of exporting one million clicks in each registered format,
+ * uncompressed and gzip-compressed at the default level.
+ * <p>
+ * The {@code exportBytes} counter reports the bytes sent per second; divided
+ * by the export rate it gives the download size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(jvmArgsAppend = "-Xmx2g")
+public class ExportFormatBenchmark {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+    private static final int ROWS = 1_000_000;
+    private static final int BUFFER_SIZE = 65_536;
+
+    @Param({"CSV", "NDJSON", "Binary"})
+    public String format;
+
+    @Param({"0", "1"})
+    public int gzipLevel;
+
+    private ClickTimestampLog log;
+    private HistoryExporter exporter;
+    private byte[] readBuffer;
+
+    /** Bytes sent per second, reported next to the export time. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long exportBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            exportBytes = 0;
+        }
+    }
+
+    @Setup
+    public void createHistory() {
+        log = new ClickTimestampLog();
+        for (int i = 0; i < ROWS; i++) {
+            log.add(BASE_TIME + i * 1_731L);
+        }
+        exporter = HistoryExporters.get(format);
+        readBuffer = new byte[BUFFER_SIZE];
+    }
+
+    @Benchmark
+    public long export(Bytes bytes) throws IOException {
+        InputStream export = exporter.open(log.snapshot(), BUFFER_SIZE);
+        long total = 0;
+        try (InputStream in = gzipLevel == 0 ? export : new GzipEncodingInputStream(export, gzipLevel, BUFFER_SIZE)) {
+            int read;
+            while ((read = in.read(readBuffer)) > 0) {
+                total += read;
+            }
+        }
+        bytes.exportBytes += total;
+        return total;
+    }
+}
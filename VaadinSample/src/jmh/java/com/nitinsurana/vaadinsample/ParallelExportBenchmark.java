@@ -0,0 +1,64 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CSV export encoded on the reading thread compared with the parallel
+ * encoder on the shared pool, which has one worker per core. Used to pick
+ * the default {@code csvExportParallelThreshold}; the gain depends on the
+ * number of cores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(jvmArgsAppend = "-Xmx2g")
+public class ParallelExportBenchmark {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    @Param({"100000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"sequential", "parallel"})
+    public String encoder;
+
+    private ClickTimestampLog log;
+    private final byte[] readBuffer = new byte[8192];
+
+    @Setup
+    public void createHistory() {
+        log = new ClickTimestampLog();
+        for (int i = 0; i < rows; i++) {
+            log.add(BASE_TIME + i * 1_731L);
+        }
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        ClickTimestampLog.Snapshot snapshot = log.snapshot();
+        long total = 0;
+        try (InputStream in = "parallel".equals(encoder)
+                ? new ParallelCsvExportStream(snapshot) : new CsvExportStream(snapshot)) {
+            int read;
+            while ((read = in.read(readBuffer)) > 0) {
+                total += read;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,96 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.ConnectorTracker;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Size and time of writing and reading a UI through Java serialization, as a
+ * servlet container does when it persists or replicates the session.
+ * <p>
+ * The {@code serializedBytes} counter reports the bytes written per second;
+ * divided by the {@code serialize} rate it gives the size of one UI.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SessionSerializationBenchmark {
+
+    @Param({"0", "10000"})
+    public int clicks;
+
+    private MyVaadinUI ui;
+    private byte[] serialized;
+
+    /** Bytes written per second, reported next to the serialization rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long serializedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            serializedBytes = 0;
+        }
+    }
+
+    @Setup
+    public void createUI() throws IOException {
+        ui = new MyVaadinUI();
+        ui.init(null);
+        Button clickButton = ui.getClickButton();
+        for (int i = 0; i < clicks; i++) {
+            clickButton.click();
+        }
+        // Sessions are stored between requests, when nothing is pending
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        for (ClientConnector connector : tracker.getDirtyConnectors()) {
+            connector.beforeClientResponse(false);
+            connector.retrievePendingRpcCalls();
+        }
+        tracker.markAllConnectorsClean();
+        serialized = serialize(ui);
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serialize(Bytes bytes) throws IOException {
+        byte[] result = serialize(ui);
+        bytes.serializedBytes += result.length;
+        return result;
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CSV export of a 10 million row history kept in memory, compared with one
+ * where all but the newest rows were spilled to disk and are read back
+ * through a memory mapping.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(jvmArgsAppend = "-Xmx2g")
+public class SpilledExportBenchmark {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    @Param({"10000000"})
+    public int rows;
+
+    @Param({"memory", "spilled"})
+    public String storage;
+
+    private ClickTimestampLog log;
+    private final byte[] readBuffer = new byte[8192];
+
+    @Setup
+    public void createHistory() {
+        log = new ClickTimestampLog(false, "spilled".equals(storage) ? 10_000 : 0, null);
+        for (int i = 0; i < rows; i++) {
+            log.add(BASE_TIME + i * 1_731L);
+        }
+    }
+
+    @TearDown
+    public void deleteHistory() {
+        log.clear();
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        long total = 0;
+        try (InputStream in = new CsvExportStream(log.snapshot())) {
+            int read;
+            while ((read = in.read(readBuffer)) > 0) {
+                total += read;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,172 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.shared.Version;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Requests per second for the resources every new browser downloads, served
+ * by {@link VaadinServlet} ({@code vaadin}) or by
+ * {@link StaticResourceServlet} mapped to {@code /VAADIN/*} ({@code static}),
+ * from an embedded Jetty over keep-alive connections.
+ * <p>
+ * The client accepts gzip like a browser does; with {@code revalidate} it
+ * sends the validators of the first response, like a browser whose cached
+ * copy has expired. The {@code responseBytes} counter reports the bytes
+ * received per second; divided by the request rate it gives the size of one
+ * response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StaticResourceBenchmark {
+
+    private static final String WIDGETSET = "/VAADIN/widgetsets/com.vaadin.DefaultWidgetSet/";
+
+    @Param({"vaadin", "static"})
+    public String servlet;
+
+    @Param({"bootstrap", "theme", "widgetset"})
+    public String resource;
+
+    @Param({"false", "true"})
+    public boolean revalidate;
+
+    private Server server;
+    private URL url;
+    private String lastModified;
+    private String etag;
+
+    /** Bytes received per second, reported next to the request rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long responseBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            responseBytes = 0;
+        }
+    }
+
+    @Setup
+    public void startServer() throws Exception {
+        server = new Server(0);
+        ContextHandlerCollection contexts = new ContextHandlerCollection();
+        contexts.addHandler(context("/vaadin", false));
+        contexts.addHandler(context("/static", true));
+        server.setHandler(contexts);
+        server.start();
+        int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+        url = new URL("http://localhost:" + port + "/" + servlet + path());
+
+        HttpURLConnection connection = open();
+        lastModified = connection.getHeaderField("Last-Modified");
+        etag = connection.getHeaderField("ETag");
+        drain(connection);
+    }
+
+    private static ServletContextHandler context(String contextPath, boolean staticResources) {
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath(contextPath);
+        ServletHolder vaadin = new ServletHolder(VaadinServlet.class);
+        vaadin.setInitParameter("UI", MyVaadinUI.class.getName());
+        vaadin.setInitParameter("productionMode", "true");
+        context.addServlet(vaadin, "/*");
+        if (staticResources) {
+            context.addServlet(StaticResourceServlet.class, "/VAADIN/*");
+        }
+        return context;
+    }
+
+    private String path() throws IOException {
+        String version = "?v=" + Version.getFullVersion();
+        switch (resource) {
+            case "bootstrap":
+                return "/VAADIN/vaadinBootstrap.js" + version;
+            case "theme":
+                return "/VAADIN/themes/reindeer/styles.css" + version;
+            case "widgetset":
+                // The first line of the mappings names the permutation's script
+                try (BufferedReader mappings = new BufferedReader(new InputStreamReader(
+                        getClass().getClassLoader().getResourceAsStream(
+                                WIDGETSET.substring(1) + "compilation-mappings.txt"), StandardCharsets.UTF_8))) {
+                    return WIDGETSET + mappings.readLine();
+                }
+            default:
+                throw new IllegalArgumentException(resource);
+        }
+    }
+
+    @TearDown
+    public void stopServer() throws Exception {
+        server.stop();
+    }
+
+    private HttpURLConnection open() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        if (revalidate && lastModified != null) {
+            connection.setRequestProperty("If-Modified-Since", lastModified);
+        }
+        if (revalidate && etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_NOT_MODIFIED) {
+            throw new IllegalStateException(url + " answered " + status);
+        }
+        return connection;
+    }
+
+    /**
+     * Reads the response to its end, so that the connection is reused.
+     *
+     * @return the number of bytes read
+     */
+    private static long drain(HttpURLConnection connection) throws IOException {
+        long total = 0;
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int request(Bytes bytes) throws IOException {
+        HttpURLConnection connection = open();
+        bytes.responseBytes += drain(connection);
+        return connection.getResponseCode();
+    }
+}
@@ -0,0 +1,62 @@
+package com.nitinsurana.vaadinsample;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of formatting a "yyyy-MM-dd HH:mm:ss" timestamp, in the ways the
+ * history, the statistics and the CSV export do it.
+ * <p>
+ * Timestamps advance by a little over a second per call, so every call misses
+ * the formatter's per-second cache and a new day starts every ~80k calls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimestampFormatterBenchmark {
+
+    private static final long STEP = 1_013L;
+
+    private final TimestampFormatter formatter = TimestampFormatter.get();
+    private final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final byte[] bytes = new byte[TimestampFormatter.DATE_TIME_LENGTH];
+    private final StringBuilder text = new StringBuilder(32);
+    private long timestamp = 1_700_000_000_000L;
+
+    /** Into a byte buffer, as the CSV export does. */
+    @Benchmark
+    public byte[] toBytes() {
+        formatter.formatDateTime(timestamp += STEP, bytes, 0);
+        return bytes;
+    }
+
+    /** Into a reused builder, as history rows are rendered. */
+    @Benchmark
+    public StringBuilder toBuilder() {
+        text.setLength(0);
+        return formatter.formatDateTime(timestamp += STEP, text);
+    }
+
+    /** To a new String. */
+    @Benchmark
+    public String toText() {
+        return formatter.formatDateTime(timestamp += STEP);
+    }
+
+    /** The SimpleDateFormat formatting the application used before. */
+    @Benchmark
+    public String simpleDateFormat() {
+        return simpleDateFormat.format(new Date(timestamp += STEP));
+    }
+}
@@ -0,0 +1,157 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.server.communication.ClientRpcWriter;
+import com.vaadin.server.communication.ConnectorHierarchyWriter;
+import com.vaadin.server.communication.SharedStateWriter;
+import com.vaadin.ui.ConnectorTracker;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Server side of a UI's first render, with the {@code eager} and the
+ * {@code lazy} bootstrap: {@code init()} followed by the shared state,
+ * connector hierarchy and RPC calls of the first response, as the UIDL
+ * writer produces them.
+ * <p>
+ * The {@code responseBytes} counter reports the bytes of those parts written
+ * per second; divided by the render rate it gives the size of the first
+ * response. The {@code retainedBytesPerUi} counter is the heap a rendered UI
+ * retains, measured before every iteration; JMH adds up the iterations in
+ * its summary, so read it per iteration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UiBootstrapBenchmark {
+
+    private static final int RETAINED_UIS = 1000;
+
+    @Param({"eager", "lazy"})
+    public String bootstrap;
+
+    private VaadinSession session;
+    private int connectorIds;
+
+    /** Bytes of first responses written per second, reported next to the render rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long responseBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            responseBytes = 0;
+        }
+    }
+
+    /** Heap retained per rendered UI. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        public long retainedBytesPerUi;
+        // JMH clears the counter after this setup, so the benchmark copies it
+        private long measured;
+
+        @Setup(Level.Iteration)
+        public void measure(UiBootstrapBenchmark benchmark) throws IOException, InterruptedException {
+            MyVaadinUI[] uis = new MyVaadinUI[RETAINED_UIS];
+            long before = usedHeap();
+            for (int i = 0; i < uis.length; i++) {
+                uis[i] = benchmark.render(new StringWriter());
+            }
+            long after = usedHeap();
+            for (MyVaadinUI ui : uis) {
+                ui.detach();
+            }
+            measured = (after - before) / RETAINED_UIS;
+        }
+
+        private static long usedHeap() throws InterruptedException {
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            Thread.sleep(100);
+            System.gc();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+
+    @Setup
+    public void createSession() {
+        final ReentrantLock lock = new ReentrantLock();
+        session = new VaadinSession(null) {
+            @Override
+            public Lock getLockInstance() {
+                return lock;
+            }
+
+            @Override
+            public void unlock() {
+                lock.unlock();
+            }
+
+            @Override
+            public String createConnectorId(ClientConnector connector) {
+                // Without a service, ids are simply numbered
+                return Integer.toString(++connectorIds);
+            }
+        };
+        // Held for the whole trial, as the UIDL writer holds it for a request
+        session.lock();
+    }
+
+    @TearDown
+    public void releaseSession() {
+        session.unlock();
+    }
+
+    /**
+     * Builds a UI and writes what its first response would carry.
+     */
+    MyVaadinUI render(StringWriter response) throws IOException {
+        MyVaadinUI ui = new MyVaadinUI(false, 0, "lazy".equals(bootstrap));
+        ui.setSession(session);
+        ui.init(null);
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        for (ClientConnector connector : new ArrayList<>(tracker.getDirtyConnectors())) {
+            connector.beforeClientResponse(true);
+        }
+        Set<String> stateUpdateConnectors = new SharedStateWriter().write(ui, response);
+        new ConnectorHierarchyWriter().write(ui, response, stateUpdateConnectors);
+        new ClientRpcWriter().write(ui, response);
+        tracker.markAllConnectorsClean();
+        return ui;
+    }
+
+    @Benchmark
+    public int firstRender(Bytes bytes, Heap heap) throws IOException {
+        StringWriter response = new StringWriter();
+        MyVaadinUI ui = render(response);
+        // Closed right away, so the session does not fill up with UIs
+        ui.detach();
+        bytes.responseBytes += response.getBuffer().length();
+        heap.retainedBytesPerUi = heap.measured;
+        return response.getBuffer().length();
+    }
+}
@@ -0,0 +1,207 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.webapp.WebAppContext;
+
+/**
+ * Headless load generator for a single application node.
+ * <p>
+ * Boots the web application in an embedded Jetty in this JVM, opens a number
+ * of {@link LoadTestClient} sessions and lets a pool of worker threads drive
+ * them with a mix of click, clear and export requests. Reports throughput,
+ * p50/p99 latency per request type and the heap retained per session, which
+ * can be measured directly because the server shares this JVM.
+ * <p>
+ * Settings are read from system properties:
+ * <ul>
+ * <li>{@code loadtest.sessions} - simulated sessions (default 1000)</li>
+ * <li>{@code loadtest.threads} - concurrent workers (default 64)</li>
+ * <li>{@code loadtest.duration} - seconds of load after warmup (default 60)</li>
+ * <li>{@code loadtest.clearPercent} - share of clear requests (default 2)</li>
+ * <li>{@code loadtest.exportPercent} - share of export requests (default 1)</li>
+ * <li>{@code loadtest.webapp} - web application directory (default src/main/webapp)</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    private static final String[] ACTIONS = {"click", "clear", "export"};
+    private static final int CLICK = 0;
+    private static final int CLEAR = 1;
+    private static final int EXPORT = 2;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessions = Integer.getInteger("loadtest.sessions", 1000);
+        int threads = Integer.getInteger("loadtest.threads", 64);
+        int duration = Integer.getInteger("loadtest.duration", 60);
+        int clearPercent = Integer.getInteger("loadtest.clearPercent", 2);
+        int exportPercent = Integer.getInteger("loadtest.exportPercent", 1);
+        String webapp = System.getProperty("loadtest.webapp", "src/main/webapp");
+
+        Server server = startServer(new File(webapp));
+        try {
+            String baseUrl = "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+            ExecutorService workers = Executors.newFixedThreadPool(threads);
+
+            // Warm up the servlet before measuring the empty heap
+            new LoadTestClient(baseUrl).init();
+            long emptyHeap = HeapMeasurement.usedHeap();
+            LoadTestClient[] clients = openSessions(baseUrl, sessions, workers);
+            long initializedHeap = HeapMeasurement.usedHeap();
+            System.out.printf(Locale.ROOT, "Opened %d sessions, %.1f KiB heap per session%n",
+                    sessions, (initializedHeap - emptyHeap) / 1024.0 / sessions);
+
+            // Warmup lets the JIT settle before the measured run
+            run(clients, workers, threads, Math.max(1, duration / 6), clearPercent, exportPercent);
+            Latencies[] measured = run(clients, workers, threads, duration, clearPercent, exportPercent);
+            long loadedHeap = HeapMeasurement.usedHeap();
+
+            report(measured, duration);
+            System.out.printf(Locale.ROOT, "Heap per session after load: %.1f KiB%n",
+                    (loadedHeap - emptyHeap) / 1024.0 / sessions);
+            workers.shutdown();
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static Server startServer(File webapp) throws Exception {
+        Server server = new Server(0);
+        WebAppContext context = new WebAppContext(webapp.getAbsolutePath(), "/");
+        // Application classes come from this JVM's class path
+        context.setParentLoaderPriority(true);
+        server.setHandler(context);
+        server.start();
+        return server;
+    }
+
+    private static LoadTestClient[] openSessions(final String baseUrl, int sessions, ExecutorService workers)
+            throws Exception {
+        List<Future<LoadTestClient>> opened = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            opened.add(workers.submit(new Callable<LoadTestClient>() {
+                @Override
+                public LoadTestClient call() throws Exception {
+                    LoadTestClient client = new LoadTestClient(baseUrl);
+                    client.init();
+                    return client;
+                }
+            }));
+        }
+        LoadTestClient[] clients = new LoadTestClient[sessions];
+        for (int i = 0; i < sessions; i++) {
+            clients[i] = opened.get(i).get();
+        }
+        return clients;
+    }
+
+    /**
+     * Lets each worker drive its own slice of the sessions in turn until the
+     * duration is over. A session is only used by one worker, so its requests
+     * are sequential like a browser's.
+     */
+    private static Latencies[] run(final LoadTestClient[] clients, ExecutorService workers, final int threads,
+            int duration, final int clearPercent, final int exportPercent) throws Exception {
+        final long end = System.nanoTime() + duration * 1_000_000_000L;
+        List<Future<Latencies>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int worker = t;
+            results.add(workers.submit(new Callable<Latencies>() {
+                @Override
+                public Latencies call() throws Exception {
+                    Latencies latencies = new Latencies();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int next = worker;
+                    while (System.nanoTime() < end && worker < clients.length) {
+                        LoadTestClient client = clients[next];
+                        int roll = random.nextInt(100);
+                        int action = roll < exportPercent ? EXPORT
+                                : roll < exportPercent + clearPercent ? CLEAR : CLICK;
+                        long start = System.nanoTime();
+                        if (action == EXPORT) {
+                            client.export();
+                        } else if (action == CLEAR) {
+                            client.clear();
+                        } else {
+                            client.click();
+                        }
+                        latencies.record(action, System.nanoTime() - start);
+                        next += threads;
+                        if (next >= clients.length) {
+                            next = worker;
+                        }
+                    }
+                    return latencies;
+                }
+            }));
+        }
+        Latencies[] merged = new Latencies[threads];
+        for (int t = 0; t < threads; t++) {
+            merged[t] = results.get(t).get();
+        }
+        return merged;
+    }
+
+    private static void report(Latencies[] results, int duration) {
+        long total = 0;
+        System.out.printf(Locale.ROOT, "%-8s %10s %10s %10s %10s%n", "request", "count", "req/s", "p50 ms", "p99 ms");
+        for (int action = 0; action < ACTIONS.length; action++) {
+            long[] all = Latencies.merge(results, action);
+            total += all.length;
+            if (all.length == 0) {
+                continue;
+            }
+            Arrays.sort(all);
+            System.out.printf(Locale.ROOT, "%-8s %10d %10.1f %10.2f %10.2f%n", ACTIONS[action], all.length,
+                    (double) all.length / duration, percentile(all, 50) / 1e6, percentile(all, 99) / 1e6);
+        }
+        System.out.printf(Locale.ROOT, "Throughput: %.1f requests/s%n", (double) total / duration);
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    /**
+     * Request latencies of one worker, in nanoseconds per request type.
+     */
+    private static final class Latencies {
+        private final long[][] values = new long[ACTIONS.length][1024];
+        private final int[] counts = new int[ACTIONS.length];
+
+        void record(int action, long nanos) {
+            if (counts[action] == values[action].length) {
+                values[action] = Arrays.copyOf(values[action], counts[action] * 2);
+            }
+            values[action][counts[action]++] = nanos;
+        }
+
+        static long[] merge(Latencies[] all, int action) {
+            int size = 0;
+            for (Latencies latencies : all) {
+                size += latencies.counts[action];
+            }
+            long[] merged = new long[size];
+            int offset = 0;
+            for (Latencies latencies : all) {
+                System.arraycopy(latencies.values[action], 0, merged, offset, latencies.counts[action]);
+                offset += latencies.counts[action];
+            }
+            return merged;
+        }
+    }
+}
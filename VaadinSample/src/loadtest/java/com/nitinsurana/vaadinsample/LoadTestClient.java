@@ -0,0 +1,216 @@
+package com.nitinsurana.vaadinsample;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simulated browser of one {@link MyVaadinUI} session, speaking the UIDL
+ * protocol the Vaadin client engine uses.
+ * <p>
+ * The client initializes a UI with a browser details request, then sends
+ * button clicks as {@code ButtonServerRpc} invocations and downloads the CSV
+ * export through the {@link com.vaadin.server.FileDownloader} resource URL.
+ * It keeps the session cookie, the CSRF token and the message ids a real
+ * client would send.
+ */
+final class LoadTestClient {
+
+    private static final String BUTTON_RPC = "com.vaadin.shared.ui.button.ButtonServerRpc";
+    private static final String UIDL_PREFIX = "for(;;);";
+
+    private final String baseUrl;
+    private final byte[] readBuffer = new byte[8192];
+
+    private String sessionCookie;
+    private int uiId;
+    private String csrfToken;
+    private int syncId = -1;
+    private int clientId;
+    private String clickButtonId;
+    private String clearButtonId;
+    private String exportButtonId;
+    private String exportUrl;
+
+    LoadTestClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Opens the application, creating the session and its UI.
+     */
+    void init() throws IOException {
+        String query = "v-browserDetails=1&theme=mytheme&v-appId=vaadinsample&v-sh=1080&v-sw=1920"
+                + "&v-cw=1280&v-ch=800&v-curdate=" + System.currentTimeMillis()
+                + "&v-tzo=0&v-dstd=0&v-rtzo=0&v-dston=false&v-vw=1280&v-vh=800"
+                + "&v-loc=" + baseUrl + "/&v-wn=vaadinsample-" + System.identityHashCode(this);
+        HttpURLConnection connection = open(baseUrl + "/?v-" + System.currentTimeMillis() + "&" + query, "POST");
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        connection.getOutputStream().close();
+        JsonObject response = Json.parse(readText(connection));
+
+        uiId = (int) response.getNumber("v-uiId");
+        JsonObject uidl = Json.parse(response.getString("uidl"));
+        csrfToken = uidl.getString("Vaadin-Security-Key");
+        handleUidl(uidl);
+        if (clickButtonId == null || clearButtonId == null || exportButtonId == null) {
+            throw new IOException("Application buttons not found in the initial UIDL");
+        }
+    }
+
+    void click() throws IOException {
+        clickButton(clickButtonId);
+    }
+
+    void clear() throws IOException {
+        clickButton(clearButtonId);
+    }
+
+    /**
+     * Clicks "Export CSV" and downloads the file like the browser does.
+     *
+     * @return the size of the downloaded CSV in bytes
+     */
+    long export() throws IOException {
+        clickButton(exportButtonId);
+        if (exportUrl == null) {
+            throw new IOException("No export resource published");
+        }
+        HttpURLConnection connection = open(exportUrl, "GET");
+        long total = 0;
+        try (InputStream in = checkedInput(connection)) {
+            int read;
+            while ((read = in.read(readBuffer)) > 0) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    private void clickButton(String connectorId) throws IOException {
+        JsonObject details = Json.createObject();
+        details.put("button", "LEFT");
+        details.put("clientX", 10);
+        details.put("clientY", 10);
+        details.put("altKey", false);
+        details.put("ctrlKey", false);
+        details.put("metaKey", false);
+        details.put("shiftKey", false);
+        details.put("type", 8);
+        details.put("relativeX", 5);
+        details.put("relativeY", 5);
+
+        JsonArray parameters = Json.createArray();
+        parameters.set(0, details);
+        JsonArray invocation = Json.createArray();
+        invocation.set(0, connectorId);
+        invocation.set(1, BUTTON_RPC);
+        invocation.set(2, "click");
+        invocation.set(3, parameters);
+        JsonArray invocations = Json.createArray();
+        invocations.set(0, invocation);
+
+        JsonObject message = Json.createObject();
+        message.put("csrfToken", csrfToken);
+        message.put("rpc", invocations);
+        message.put("syncId", syncId);
+        message.put("clientId", clientId++);
+
+        HttpURLConnection connection = open(baseUrl + "/UIDL/?v-uiId=" + uiId, "POST");
+        connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(message.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        String text = readText(connection);
+        if (!text.startsWith(UIDL_PREFIX)) {
+            throw new IOException("Unexpected UIDL response: " + text);
+        }
+        JsonArray responses = Json.instance().parse(text.substring(UIDL_PREFIX.length()));
+        handleUidl((JsonObject) responses.get(0));
+    }
+
+    /**
+     * Picks up the sync id, the button connectors and the current export
+     * resource from a UIDL response.
+     */
+    private void handleUidl(JsonObject uidl) throws IOException {
+        if (uidl.hasKey("meta") && uidl.getObject("meta").hasKey("appError")) {
+            throw new IOException("Application error: " + uidl.getObject("meta").toJson());
+        }
+        if (uidl.hasKey("syncId")) {
+            syncId = (int) uidl.getNumber("syncId");
+        }
+        if (!uidl.hasKey("state")) {
+            return;
+        }
+        JsonObject states = uidl.getObject("state");
+        for (String connectorId : states.keys()) {
+            JsonObject state = states.getObject(connectorId);
+            if (state.hasKey("caption")) {
+                String caption = state.getString("caption");
+                if ("Click Me".equals(caption)) {
+                    clickButtonId = connectorId;
+                } else if ("Clear History".equals(caption)) {
+                    clearButtonId = connectorId;
+                } else if ("Export CSV".equals(caption)) {
+                    exportButtonId = connectorId;
+                }
+            }
+            if (state.hasKey("resources")) {
+                JsonValue download = state.getObject("resources").get("dl");
+                if (download instanceof JsonObject) {
+                    String url = ((JsonObject) download).getString("uRL");
+                    exportUrl = baseUrl + "/" + url.substring("app://".length());
+                }
+            }
+        }
+    }
+
+    private HttpURLConnection open(String url, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setDoOutput("POST".equals(method));
+        if (sessionCookie != null) {
+            connection.setRequestProperty("Cookie", sessionCookie);
+        }
+        return connection;
+    }
+
+    private InputStream checkedInput(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            throw new IOException("HTTP " + status + " from " + connection.getURL());
+        }
+        Map<String, List<String>> headers = connection.getHeaderFields();
+        List<String> cookies = headers.get("Set-Cookie");
+        if (cookies != null) {
+            for (String cookie : cookies) {
+                if (cookie.startsWith("JSESSIONID=")) {
+                    sessionCookie = cookie.substring(0, cookie.indexOf(';') < 0 ? cookie.length() : cookie.indexOf(';'));
+                }
+            }
+        }
+        return connection.getInputStream();
+    }
+
+    private String readText(HttpURLConnection connection) throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        try (InputStream in = checkedInput(connection)) {
+            int read;
+            while ((read = in.read(readBuffer)) > 0) {
+                text.write(readBuffer, 0, read);
+            }
+        }
+        return new String(text.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
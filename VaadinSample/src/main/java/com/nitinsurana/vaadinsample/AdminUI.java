@@ -0,0 +1,179 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.data.util.BeanItemContainer;
+import com.vaadin.event.UIEvents;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.shared.ui.grid.HeightMode;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Panel;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admin view of the node-wide {@link ClickAnalytics}, refreshed by polling.
+ */
+public class AdminUI extends UI {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int REFRESH_MILLIS = 1000;
+    static final int TOP_SESSIONS = 10;
+    static final String SESSION_PROPERTY = "session";
+    static final String CLICKS_PROPERTY = "clicks";
+    static final String LAST_CLICK_PROPERTY = "lastClick";
+
+    private static final String PANEL_WIDTH = "500px";
+
+    // The analytics are per node; a UI restored elsewhere reads the local ones
+    private transient ClickAnalytics analytics;
+    private Label clickRateLabel;
+    private Label totalClicksLabel;
+    private Label sessionsLabel;
+    private Label intervalsLabel;
+    private BeanItemContainer<TopSession> topSessions;
+
+    public AdminUI() {
+        this(ClickAnalytics.getShared());
+    }
+
+    AdminUI(ClickAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    @Override
+    protected void init(VaadinRequest request) {
+        final VerticalLayout layout = new VerticalLayout();
+        layout.setMargin(true);
+        layout.setSpacing(true);
+        setContent(layout);
+
+        final Panel nodePanel = new Panel("Node Statistics");
+        nodePanel.setWidth(PANEL_WIDTH);
+        VerticalLayout nodeLayout = new VerticalLayout();
+        nodeLayout.setMargin(true);
+        nodeLayout.setSpacing(true);
+        clickRateLabel = new Label();
+        totalClicksLabel = new Label();
+        sessionsLabel = new Label();
+        intervalsLabel = new Label();
+        nodeLayout.addComponent(clickRateLabel);
+        nodeLayout.addComponent(totalClicksLabel);
+        nodeLayout.addComponent(sessionsLabel);
+        nodeLayout.addComponent(intervalsLabel);
+        nodePanel.setContent(nodeLayout);
+        layout.addComponent(nodePanel);
+
+        final Panel sessionsPanel = new Panel("Top Sessions");
+        sessionsPanel.setWidth(PANEL_WIDTH);
+        topSessions = new BeanItemContainer<>(TopSession.class);
+        final Grid sessionsGrid = new Grid(topSessions);
+        sessionsGrid.setColumnOrder(SESSION_PROPERTY, CLICKS_PROPERTY, LAST_CLICK_PROPERTY);
+        sessionsGrid.getColumn(LAST_CLICK_PROPERTY).setHeaderCaption("Last click");
+        sessionsGrid.setWidth("100%");
+        sessionsGrid.setHeightMode(HeightMode.ROW);
+        sessionsGrid.setHeightByRows(TOP_SESSIONS);
+        sessionsGrid.setSelectionMode(Grid.SelectionMode.NONE);
+        sessionsPanel.setContent(sessionsGrid);
+        layout.addComponent(sessionsPanel);
+
+        refresh(System.currentTimeMillis());
+        setPollInterval(REFRESH_MILLIS);
+        addPollListener(new UIEvents.PollListener() {
+            @Override
+            public void poll(UIEvents.PollEvent event) {
+                refresh(System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * Shows the analytics as of {@code now}.
+     */
+    void refresh(long now) {
+        if (analytics == null) {
+            analytics = ClickAnalytics.getShared();
+        }
+        clickRateLabel.setValue(String.format(Locale.ROOT, "Clicks per second: %.1f (10 s), %.1f (60 s)",
+                analytics.getClicksPerSecond(now, 10),
+                analytics.getClicksPerSecond(now, ClickAnalytics.WINDOW_SECONDS)));
+        totalClicksLabel.setValue("Total clicks: " + analytics.getTotalClicks());
+        sessionsLabel.setValue("Active sessions: " + analytics.getActiveSessions(now)
+                + " of " + analytics.getOpenSessions() + " open");
+        intervalsLabel.setValue(intervalsText(analytics.getIntervals()));
+
+        topSessions.removeAllItems();
+        List<ClickAnalytics.SessionActivity> top = analytics.getTopSessions(TOP_SESSIONS);
+        for (ClickAnalytics.SessionActivity activity : top) {
+            long lastClick = activity.getLastClickTime();
+            topSessions.addBean(new TopSession(activity.getLabel(), activity.getClicks(),
+                    lastClick == 0 ? "" : TimestampFormatter.get().formatDateTime(lastClick)));
+        }
+    }
+
+    static String intervalsText(LatencyHistogram intervals) {
+        if (intervals.getCount() == 0) {
+            return "Click interval p50 / p90 / p99: -";
+        }
+        return "Click interval p50 / p90 / p99: " + millis(intervals.getValueAtPercentile(50))
+                + " / " + millis(intervals.getValueAtPercentile(90))
+                + " / " + millis(intervals.getValueAtPercentile(99)) + " ms";
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    Label getClickRateLabel() {
+        return clickRateLabel;
+    }
+
+    Label getTotalClicksLabel() {
+        return totalClicksLabel;
+    }
+
+    Label getSessionsLabel() {
+        return sessionsLabel;
+    }
+
+    Label getIntervalsLabel() {
+        return intervalsLabel;
+    }
+
+    BeanItemContainer<TopSession> getTopSessions() {
+        return topSessions;
+    }
+
+    /**
+     * A row of the top sessions grid.
+     */
+    public static final class TopSession implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String session;
+        private final long clicks;
+        private final String lastClick;
+
+        TopSession(String session, long clicks, String lastClick) {
+            this.session = session;
+            this.clicks = clicks;
+            this.lastClick = lastClick;
+        }
+
+        public String getSession() {
+            return session;
+        }
+
+        public long getClicks() {
+            return clicks;
+        }
+
+        public String getLastClick() {
+            return lastClick;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.DeploymentConfiguration;
+import com.vaadin.server.VaadinService;
+import java.io.File;
+
+/**
+ * Access to the application's servlet init-params declared in web.xml.
+ * <p>
+ * Values are looked up through the current {@link VaadinService}, so system
+ * properties override web.xml as usual. Outside a running service (unit
+ * tests) every lookup falls back to its default.
+ */
+public final class AppConfig {
+
+    /** Click history storage: {@code heap} (default) or {@code offheap}. */
+    public static final String CLICK_HISTORY_STORAGE = "clickHistoryStorage";
+    /** Newest history entries kept in memory per UI; {@code 0} keeps all. */
+    public static final String CLICK_HISTORY_RETENTION = "clickHistoryRetention";
+    /** Directory for history entries beyond the retention limit and for asynchronous exports. */
+    public static final String CLICK_HISTORY_SPILL_DIRECTORY = "clickHistorySpillDirectory";
+    /** Directory of the click journal; empty disables persistence. */
+    public static final String CLICK_JOURNAL_DIRECTORY = "clickJournalDirectory";
+    /** Milliseconds between group commits of the click journal. */
+    public static final String CLICK_JOURNAL_COMMIT_MILLIS = "clickJournalCommitMillis";
+    /** Milliseconds the browser collects Click Me clicks before sending them; {@code 0} sends each one. */
+    public static final String CLICK_BATCH_MILLIS = "clickBatchMillis";
+    /** Gzip level of the CSV export, 1 to 9; {@code 0} disables compression. */
+    public static final String CSV_EXPORT_GZIP_LEVEL = "csvExportGzipLevel";
+    /** Bytes per CSV export compression and download buffer. */
+    public static final String CSV_EXPORT_BUFFER_SIZE = "csvExportBufferSize";
+    /** History rows from which CSV exports are encoded on several cores; {@code 0} disables it. */
+    public static final String CSV_EXPORT_PARALLEL_THRESHOLD = "csvExportParallelThreshold";
+    /** CSV export mode: {@code stream} (default) or {@code async}. */
+    public static final String CSV_EXPORT_MODE = "csvExportMode";
+    /** Asynchronous CSV exports generated at the same time per node. */
+    public static final String CSV_EXPORT_MAX_RUNNING = "csvExportMaxRunning";
+    /** Asynchronous CSV exports allowed to wait per node. */
+    public static final String CSV_EXPORT_MAX_QUEUED = "csvExportMaxQueued";
+    /** How UIs are built: {@code eager} (default) or {@code lazy}. */
+    public static final String UI_BOOTSTRAP = "uiBootstrap";
+    /** Seconds without a click after which a UI's history is compacted; {@code 0} disables it. */
+    public static final String IDLE_COMPACTION_SECONDS = "idleCompactionSeconds";
+    /** Where idle histories go: {@code memory} (default, packed) or {@code disk} (spill file). */
+    public static final String IDLE_COMPACTION_TARGET = "idleCompactionTarget";
+
+    private AppConfig() {
+    }
+
+    public static String getString(String name, String defaultValue) {
+        VaadinService service = VaadinService.getCurrent();
+        if (service == null) {
+            return defaultValue;
+        }
+        DeploymentConfiguration configuration = service.getDeploymentConfiguration();
+        String value = configuration.getApplicationOrSystemProperty(name, defaultValue);
+        return value == null ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        String value = getString(name, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Init-param " + name + " must be an integer: " + value, e);
+        }
+    }
+
+    public static boolean isOffHeapHistory() {
+        return "offheap".equalsIgnoreCase(getString(CLICK_HISTORY_STORAGE, "heap"));
+    }
+
+    public static int getHistoryRetention() {
+        return getInt(CLICK_HISTORY_RETENTION, 0);
+    }
+
+    /**
+     * Returns the spill directory, or {@code null} for the default temporary
+     * directory.
+     */
+    public static File getHistorySpillDirectory() {
+        String directory = getString(CLICK_HISTORY_SPILL_DIRECTORY, "");
+        return directory.isEmpty() ? null : new File(directory);
+    }
+
+    /**
+     * Returns the click journal directory, or {@code null} if click history
+     * is not persisted.
+     */
+    public static File getJournalDirectory() {
+        String directory = getString(CLICK_JOURNAL_DIRECTORY, "");
+        return directory.isEmpty() ? null : new File(directory);
+    }
+
+    public static int getJournalCommitMillis() {
+        return getInt(CLICK_JOURNAL_COMMIT_MILLIS, 100);
+    }
+
+    public static int getClickBatchMillis() {
+        return getInt(CLICK_BATCH_MILLIS, 0);
+    }
+
+    public static int getCsvExportGzipLevel() {
+        return getInt(CSV_EXPORT_GZIP_LEVEL, 1);
+    }
+
+    public static int getCsvExportBufferSize() {
+        return getInt(CSV_EXPORT_BUFFER_SIZE, 8192);
+    }
+
+    public static int getCsvExportParallelThreshold() {
+        return getInt(CSV_EXPORT_PARALLEL_THRESHOLD, 1_000_000);
+    }
+
+    /**
+     * Tells whether exports are written to a file in the background instead
+     * of being generated while the download is sent.
+     */
+    public static boolean isAsyncCsvExport() {
+        return "async".equalsIgnoreCase(getString(CSV_EXPORT_MODE, "stream"));
+    }
+
+    public static int getCsvExportMaxRunning() {
+        return getInt(CSV_EXPORT_MAX_RUNNING, 2);
+    }
+
+    public static int getCsvExportMaxQueued() {
+        return getInt(CSV_EXPORT_MAX_QUEUED, 8);
+    }
+
+    /**
+     * Tells whether a UI first shows the statistics and the buttons, and
+     * builds the history grid and the export components once they are used.
+     */
+    public static boolean isLazyBootstrap() {
+        return "lazy".equalsIgnoreCase(getString(UI_BOOTSTRAP, "eager"));
+    }
+
+    public static int getIdleCompactionSeconds() {
+        return getInt(IDLE_COMPACTION_SECONDS, 600);
+    }
+
+    /**
+     * Tells whether idle histories are moved to the spill file instead of
+     * being packed in memory.
+     */
+    public static boolean isIdleCompactionToDisk() {
+        return "disk".equalsIgnoreCase(getString(IDLE_COMPACTION_TARGET, "memory"));
+    }
+}
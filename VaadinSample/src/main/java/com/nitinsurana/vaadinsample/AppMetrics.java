@@ -0,0 +1,79 @@
+package com.nitinsurana.vaadinsample;
+
+/**
+ * The application's hot-path metrics, registered in the default
+ * {@link MetricsRegistry} and served by {@link MetricsServlet}.
+ */
+public final class AppMetrics {
+
+    private static final MetricsRegistry REGISTRY = MetricsRegistry.getDefault();
+
+    public static final MetricsRegistry.Counter UI_INITS = REGISTRY.counter(
+            "vaadinsample_ui_inits_total", "UIs initialized");
+    public static final LatencyHistogram UI_INIT_SECONDS = REGISTRY.histogram(
+            "vaadinsample_ui_init_seconds", "Time to build a UI in init()");
+
+    public static final MetricsRegistry.Counter CLICKS = REGISTRY.counter(
+            "vaadinsample_clicks_total", "Click Me button clicks");
+    public static final LatencyHistogram CLICK_SECONDS = REGISTRY.histogram(
+            "vaadinsample_click_seconds", "Time spent in the Click Me listener");
+    public static final MetricsRegistry.Counter CLICK_BATCHES = REGISTRY.counter(
+            "vaadinsample_click_batches_total", "Batches of clicks coalesced by browsers");
+    public static final LatencyHistogram CLICK_BATCH_SECONDS = REGISTRY.histogram(
+            "vaadinsample_click_batch_seconds", "Time to apply one batch of clicks");
+    public static final LatencyHistogram CLICK_INTERVAL_SECONDS = REGISTRY.histogram(
+            "vaadinsample_click_interval_seconds", "Time between consecutive clicks of a UI");
+
+    public static final MetricsRegistry.Counter CLEARS = REGISTRY.counter(
+            "vaadinsample_clears_total", "Clear History button clicks");
+    public static final LatencyHistogram CLEAR_SECONDS = REGISTRY.histogram(
+            "vaadinsample_clear_seconds", "Time spent in the Clear History listener");
+
+    public static final MetricsRegistry.Counter EXPORTS = REGISTRY.counter(
+            "vaadinsample_exports_total", "History export streams opened");
+    public static final LatencyHistogram EXPORT_RESOURCE_SECONDS = REGISTRY.histogram(
+            "vaadinsample_export_resource_seconds", "Time spent in createExportResource()");
+    public static final LatencyHistogram EXPORT_STREAM_SECONDS = REGISTRY.histogram(
+            "vaadinsample_export_stream_seconds", "Time to open a history export stream");
+    public static final MetricsRegistry.Counter EXPORTS_REJECTED = REGISTRY.counter(
+            "vaadinsample_exports_rejected_total", "Asynchronous history exports refused because the node was busy");
+    public static final LatencyHistogram EXPORT_JOB_SECONDS = REGISTRY.histogram(
+            "vaadinsample_export_job_seconds", "Time to write an asynchronous history export to its file");
+
+    public static final MetricsRegistry.Counter JOURNAL_EVENTS = REGISTRY.counter(
+            "vaadinsample_journal_events_total", "Click history events queued for the journal");
+    public static final LatencyHistogram JOURNAL_COMMIT_SECONDS = REGISTRY.histogram(
+            "vaadinsample_journal_commit_seconds", "Time to write and fsync one journal group commit");
+
+    public static final MetricsRegistry.Counter IDLE_COMPACTIONS = REGISTRY.counter(
+            "vaadinsample_idle_compactions_total", "Click histories of idle UIs compacted");
+    public static final MetricsRegistry.Counter IDLE_RECLAIMED_BYTES = REGISTRY.counter(
+            "vaadinsample_idle_reclaimed_bytes_total", "Bytes of click history memory released by idle compaction");
+    public static final MetricsRegistry.Counter HISTORY_REHYDRATIONS = REGISTRY.counter(
+            "vaadinsample_history_rehydrations_total", "Compacted click histories unpacked for new clicks");
+
+    public static final MetricsRegistry.Counter STATIC_RESPONSES = REGISTRY.counter(
+            "vaadinsample_static_responses_total", "Static resources sent with their content");
+    public static final MetricsRegistry.Counter STATIC_NOT_MODIFIED = REGISTRY.counter(
+            "vaadinsample_static_not_modified_total", "Static resource requests answered with 304 Not Modified");
+    public static final MetricsRegistry.Counter STATIC_BYTES = REGISTRY.counter(
+            "vaadinsample_static_bytes_total", "Bytes of static resource content sent, after compression");
+
+    public static final MetricsRegistry.Gauge LIVE_UIS = REGISTRY.gauge(
+            "vaadinsample_live_uis", "UIs currently attached to a session");
+    public static final MetricsRegistry.Gauge HISTORY_ENTRIES = REGISTRY.gauge(
+            "vaadinsample_history_entries", "Click history entries retained by all UIs");
+    public static final MetricsRegistry.Gauge EXPORT_JOBS = REGISTRY.gauge(
+            "vaadinsample_export_jobs", "Asynchronous history exports running or waiting");
+
+    private AppMetrics() {
+    }
+
+    /**
+     * Makes sure the metrics above are registered, even before any UI used
+     * them.
+     */
+    static void ensureRegistered() {
+        // Calling this initializes the class and with it the static fields
+    }
+}
@@ -0,0 +1,40 @@
+package com.nitinsurana.vaadinsample;
+
+/**
+ * Compact binary format of delta-encoded varints; see
+ * {@link BinaryExportStream}.
+ */
+public class BinaryExporter implements HistoryExporter {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String NAME = "Binary";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "clicks";
+    }
+
+    @Override
+    public String getMimeType() {
+        return "application/octet-stream";
+    }
+
+    /**
+     * Varint deltas are already dense; gzip would mostly cost time.
+     */
+    @Override
+    public boolean isCompressible() {
+        return false;
+    }
+
+    @Override
+    public HistoryExportStream open(ClickTimestampLog.Snapshot timestamps, int bufferSize) {
+        return new BinaryExportStream(timestamps, bufferSize);
+    }
+}
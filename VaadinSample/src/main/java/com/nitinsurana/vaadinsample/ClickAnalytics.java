@@ -0,0 +1,245 @@
+package com.nitinsurana.vaadinsample;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Node-wide click statistics fed by every {@link MyVaadinUI}.
+ * <p>
+ * Recording a click never takes a lock: totals are {@link LongAdder}s, which
+ * stripe contended updates over cells, and the sliding window is a ring of
+ * one-second buckets that are swapped in with a compare-and-set when a new
+ * second starts. Each UI holds the {@link SessionActivity} of its session,
+ * so the click path does not look anything up either. Sessions are only
+ * added and removed from the map when UIs attach and detach.
+ * <p>
+ * Readers such as {@link AdminUI} sum the buckets and scan the sessions on
+ * demand.
+ */
+public final class ClickAnalytics {
+
+    /** Length of the sliding window in seconds. */
+    public static final int WINDOW_SECONDS = 60;
+
+    private static final ClickAnalytics SHARED = new ClickAnalytics(AppMetrics.CLICK_INTERVAL_SECONDS);
+
+    private final LongAdder totalClicks = new LongAdder();
+    // One more bucket than the window for the second that is still filling up
+    private final AtomicReferenceArray<Bucket> window = new AtomicReferenceArray<>(WINDOW_SECONDS + 1);
+    private final LatencyHistogram intervals;
+    private final ConcurrentMap<Object, SessionActivity> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionNumbers = new AtomicInteger();
+
+    /**
+     * @param intervals histogram receiving the time between consecutive
+     *                  clicks of a UI
+     */
+    ClickAnalytics(LatencyHistogram intervals) {
+        this.intervals = intervals;
+        for (int i = 0; i < window.length(); i++) {
+            window.set(i, new Bucket(-1));
+        }
+    }
+
+    /**
+     * Returns the analytics shared by all UIs of the application.
+     */
+    public static ClickAnalytics getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts tracking a UI of {@code session}. UIs of the same session share
+     * one activity record, which is dropped once all of them are released.
+     *
+     * @param session any object identifying the session, compared by equality
+     */
+    public SessionActivity attach(final Object session) {
+        return sessions.compute(session, new BiFunction<Object, SessionActivity, SessionActivity>() {
+            @Override
+            public SessionActivity apply(Object key, SessionActivity activity) {
+                if (activity == null) {
+                    activity = new SessionActivity(key, "Session " + sessionNumbers.incrementAndGet());
+                }
+                activity.uis++;
+                return activity;
+            }
+        });
+    }
+
+    /**
+     * Stops tracking a UI attached with {@link #attach(Object)}.
+     */
+    public void release(SessionActivity activity) {
+        sessions.computeIfPresent(activity.session, new BiFunction<Object, SessionActivity, SessionActivity>() {
+            @Override
+            public SessionActivity apply(Object key, SessionActivity current) {
+                // Returning null removes the session
+                return --current.uis == 0 ? null : current;
+            }
+        });
+    }
+
+    /**
+     * Records a click at {@code now}.
+     *
+     * @param activity          the clicking UI's session, or {@code null} if
+     *                          the UI is not attached to one
+     * @param previousClickTime the UI's previous click, or {@code 0} for its
+     *                          first click
+     */
+    public void recordClick(SessionActivity activity, long now, long previousClickTime) {
+        totalClicks.increment();
+        bucketFor(now).clicks.increment();
+        if (previousClickTime > 0) {
+            intervals.record(TimeUnit.MILLISECONDS.toNanos(now - previousClickTime));
+        }
+        if (activity != null) {
+            activity.clicks.increment();
+            activity.lastClickTime = now;
+        }
+    }
+
+    private Bucket bucketFor(long now) {
+        long second = now / 1000;
+        int index = (int) (second % window.length());
+        Bucket bucket = window.get(index);
+        while (bucket.second < second) {
+            Bucket fresh = new Bucket(second);
+            if (window.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+            bucket = window.get(index);
+        }
+        // A click delayed past the start of a newer second counts there
+        return bucket;
+    }
+
+    public long getTotalClicks() {
+        return totalClicks.sum();
+    }
+
+    /**
+     * Returns the clicks in the {@code seconds} whole seconds before the one
+     * containing {@code now}, which is still filling up.
+     */
+    public long getWindowClicks(long now, int seconds) {
+        if (seconds < 1 || seconds > WINDOW_SECONDS) {
+            throw new IllegalArgumentException("Seconds must be between 1 and " + WINDOW_SECONDS + ": " + seconds);
+        }
+        long current = now / 1000;
+        long clicks = 0;
+        for (long second = current - seconds; second < current; second++) {
+            Bucket bucket = window.get((int) (second % window.length()));
+            if (bucket.second == second) {
+                clicks += bucket.clicks.sum();
+            }
+        }
+        return clicks;
+    }
+
+    /**
+     * Returns the average clicks per second over the last {@code seconds}
+     * complete seconds.
+     */
+    public double getClicksPerSecond(long now, int seconds) {
+        return (double) getWindowClicks(now, seconds) / seconds;
+    }
+
+    /**
+     * Returns the number of sessions with at least one UI open.
+     */
+    public int getOpenSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of open sessions that clicked within the sliding
+     * window.
+     */
+    public int getActiveSessions(long now) {
+        long since = now - TimeUnit.SECONDS.toMillis(WINDOW_SECONDS);
+        int active = 0;
+        for (SessionActivity activity : sessions.values()) {
+            if (activity.lastClickTime > since) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Returns the distribution of the time between consecutive clicks of a
+     * UI, since the application started.
+     */
+    public LatencyHistogram getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * Returns up to {@code limit} open sessions, most clicks first.
+     */
+    public List<SessionActivity> getTopSessions(int limit) {
+        List<SessionActivity> top = new ArrayList<>(sessions.values());
+        Collections.sort(top, new Comparator<SessionActivity>() {
+            @Override
+            public int compare(SessionActivity a, SessionActivity b) {
+                return Long.compare(b.getClicks(), a.getClicks());
+            }
+        });
+        return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+    }
+
+    /**
+     * Click activity of one session, shared by its UIs.
+     */
+    public static final class SessionActivity {
+        private final Object session;
+        private final String label;
+        private final LongAdder clicks = new LongAdder();
+        private volatile long lastClickTime;
+        // Only changed inside the map's compute functions
+        private int uis;
+
+        private SessionActivity(Object session, String label) {
+            this.session = session;
+            this.label = label;
+        }
+
+        /**
+         * Returns a display name that does not reveal the session id.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        public long getClicks() {
+            return clicks.sum();
+        }
+
+        /**
+         * Returns the time of the session's latest click, {@code 0} if none.
+         */
+        public long getLastClickTime() {
+            return lastClickTime;
+        }
+    }
+
+    private static final class Bucket {
+        final long second;
+        final LongAdder clicks = new LongAdder();
+
+        Bucket(long second) {
+            this.second = second;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.nitinsurana.vaadinsample;
+
+import com.nitinsurana.vaadinsample.client.ClickBatchServerRpc;
+import com.nitinsurana.vaadinsample.client.ClickBatcherState;
+import com.vaadin.server.AbstractExtension;
+import com.vaadin.ui.Button;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces the clicks of a {@link Button} in the browser and delivers them
+ * in batches, each click with the time it was made.
+ * <p>
+ * Clicks made in the browser no longer reach the button's click listeners;
+ * they arrive at the {@link BatchListener} instead, at most one request per
+ * window. {@link Button#click()} on the server still notifies the button's
+ * listeners as before.
+ * <p>
+ * Click times are taken from the browser's clock and moved onto the
+ * server's clock by the difference between the two when the batch arrives,
+ * so the spacing of the clicks is kept exactly. Times are then limited to
+ * the arrival time and to the previous click, so the history never runs
+ * backwards or into the future.
+ */
+public class ClickBatcher extends AbstractExtension {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Clicks after which the browser sends a batch without waiting for the window. */
+    public static final int DEFAULT_MAX_CLICKS = 256;
+
+    /**
+     * Receives the clicks of one batch.
+     */
+    public interface BatchListener extends Serializable {
+
+        /**
+         * @param timestamps epoch milliseconds of the clicks on the server's
+         *                   clock, oldest first
+         */
+        void clicksReceived(long[] timestamps);
+    }
+
+    private final BatchListener listener;
+    private long lastTimestamp;
+
+    /**
+     * @param windowMillis milliseconds the browser collects clicks before
+     *                     sending them
+     */
+    public ClickBatcher(int windowMillis, BatchListener listener) {
+        this(windowMillis, DEFAULT_MAX_CLICKS, listener);
+    }
+
+    /**
+     * @param windowMillis milliseconds the browser collects clicks before
+     *                     sending them
+     * @param maxClicks    clicks after which a batch is sent right away;
+     *                     larger batches are cut to this size
+     */
+    public ClickBatcher(int windowMillis, int maxClicks, BatchListener listener) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Batch window must be positive: " + windowMillis);
+        }
+        if (maxClicks <= 0) {
+            throw new IllegalArgumentException("Batches must hold at least one click: " + maxClicks);
+        }
+        this.listener = listener;
+        getState().windowMillis = windowMillis;
+        getState().maxClicks = maxClicks;
+        registerRpc(new ClickBatchServerRpc() {
+            @Override
+            public void clicks(long[] clickTimes, long sentAt) {
+                receive(clickTimes, sentAt, System.currentTimeMillis());
+            }
+        });
+    }
+
+    public void extend(Button button) {
+        super.extend(button);
+    }
+
+    public int getWindowMillis() {
+        return getState(false).windowMillis;
+    }
+
+    public int getMaxClicks() {
+        return getState(false).maxClicks;
+    }
+
+    @Override
+    protected ClickBatcherState getState() {
+        return (ClickBatcherState) super.getState();
+    }
+
+    @Override
+    protected ClickBatcherState getState(boolean markAsDirty) {
+        return (ClickBatcherState) super.getState(markAsDirty);
+    }
+
+    /**
+     * Moves a batch onto the server's clock and passes it on.
+     *
+     * @param now the server's clock when the batch arrived
+     */
+    void receive(long[] clickTimes, long sentAt, long now) {
+        if (clickTimes == null || clickTimes.length == 0) {
+            return;
+        }
+        int maxClicks = getMaxClicks();
+        if (clickTimes.length > maxClicks) {
+            // The browser never sends more, so this is not a regular client
+            getLogger().warning("Dropping " + (clickTimes.length - maxClicks) + " clicks beyond the batch limit");
+            clickTimes = Arrays.copyOf(clickTimes, maxClicks);
+        }
+        long offset = now - sentAt;
+        long[] timestamps = new long[clickTimes.length];
+        for (int i = 0; i < clickTimes.length; i++) {
+            long timestamp = Math.min(clickTimes[i] + offset, now);
+            lastTimestamp = Math.max(timestamp, lastTimestamp);
+            timestamps[i] = lastTimestamp;
+        }
+        listener.clicksReceived(timestamps);
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(ClickBatcher.class.getName());
+    }
+}
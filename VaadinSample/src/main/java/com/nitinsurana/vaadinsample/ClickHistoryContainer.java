@@ -0,0 +1,302 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.Item;
+import com.vaadin.data.Property;
+import com.vaadin.data.util.AbstractContainer;
+import com.vaadin.data.util.ObjectProperty;
+import com.vaadin.data.util.PropertysetItem;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.List;
+
+/**
+ * Read-only indexed container exposing the click history log as rows of
+ * "Click #N at timestamp" text.
+ * <p>
+ * Item ids are the row indexes. Nothing is materialized up front: items and
+ * their text are created only for the rows a component actually requests, so
+ * a lazily loading component such as {@link com.vaadin.ui.Grid} only pays for
+ * the visible range.
+ */
+public class ClickHistoryContainer extends AbstractContainer
+        implements Container.Indexed, Container.ItemSetChangeNotifier {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String ENTRY_PROPERTY = "entry";
+
+    private static final List<String> PROPERTY_IDS = Collections.singletonList(ENTRY_PROPERTY);
+
+    private final ClickTimestampLog timestamps;
+
+    public ClickHistoryContainer(ClickTimestampLog timestamps) {
+        this.timestamps = timestamps;
+    }
+
+    /**
+     * Notifies listeners that a timestamp was appended to the log.
+     */
+    public void fireEntryAdded() {
+        fireEntriesAdded(1);
+    }
+
+    /**
+     * Notifies listeners that {@code count} timestamps were appended to the
+     * log, with a single event.
+     */
+    public void fireEntriesAdded(int count) {
+        fireItemSetChange(new EntryAddEvent(this, size() - count, count));
+    }
+
+    /**
+     * Notifies listeners that the log was cleared.
+     */
+    public void fireCleared() {
+        fireItemSetChange();
+    }
+
+    /**
+     * Returns the display text of the entry at {@code index}.
+     */
+    public String getEntryText(int index) {
+        // Rows are read on the session thread, which is also the log's
+        // writer, so the entry and its number come from the same epoch
+        long timestamp = timestamps.get(index);
+        StringBuilder text = new StringBuilder(32)
+                .append("Click #").append(timestamps.getFirstNumber() + index).append(" at ");
+        return TimestampFormatter.get().formatDateTime(timestamp, text).toString();
+    }
+
+    @Override
+    public int size() {
+        return timestamps.size();
+    }
+
+    @Override
+    public Item getItem(Object itemId) {
+        if (!containsId(itemId)) {
+            return null;
+        }
+        PropertysetItem item = new PropertysetItem();
+        item.addItemProperty(ENTRY_PROPERTY, createEntryProperty((Integer) itemId));
+        return item;
+    }
+
+    @Override
+    public Property<?> getContainerProperty(Object itemId, Object propertyId) {
+        if (!ENTRY_PROPERTY.equals(propertyId) || !containsId(itemId)) {
+            return null;
+        }
+        return createEntryProperty((Integer) itemId);
+    }
+
+    private Property<String> createEntryProperty(int index) {
+        return new ObjectProperty<String>(getEntryText(index), String.class, true);
+    }
+
+    @Override
+    public Collection<?> getContainerPropertyIds() {
+        return PROPERTY_IDS;
+    }
+
+    @Override
+    public Class<?> getType(Object propertyId) {
+        return ENTRY_PROPERTY.equals(propertyId) ? String.class : null;
+    }
+
+    @Override
+    public Collection<?> getItemIds() {
+        return indexRange(0, size());
+    }
+
+    @Override
+    public List<?> getItemIds(int startIndex, int numberOfItems) {
+        int size = size();
+        if (startIndex < 0 || numberOfItems < 0 || startIndex > size) {
+            throw new IndexOutOfBoundsException("Start index: " + startIndex + ", Size: " + size);
+        }
+        return indexRange(startIndex, Math.min(numberOfItems, size - startIndex));
+    }
+
+    private static List<Integer> indexRange(final int start, final int count) {
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+                }
+                return start + index;
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public boolean containsId(Object itemId) {
+        if (!(itemId instanceof Integer)) {
+            return false;
+        }
+        int index = (Integer) itemId;
+        return index >= 0 && index < size();
+    }
+
+    @Override
+    public int indexOfId(Object itemId) {
+        return containsId(itemId) ? (Integer) itemId : -1;
+    }
+
+    @Override
+    public Object getIdByIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return index;
+    }
+
+    @Override
+    public Object nextItemId(Object itemId) {
+        int index = indexOfId(itemId);
+        return index >= 0 && index + 1 < size() ? (Object) (index + 1) : null;
+    }
+
+    @Override
+    public Object prevItemId(Object itemId) {
+        int index = indexOfId(itemId);
+        return index > 0 ? (Object) (index - 1) : null;
+    }
+
+    @Override
+    public Object firstItemId() {
+        return size() > 0 ? (Object) 0 : null;
+    }
+
+    @Override
+    public Object lastItemId() {
+        int size = size();
+        return size > 0 ? (Object) (size - 1) : null;
+    }
+
+    @Override
+    public boolean isFirstId(Object itemId) {
+        return Integer.valueOf(0).equals(itemId) && size() > 0;
+    }
+
+    @Override
+    public boolean isLastId(Object itemId) {
+        int size = size();
+        return size > 0 && Integer.valueOf(size - 1).equals(itemId);
+    }
+
+    @Override
+    public void addItemSetChangeListener(Container.ItemSetChangeListener listener) {
+        super.addItemSetChangeListener(listener);
+    }
+
+    @Override
+    @Deprecated
+    public void addListener(Container.ItemSetChangeListener listener) {
+        super.addListener(listener);
+    }
+
+    @Override
+    public void removeItemSetChangeListener(Container.ItemSetChangeListener listener) {
+        super.removeItemSetChangeListener(listener);
+    }
+
+    @Override
+    @Deprecated
+    public void removeListener(Container.ItemSetChangeListener listener) {
+        super.removeListener(listener);
+    }
+
+    // The history is only changed through the timestamp log
+
+    @Override
+    public Item addItem(Object itemId) {
+        throw new UnsupportedOperationException("Click history is read-only");
+    }
+
+    @Override
+    public Object addItem() {
+        throw new UnsupportedOperationException("Click history is read-only");
+    }
+
+    @Override
+    public boolean removeItem(Object itemId) {
+        throw new UnsupportedOperationException("Click history is read-only");
+    }
+
+    @Override
+    public boolean addContainerProperty(Object propertyId, Class<?> type, Object defaultValue) {
+        throw new UnsupportedOperationException("Click history is read-only");
+    }
+
+    @Override
+    public boolean removeContainerProperty(Object propertyId) {
+        throw new UnsupportedOperationException("Click history is read-only");
+    }
+
+    @Override
+    public boolean removeAllItems() {
+        throw new UnsupportedOperationException("Click history is read-only");
+    }
+
+    @Override
+    public Object addItemAfter(Object previousItemId) {
+        throw new UnsupportedOperationException("Click history is read-only");
+    }
+
+    @Override
+    public Item addItemAfter(Object previousItemId, Object newItemId) {
+        throw new UnsupportedOperationException("Click history is read-only");
+    }
+
+    @Override
+    public Object addItemAt(int index) {
+        throw new UnsupportedOperationException("Click history is read-only");
+    }
+
+    @Override
+    public Item addItemAt(int index, Object newItemId) {
+        throw new UnsupportedOperationException("Click history is read-only");
+    }
+
+    private static class EntryAddEvent extends EventObject implements Container.Indexed.ItemAddEvent {
+        private static final long serialVersionUID = 1L;
+        private final int index;
+        private final int count;
+
+        EntryAddEvent(Container source, int index, int count) {
+            super(source);
+            this.index = index;
+            this.count = count;
+        }
+
+        @Override
+        public Container getContainer() {
+            return (Container) getSource();
+        }
+
+        @Override
+        public Object getFirstItemId() {
+            return index;
+        }
+
+        @Override
+        public int getFirstIndex() {
+            return index;
+        }
+
+        @Override
+        public int getAddedItemsCount() {
+            return count;
+        }
+    }
+}
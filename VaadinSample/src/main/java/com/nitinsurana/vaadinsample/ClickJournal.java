@@ -0,0 +1,634 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.ServiceDestroyEvent;
+import com.vaadin.server.ServiceDestroyListener;
+import com.vaadin.server.VaadinService;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of click history events, shared by all sessions of a
+ * node, from which a returning browser's history is rebuilt.
+ * <p>
+ * {@link #append(UUID, int, long)} only queues the event, so a UI thread
+ * never waits for the disk. A background writer drains the queue every
+ * commit interval, writes all pending events of all sessions in one batch
+ * and forces them to disk with a single fsync (group commit). Events queued
+ * since the last commit are lost if the node dies.
+ * <p>
+ * Records are {@value #RECORD_BYTES} bytes: the history key, the timestamp,
+ * the event type and a CRC32 of the preceding 28 bytes. A torn record at
+ * the end of the file is cut off when the journal is opened, and records
+ * whose checksum does not match are skipped.
+ * <p>
+ * Opening the journal reads it once to index, per history, how many clicks
+ * were cleared and where the clicks since the last clear are. Recovery only
+ * reads those records, plus the history's events still queued, and never
+ * waits for a commit. Once most records of the file are no longer needed,
+ * because they were cleared or their history expired, the writer rewrites
+ * the file with the ones that are.
+ */
+public final class ClickJournal {
+
+    /** A click appended to the history. */
+    public static final int CLICK = 1;
+    /** The history was cleared. */
+    public static final int CLEAR = 2;
+    /** Written by compaction instead of cleared clicks; the timestamp field holds their number. */
+    static final int CLEARED = 3;
+
+    /** How long a history is kept after its last event. */
+    public static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(365);
+
+    static final int RECORD_BYTES = 32;
+    static final String FILE_NAME = "click-history.journal";
+
+    private static final int BATCH_BYTES = 64 * 1024;
+    // The file is compacted once it holds this many records and twice as many as are needed
+    static final long COMPACTION_MIN_RECORDS = 64 * 1024;
+    private static final long EXPIRY_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int RECOVERY_THREADS = 2;
+    private static final ConcurrentMap<String, ClickJournal> SHARED = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final long retentionMillis;
+    private final Queue<Event> pending = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService writer;
+    private final ExecutorService recoveries;
+    private final ByteBuffer batch = ByteBuffer.allocate(BATCH_BYTES);
+    private final CRC32 checksum = new CRC32();
+    private final AtomicLong commits = new AtomicLong();
+
+    // Writes and compaction take the write lock, recoveries the read lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, History> histories = new HashMap<>();
+    private FileChannel channel;
+    private long records;
+    private long liveRecords;
+
+    /**
+     * Opens or creates the journal {@code file}, keeping histories forever.
+     *
+     * @param commitMillis interval between group commits
+     */
+    ClickJournal(File file, long commitMillis) {
+        this(file, commitMillis, 0);
+    }
+
+    /**
+     * Opens or creates the journal {@code file}.
+     *
+     * @param commitMillis    interval between group commits
+     * @param retentionMillis how long a history is kept after its last
+     *                        event, or {@code 0} to keep it forever
+     */
+    ClickJournal(File file, long commitMillis, long retentionMillis) {
+        if (commitMillis <= 0) {
+            throw new IllegalArgumentException("Commit interval must be positive: " + commitMillis);
+        }
+        this.file = file;
+        this.retentionMillis = retentionMillis;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long complete = channel.size() / RECORD_BYTES * RECORD_BYTES;
+            if (complete < channel.size()) {
+                getLogger().warning("Cutting off a torn record at the end of " + file);
+                channel.truncate(complete);
+            }
+            channel.position(complete);
+            index();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open click journal " + file, e);
+        }
+        expire(System.currentTimeMillis());
+        writer = Executors.newSingleThreadScheduledExecutor(daemonThreads("click-journal-writer"));
+        writer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                // An exception would cancel all further commits
+                try {
+                    commit();
+                    if (records >= COMPACTION_MIN_RECORDS && records > 2 * liveRecords) {
+                        compact();
+                    }
+                } catch (RuntimeException e) {
+                    getLogger().log(Level.SEVERE, "Could not commit click journal " + ClickJournal.this.file, e);
+                }
+            }
+        }, commitMillis, commitMillis, TimeUnit.MILLISECONDS);
+        if (retentionMillis > 0) {
+            writer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    expire(System.currentTimeMillis());
+                }
+            }, EXPIRY_INTERVAL_MILLIS, EXPIRY_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        recoveries = Executors.newFixedThreadPool(RECOVERY_THREADS, daemonThreads("click-journal-recovery"));
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Returns the journal in {@code directory}, opening it on first use. The
+     * journal keeps histories for {@link #RETENTION_MILLIS} and is closed
+     * when the current {@link VaadinService} is destroyed.
+     *
+     * @param commitMillis interval between group commits, used when the
+     *                     journal is opened
+     */
+    public static ClickJournal forDirectory(File directory, final long commitMillis) {
+        return SHARED.computeIfAbsent(directory.getAbsolutePath(), new Function<String, ClickJournal>() {
+            @Override
+            public ClickJournal apply(final String path) {
+                final ClickJournal journal = new ClickJournal(new File(path, FILE_NAME), commitMillis,
+                        RETENTION_MILLIS);
+                VaadinService service = VaadinService.getCurrent();
+                if (service != null) {
+                    service.addServiceDestroyListener(new ServiceDestroyListener() {
+                        @Override
+                        public void serviceDestroy(ServiceDestroyEvent event) {
+                            SHARED.remove(path, journal);
+                            journal.close();
+                        }
+                    });
+                }
+                return journal;
+            }
+        });
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Queues an event for the next group commit. Never blocks.
+     *
+     * @param key  the history the event belongs to
+     * @param type {@link #CLICK} or {@link #CLEAR}
+     */
+    public void append(UUID key, int type, long timestamp) {
+        pending.add(new Event(key, type, timestamp));
+        AppMetrics.JOURNAL_EVENTS.increment();
+    }
+
+    /**
+     * Writes and fsyncs everything queued so far. Runs on the writer thread.
+     */
+    void commit() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            // Polled under the lock, so a recovery sees each event either
+            // queued or indexed
+            List<Event> written = new ArrayList<>();
+            try {
+                Event event;
+                while ((event = pending.poll()) != null) {
+                    putRecord(channel, event.key, event.type, event.timestamp);
+                    written.add(event);
+                }
+                writeBatch(channel);
+            } catch (IOException e) {
+                // Drop the partial batch and cut the file back to the records indexed
+                ((Buffer) batch).clear();
+                try {
+                    channel.truncate(records * RECORD_BYTES);
+                } catch (IOException truncateFailure) {
+                    e.addSuppressed(truncateFailure);
+                }
+                throw new UncheckedIOException("Could not write click journal " + file, e);
+            }
+            for (Event event : written) {
+                apply(event.key, event.type, event.timestamp, records++);
+            }
+            // Recoveries may read the records before they are forced to disk
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write click journal " + file, e);
+        }
+        commits.incrementAndGet();
+        AppMetrics.JOURNAL_COMMIT_SECONDS.recordSince(start);
+    }
+
+    /**
+     * Adds a record to the batch, writing the batch to {@code target} first
+     * if it is full.
+     */
+    private void putRecord(FileChannel target, UUID key, int type, long timestamp) throws IOException {
+        if (batch.remaining() < RECORD_BYTES) {
+            writeBatch(target);
+        }
+        int recordStart = batch.position();
+        batch.putLong(key.getMostSignificantBits());
+        batch.putLong(key.getLeastSignificantBits());
+        batch.putLong(timestamp);
+        batch.putInt(type);
+        checksum.reset();
+        checksum.update(batch.array(), recordStart, RECORD_BYTES - 4);
+        batch.putInt((int) checksum.getValue());
+    }
+
+    private void writeBatch(FileChannel target) throws IOException {
+        // Buffer casts keep the Java 8 method signatures
+        ((Buffer) batch).flip();
+        while (batch.hasRemaining()) {
+            target.write(batch);
+        }
+        ((Buffer) batch).clear();
+    }
+
+    /**
+     * Adds record number {@code record} to the index.
+     */
+    private void apply(UUID key, int type, long value, long record) {
+        History history = histories.get(key);
+        if (history == null) {
+            history = new History();
+            histories.put(key, history);
+        }
+        liveRecords -= history.liveRecords();
+        if (type == CLICK) {
+            history.add(record);
+            history.lastEvent = Math.max(history.lastEvent, value);
+        } else if (type == CLEAR) {
+            history.cleared += history.size;
+            history.size = 0;
+            history.clearedAt = value;
+            history.lastEvent = Math.max(history.lastEvent, value);
+        } else if (type == CLEARED) {
+            history.cleared += (int) value;
+        }
+        liveRecords += history.liveRecords();
+    }
+
+    /**
+     * Reads the whole file into the index. Records that fail their checksum
+     * are left out.
+     */
+    private void index() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BATCH_BYTES);
+        CRC32 recordChecksum = new CRC32();
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            position += read;
+            ((Buffer) buffer).flip();
+            while (buffer.remaining() >= RECORD_BYTES) {
+                int recordStart = buffer.position();
+                ((Buffer) buffer).position(recordStart + RECORD_BYTES);
+                if (isIntact(buffer, recordStart, recordChecksum)) {
+                    apply(new UUID(buffer.getLong(recordStart), buffer.getLong(recordStart + 8)),
+                            buffer.getInt(recordStart + 24), buffer.getLong(recordStart + 16), records);
+                } else {
+                    getLogger().warning("Skipping a corrupt record in " + file);
+                }
+                records++;
+            }
+            buffer.compact();
+        }
+    }
+
+    private static boolean isIntact(ByteBuffer buffer, int recordStart, CRC32 recordChecksum) {
+        recordChecksum.reset();
+        recordChecksum.update(buffer.array(), recordStart, RECORD_BYTES - 4);
+        return (int) recordChecksum.getValue() == buffer.getInt(recordStart + RECORD_BYTES - 4);
+    }
+
+    /**
+     * Drops histories whose last event is older than the retention period.
+     * Their records go with the next compaction.
+     */
+    void expire(long now) {
+        if (retentionMillis <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Iterator<History> iterator = histories.values().iterator();
+            while (iterator.hasNext()) {
+                History history = iterator.next();
+                if (history.lastEvent < now - retentionMillis) {
+                    liveRecords -= history.liveRecords();
+                    iterator.remove();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the file with only the records recovery needs: the number of
+     * clicks each history cleared and its clicks since then. The new file
+     * replaces the old one once it is on disk. Runs on the writer thread;
+     * recoveries wait for it.
+     */
+    void compact() {
+        lock.writeLock().lock();
+        try {
+            long before = records;
+            File compacted = new File(file.getPath() + ".compact");
+            Map<UUID, History> rewritten = new HashMap<>();
+            long rewrittenRecords = 0;
+            try (FileChannel target = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (Map.Entry<UUID, History> entry : histories.entrySet()) {
+                    History history = entry.getValue();
+                    if (history.liveRecords() == 0) {
+                        continue;
+                    }
+                    History copy = new History();
+                    copy.lastEvent = history.lastEvent;
+                    if (history.cleared > 0) {
+                        // The clear keeps its time, so the history does not expire early
+                        putRecord(target, entry.getKey(), CLEARED, history.cleared);
+                        putRecord(target, entry.getKey(), CLEAR, history.clearedAt);
+                        rewrittenRecords += 2;
+                        copy.cleared = history.cleared;
+                        copy.clearedAt = history.clearedAt;
+                    }
+                    rewritten.put(entry.getKey(), copy);
+                }
+                // Clicks keep their order; only those since a history's last clear are live
+                ByteBuffer buffer = ByteBuffer.allocate(BATCH_BYTES);
+                CRC32 recordChecksum = new CRC32();
+                long position = 0;
+                long record = 0;
+                int read;
+                while ((read = channel.read(buffer, position)) > 0) {
+                    position += read;
+                    ((Buffer) buffer).flip();
+                    while (buffer.remaining() >= RECORD_BYTES) {
+                        int recordStart = buffer.position();
+                        ((Buffer) buffer).position(recordStart + RECORD_BYTES);
+                        UUID key = new UUID(buffer.getLong(recordStart), buffer.getLong(recordStart + 8));
+                        History history = histories.get(key);
+                        if (history != null && history.size > 0 && record >= history.records[0]
+                                && buffer.getInt(recordStart + 24) == CLICK
+                                && isIntact(buffer, recordStart, recordChecksum)) {
+                            if (batch.remaining() < RECORD_BYTES) {
+                                writeBatch(target);
+                            }
+                            batch.put(buffer.array(), recordStart, RECORD_BYTES);
+                            rewritten.get(key).add(rewrittenRecords++);
+                        }
+                        record++;
+                    }
+                    buffer.compact();
+                }
+                writeBatch(target);
+                target.force(true);
+            }
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            histories.clear();
+            histories.putAll(rewritten);
+            records = rewrittenRecords;
+            liveRecords = rewrittenRecords;
+            getLogger().info("Compacted click journal " + file + " from " + before + " to " + records + " records");
+        } catch (IOException e) {
+            ((Buffer) batch).clear();
+            throw new UncheckedIOException("Could not compact click journal " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until everything queued so far has been committed.
+     */
+    public void sync() {
+        awaitWriter(new Runnable() {
+            @Override
+            public void run() {
+                commit();
+            }
+        });
+    }
+
+    /**
+     * Commits what is queued and compacts the file on the writer thread.
+     */
+    void compactNow() {
+        awaitWriter(new Runnable() {
+            @Override
+            public void run() {
+                commit();
+                compact();
+            }
+        });
+    }
+
+    private void awaitWriter(Runnable task) {
+        try {
+            writer.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not sync click journal " + file, e.getCause());
+        }
+    }
+
+    /**
+     * Rebuilds the history {@code key} into the empty {@code log}: its
+     * clicks since the last clear are read from their records, followed by
+     * its events still queued. Does not wait for a commit.
+     *
+     * @return the number of clicks of the history, including cleared ones
+     */
+    public int recover(UUID key, ClickTimestampLog log) {
+        lock.readLock().lock();
+        try {
+            int clicks = 0;
+            History history = histories.get(key);
+            if (history != null) {
+                log.skip(history.cleared);
+                clicks = history.cleared + readClicks(history, log);
+            }
+            // The writer only takes events from the queue under the write lock
+            for (Event event : pending) {
+                if (!event.key.equals(key)) {
+                    continue;
+                }
+                if (event.type == CLICK) {
+                    log.add(event.timestamp);
+                    clicks++;
+                } else if (event.type == CLEAR) {
+                    log.clear();
+                }
+            }
+            return clicks;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read click journal " + file, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Like {@link #recover(UUID, ClickTimestampLog)}, but on a recovery
+     * thread, so that the caller does not hold its session lock while the
+     * file is read. {@code log} must not be used until the result is there.
+     */
+    public CompletableFuture<Integer> recoverAsync(final UUID key, final ClickTimestampLog log) {
+        return CompletableFuture.supplyAsync(new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                return recover(key, log);
+            }
+        }, recoveries);
+    }
+
+    /**
+     * Reads the indexed clicks of {@code history} into {@code log}, a window
+     * of the file at a time.
+     *
+     * @return the number of clicks read
+     */
+    private int readClicks(History history, ClickTimestampLog log) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(BATCH_BYTES);
+        CRC32 recordChecksum = new CRC32();
+        int clicks = 0;
+        int next = 0;
+        while (next < history.size) {
+            long windowStart = history.records[next] * RECORD_BYTES;
+            ((Buffer) window).clear();
+            // Fills the window unless the file ends first
+            int read;
+            do {
+                read = channel.read(window, windowStart + window.position());
+            } while (read > 0 && window.hasRemaining());
+            long windowEnd = windowStart + window.position();
+            if (windowEnd < windowStart + RECORD_BYTES) {
+                throw new IOException("Click journal " + file + " ends before an indexed record");
+            }
+            while (next < history.size && history.records[next] * RECORD_BYTES + RECORD_BYTES <= windowEnd) {
+                int recordStart = (int) (history.records[next] * RECORD_BYTES - windowStart);
+                if (isIntact(window, recordStart, recordChecksum)) {
+                    log.add(window.getLong(recordStart + 16));
+                    clicks++;
+                } else {
+                    getLogger().warning("Skipping a corrupt record in " + file);
+                }
+                next++;
+            }
+        }
+        return clicks;
+    }
+
+    long getCommitCount() {
+        return commits.get();
+    }
+
+    /**
+     * Commits what is still queued and closes the file.
+     */
+    public void close() {
+        sync();
+        writer.shutdown();
+        recoveries.shutdown();
+        lock.writeLock().lock();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close click journal " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(ClickJournal.class.getName());
+    }
+
+    private static final class Event {
+        final UUID key;
+        final int type;
+        final long timestamp;
+
+        Event(UUID key, int type, long timestamp) {
+            this.key = key;
+            this.type = type;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * Index entry of one history: the number of clicks cleared so far and the
+     * record numbers of the clicks since the last clear, in file order.
+     */
+    private static final class History {
+        int cleared;
+        long clearedAt;
+        long lastEvent;
+        long[] records = new long[4];
+        int size;
+
+        void add(long record) {
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size * 2);
+            }
+            records[size++] = record;
+        }
+
+        /** Records compaction keeps for this history. */
+        long liveRecords() {
+            return size + (cleared > 0 ? 2 : 0);
+        }
+    }
+}
@@ -0,0 +1,687 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Append-only log of click timestamps stored as primitive {@code long}s.
+ * <p>
+ * This is the only per-click record a UI keeps; display text such as
+ * "Click #N at timestamp" is derived from it when needed.
+ * <p>
+ * Entries live in fixed-size chunks, so growing the log never copies what is
+ * already stored and no {@link Long} is boxed per click. In off-heap mode the
+ * chunks are direct buffers, which keeps the history out of the session heap
+ * altogether.
+ * <p>
+ * With a retention limit the chunk table has a fixed capacity and always
+ * holds at least the newest {@code retention} entries. When it is full its
+ * oldest chunk is appended to a {@link SpillFile} and dropped from the table,
+ * so the complete history stays readable.
+ * <p>
+ * {@link #compact(boolean)} shrinks the log of an idle UI: the chunks in
+ * memory are packed into the varint deltas of the {@link BinaryExportStream},
+ * two or three bytes per click instead of eight, or appended to the spill
+ * file. Packed chunks stay readable; the next {@link #add(long)} unpacks them.
+ * <p>
+ * The log has a single writer and any number of readers, none of which lock.
+ * {@link #add(long)}, {@link #clear()}, {@link #compact(boolean)} and
+ * {@link #expand()} must not run concurrently with each other; in the UI
+ * the session lock already guarantees that. Every other method may be
+ * called from any thread.
+ */
+public class ClickTimestampLog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int MIN_CHUNK_SHIFT = 4;
+    private static final int SERIALIZATION_BUFFER_SIZE = 1024;
+
+    private static final AtomicIntegerFieldUpdater<Epoch> PUBLISHED_SIZE =
+            AtomicIntegerFieldUpdater.newUpdater(Epoch.class, "size");
+
+    private final boolean offHeap;
+    private final int retention;
+    private final String spillDirectory;
+    private final int chunkShift;
+    private transient volatile Epoch epoch;
+
+    public ClickTimestampLog() {
+        this(false);
+    }
+
+    /**
+     * @param offHeap {@code true} to keep the timestamps in direct buffers
+     *                outside the Java heap
+     */
+    public ClickTimestampLog(boolean offHeap) {
+        this(offHeap, 0, null);
+    }
+
+    /**
+     * @param offHeap        {@code true} to keep the timestamps in direct
+     *                       buffers outside the Java heap
+     * @param retention      minimum number of newest entries kept in memory,
+     *                       or {@code 0} to keep everything in memory
+     * @param spillDirectory directory for spilled entries, or {@code null} for
+     *                       the default temporary directory
+     */
+    public ClickTimestampLog(boolean offHeap, int retention, File spillDirectory) {
+        if (retention < 0) {
+            throw new IllegalArgumentException("Retention must not be negative: " + retention);
+        }
+        this.offHeap = offHeap;
+        this.retention = retention;
+        this.spillDirectory = spillDirectory == null ? null : spillDirectory.getPath();
+        this.chunkShift = chunkShiftFor(retention);
+        this.epoch = new Epoch(1, emptyTable());
+    }
+
+    /**
+     * Small retention limits use smaller chunks, at most a quarter of the
+     * limit, so the ring never keeps more than 1.5 times the entries asked for.
+     */
+    private static int chunkShiftFor(int retention) {
+        if (retention == 0) {
+            return CHUNK_SHIFT;
+        }
+        int shift = MIN_CHUNK_SHIFT;
+        while (shift < CHUNK_SHIFT && 1 << (shift + 3) <= retention) {
+            shift++;
+        }
+        return shift;
+    }
+
+    private ChunkTable emptyTable() {
+        if (retention == 0) {
+            return new ChunkTable(new Chunk[4], 0, null);
+        }
+        int chunkSize = 1 << chunkShift;
+        return new ChunkTable(new Chunk[(retention + chunkSize - 1) / chunkSize + 1], 0, null);
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Returns the minimum number of entries kept in memory, {@code 0} if the
+     * log never spills.
+     */
+    public int getRetention() {
+        return retention;
+    }
+
+    public int size() {
+        return epoch.size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the running click number of the entry at index 0. Numbers keep
+     * counting across {@link #clear()}, so entry {@code i} is click number
+     * {@code getFirstNumber() + i}.
+     */
+    public int getFirstNumber() {
+        return epoch.firstNumber;
+    }
+
+    /**
+     * Returns how many of the oldest entries live only in the spill file.
+     */
+    public int getSpilledCount() {
+        return epoch.table.firstChunk << chunkShift;
+    }
+
+    /**
+     * Appends a timestamp. Must only be called by the single writer.
+     */
+    public void add(long timestamp) {
+        Epoch current = epoch;
+        if (current.table.packed) {
+            expand();
+        }
+        int size = current.size;
+        int offset = size & chunkMask();
+        if (offset == 0) {
+            startChunk(current, size >>> chunkShift);
+        }
+        ChunkTable table = current.table;
+        table.chunks[(size >>> chunkShift) - table.firstChunk].set(offset, timestamp);
+        // Release ordering is enough to publish the entry to readers
+        PUBLISHED_SIZE.lazySet(current, size + 1);
+    }
+
+    /**
+     * Makes room for chunk {@code chunkIndex}. Readers only look at chunks
+     * below the published size, so a new chunk may be put into a free slot of
+     * the current table; anything else publishes a new table.
+     */
+    private void startChunk(Epoch current, int chunkIndex) {
+        ChunkTable table = current.table;
+        Chunk chunk = newChunk();
+        int slot = chunkIndex - table.firstChunk;
+        if (slot < table.chunks.length) {
+            table.chunks[slot] = chunk;
+        } else if (retention == 0) {
+            Chunk[] grown = Arrays.copyOf(table.chunks, table.chunks.length * 2);
+            grown[slot] = chunk;
+            // Chunks spilled by compact(true) stay in the spill file
+            current.table = new ChunkTable(grown, table.firstChunk, table.spillFile);
+        } else {
+            // The ring is full: spill its oldest chunk, then publish a table
+            // without it. Snapshots keep the old table and its chunks intact.
+            SpillFile file = table.spillFile;
+            if (file == null) {
+                file = SpillFile.create(spillDirectory == null ? null : new File(spillDirectory));
+            }
+            file.append(table.chunks[0].view(1 << chunkShift));
+            Chunk[] shifted = new Chunk[table.chunks.length];
+            System.arraycopy(table.chunks, 1, shifted, 0, shifted.length - 1);
+            shifted[shifted.length - 1] = chunk;
+            current.table = new ChunkTable(shifted, table.firstChunk + 1, file);
+        }
+    }
+
+    private Chunk newChunk() {
+        return offHeap ? new DirectChunk(chunkShift) : new HeapChunk(chunkShift);
+    }
+
+    /**
+     * Returns the entry at {@code index}. Threads other than the writer
+     * should prefer a {@link #snapshot()}, whose entries cannot be cleared
+     * away while it is read.
+     */
+    public long get(int index) {
+        Epoch current = epoch;
+        int size = current.size;
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ChunkTable table = current.table;
+        int chunkIndex = index >>> chunkShift;
+        if (chunkIndex < table.firstChunk) {
+            if (!table.spillFile.acquire()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", log was cleared");
+            }
+            try {
+                long[] value = new long[1];
+                table.spillFile.read(index, value, 0, 1);
+                return value[0];
+            } finally {
+                table.spillFile.release();
+            }
+        }
+        return table.chunks[chunkIndex - table.firstChunk].get(index & chunkMask());
+    }
+
+    /**
+     * Removes all timestamps by swapping in a fresh epoch, releasing the
+     * chunks and the spill file that held them. The next entry continues the
+     * click numbering. Must only be called by the single writer.
+     */
+    public void clear() {
+        Epoch old = epoch;
+        epoch = new Epoch(old.firstNumber + old.size, emptyTable());
+        if (old.table.spillFile != null) {
+            old.table.spillFile.release();
+        }
+    }
+
+    /**
+     * Advances the click numbering by {@code count} clicks that were cleared
+     * before they reached this log, such as those replayed from a journal.
+     * Must only be called by the single writer, while the log is empty.
+     */
+    public void skip(int count) {
+        Epoch current = epoch;
+        if (current.size != 0) {
+            throw new IllegalStateException("Only an empty log can skip click numbers");
+        }
+        epoch = new Epoch(current.firstNumber + count, current.table);
+    }
+
+    /**
+     * Releases most of the memory held by the entries in memory, for a UI
+     * that has not been used for a while. Full chunks are appended to the
+     * spill file with {@code toDisk}, and packed otherwise; a partly filled
+     * last chunk is always packed. Like a spill, this publishes a new table,
+     * so snapshots keep reading the chunks they started with.
+     * <p>
+     * Reading a packed chunk decodes it up to the entry read, so readers slow
+     * down but see the same entries. Must only be called by the single
+     * writer.
+     *
+     * @param toDisk {@code true} to move full chunks to the spill file
+     *               instead of packing them
+     * @return approximately how many bytes of chunks were released, {@code 0}
+     * if the log was empty or already compacted
+     */
+    public long compact(boolean toDisk) {
+        Epoch current = epoch;
+        int size = current.size;
+        ChunkTable table = current.table;
+        int inMemory = size - (table.firstChunk << chunkShift);
+        if (inMemory == 0 || table.packed) {
+            return 0;
+        }
+        int chunkSize = 1 << chunkShift;
+        int used = (inMemory + chunkSize - 1) >>> chunkShift;
+        int spilled = toDisk ? inMemory >>> chunkShift : 0;
+        SpillFile file = table.spillFile;
+        if (spilled > 0 && file == null) {
+            file = SpillFile.create(spillDirectory == null ? null : new File(spillDirectory));
+        }
+        for (int i = 0; i < spilled; i++) {
+            file.append(table.chunks[i].view(chunkSize));
+        }
+        long reclaimed = (long) spilled * chunkSize * SpillFile.ENTRY_BYTES;
+        Chunk[] chunks = new Chunk[table.chunks.length];
+        for (int i = spilled; i < used; i++) {
+            PackedChunk chunk = new PackedChunk(table.chunks[i], Math.min(chunkSize, inMemory - (i << chunkShift)));
+            chunks[i - spilled] = chunk;
+            reclaimed += (long) chunkSize * SpillFile.ENTRY_BYTES - chunk.getByteSize();
+        }
+        current.table = new ChunkTable(chunks, table.firstChunk + spilled, file, used > spilled);
+        return reclaimed;
+    }
+
+    /**
+     * Unpacks the chunks packed by {@link #compact(boolean)}, so that clicks
+     * can be appended and entries are read at full speed again. Spilled
+     * entries stay in the spill file. {@link #add(long)} calls this itself.
+     * Must only be called by the single writer.
+     *
+     * @return {@code true} if packed chunks were unpacked
+     */
+    public boolean expand() {
+        Epoch current = epoch;
+        ChunkTable table = current.table;
+        if (!table.packed) {
+            return false;
+        }
+        Chunk[] chunks = new Chunk[table.chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            Chunk chunk = table.chunks[i];
+            if (chunk instanceof PackedChunk) {
+                Chunk unpacked = newChunk();
+                ((PackedChunk) chunk).unpackTo(unpacked);
+                chunk = unpacked;
+            }
+            chunks[i] = chunk;
+        }
+        current.table = new ChunkTable(chunks, table.firstChunk, table.spillFile);
+        return true;
+    }
+
+    /**
+     * Tells whether entries are packed by {@link #compact(boolean)} and not
+     * yet unpacked.
+     */
+    public boolean isCompacted() {
+        return epoch.table.packed;
+    }
+
+    /**
+     * Returns a read-only view of the timestamps logged so far.
+     * <p>
+     * This takes no lock and copies nothing: the view is the published size
+     * plus the chunk table of the current epoch. Stored entries are never
+     * modified, tables are replaced rather than updated where a view could see
+     * it, and {@link #clear()} swaps in a new epoch instead of wiping the old
+     * one, so the view stays valid while the writer carries on. A view that
+     * includes spilled entries keeps the spill file alive until it is
+     * {@linkplain Snapshot#close() closed}.
+     */
+    public Snapshot snapshot() {
+        while (true) {
+            Epoch current = epoch;
+            // Size first: a table read afterwards covers at least that many entries
+            int size = current.size;
+            ChunkTable table = current.table;
+            if (table.firstChunk == 0 || table.spillFile.acquire()) {
+                return new Snapshot(table, size, chunkShift);
+            }
+            // Cleared in the meantime, so the spill file is gone; the next
+            // read sees the new epoch
+        }
+    }
+
+    /**
+     * Copies the timestamps into a new primitive array.
+     */
+    public long[] toArray() {
+        try (Snapshot snapshot = snapshot()) {
+            long[] copy = new long[snapshot.size()];
+            snapshot.read(0, copy, 0, copy.length);
+            return copy;
+        }
+    }
+
+    private int chunkMask() {
+        return (1 << chunkShift) - 1;
+    }
+
+    /**
+     * Writes the timestamps in the format of the {@link BinaryExportStream}:
+     * deltas between neighbouring clicks as varints, which takes two or three
+     * bytes per click instead of eight.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(epoch.firstNumber);
+        try (InputStream encoded = new BinaryExportStream(snapshot(), SERIALIZATION_BUFFER_SIZE)) {
+            byte[] buffer = new byte[SERIALIZATION_BUFFER_SIZE];
+            int read;
+            while ((read = encoded.read(buffer, 0, buffer.length)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        epoch = new Epoch(in.readInt(), emptyTable());
+        // Chunks are refilled and spilled just as if the clicks were new
+        BinaryExportStream.decode(in, this);
+    }
+
+    /**
+     * Everything logged since the last {@link #clear()}. The writer publishes
+     * each entry by advancing {@code size} after storing it.
+     */
+    private static final class Epoch {
+        final int firstNumber;
+        volatile ChunkTable table;
+        volatile int size;
+
+        Epoch(int firstNumber, ChunkTable table) {
+            this.firstNumber = firstNumber;
+            this.table = table;
+        }
+    }
+
+    /**
+     * Chunks in log order, the first one holding chunk number
+     * {@code firstChunk}. Chunks before it are in {@code spillFile}. With
+     * {@code packed} some chunks are {@link PackedChunk}s, which cannot be
+     * written to.
+     */
+    private static final class ChunkTable {
+        final Chunk[] chunks;
+        final int firstChunk;
+        final SpillFile spillFile;
+        final boolean packed;
+
+        ChunkTable(Chunk[] chunks, int firstChunk, SpillFile spillFile) {
+            this(chunks, firstChunk, spillFile, false);
+        }
+
+        ChunkTable(Chunk[] chunks, int firstChunk, SpillFile spillFile, boolean packed) {
+            this.chunks = chunks;
+            this.firstChunk = firstChunk;
+            this.spillFile = spillFile;
+            this.packed = packed;
+        }
+    }
+
+    /**
+     * Immutable view of the first {@link #size()} timestamps of a log.
+     * <p>
+     * Spilled entries are read through a memory mapping of the spill file, so
+     * exporting a long history copies them straight from the page cache
+     * instead of issuing a read per batch. A view is meant for one reader
+     * thread at a time.
+     */
+    public static final class Snapshot implements Closeable {
+        private final ChunkTable table;
+        private final int size;
+        private final int chunkShift;
+        private MappedTimestamps spilledEntries;
+        private boolean closed;
+
+        private Snapshot(ChunkTable table, int size, int chunkShift) {
+            this.table = table;
+            this.size = size;
+            this.chunkShift = chunkShift;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            int chunkIndex = index >>> chunkShift;
+            if (chunkIndex < table.firstChunk) {
+                return spilled().get(index);
+            }
+            return table.chunks[chunkIndex - table.firstChunk].get(index & ((1 << chunkShift) - 1));
+        }
+
+        /**
+         * Copies {@code length} timestamps starting at {@code index} into
+         * {@code target}.
+         */
+        public void read(int index, long[] target, int offset, int length) {
+            if (index < 0 || length < 0 || index + length > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + size);
+            }
+            int spilled = table.firstChunk << chunkShift;
+            if (index < spilled) {
+                int count = Math.min(length, spilled - index);
+                spilled().read(index, target, offset, count);
+                index += count;
+                offset += count;
+                length -= count;
+            }
+            int chunkSize = 1 << chunkShift;
+            while (length > 0) {
+                int inChunk = index & (chunkSize - 1);
+                int count = Math.min(length, chunkSize - inChunk);
+                table.chunks[(index >>> chunkShift) - table.firstChunk].copyTo(inChunk, target, offset, count);
+                index += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        private MappedTimestamps spilled() {
+            if (spilledEntries == null) {
+                long count = Math.min((long) table.firstChunk << chunkShift, size);
+                spilledEntries = new MappedTimestamps(table.spillFile, count, MappedTimestamps.DEFAULT_WINDOW_ENTRIES);
+            }
+            return spilledEntries;
+        }
+
+        /**
+         * Releases the spill file this view was reading from, if any.
+         */
+        @Override
+        public void close() {
+            if (!closed && table.firstChunk > 0) {
+                table.spillFile.release();
+            }
+            closed = true;
+        }
+    }
+
+    private abstract static class Chunk {
+        abstract long get(int offset);
+
+        abstract void set(int offset, long value);
+
+        abstract void copyTo(int offset, long[] target, int targetOffset, int length);
+
+        /** Returns the first {@code length} entries as a buffer. */
+        abstract LongBuffer view(int length);
+    }
+
+    private static final class HeapChunk extends Chunk {
+        private final long[] values;
+
+        HeapChunk(int shift) {
+            values = new long[1 << shift];
+        }
+
+        @Override
+        long get(int offset) {
+            return values[offset];
+        }
+
+        @Override
+        void set(int offset, long value) {
+            values[offset] = value;
+        }
+
+        @Override
+        void copyTo(int offset, long[] target, int targetOffset, int length) {
+            System.arraycopy(values, offset, target, targetOffset, length);
+        }
+
+        @Override
+        LongBuffer view(int length) {
+            return LongBuffer.wrap(values, 0, length);
+        }
+    }
+
+    private static final class DirectChunk extends Chunk {
+        private final LongBuffer values;
+
+        DirectChunk(int shift) {
+            values = ByteBuffer.allocateDirect((1 << shift) * 8)
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+        }
+
+        @Override
+        long get(int offset) {
+            return values.get(offset);
+        }
+
+        @Override
+        void set(int offset, long value) {
+            values.put(offset, value);
+        }
+
+        @Override
+        void copyTo(int offset, long[] target, int targetOffset, int length) {
+            LongBuffer source = values.duplicate();
+            // Buffer casts keep the Java 8 method signatures
+            ((Buffer) source).position(offset);
+            source.get(target, targetOffset, length);
+        }
+
+        @Override
+        LongBuffer view(int length) {
+            LongBuffer source = values.duplicate();
+            ((Buffer) source).limit(length);
+            return source;
+        }
+    }
+
+    /**
+     * Read-only chunk holding its entries as the zigzag varint deltas of the
+     * {@link BinaryExportStream}, the first one relative to 0. Entries are
+     * found by decoding from the start of the chunk.
+     */
+    private static final class PackedChunk extends Chunk {
+        private final byte[] bytes;
+        private final int length;
+
+        PackedChunk(Chunk chunk, int length) {
+            long[] values = new long[length];
+            chunk.copyTo(0, values, 0, length);
+            byte[] buffer = new byte[length * BinaryExportStream.MAX_ROW_BYTES];
+            int size = 0;
+            long previous = 0;
+            for (long value : values) {
+                size = BinaryExportStream.writeDelta(value - previous, buffer, size);
+                previous = value;
+            }
+            this.bytes = Arrays.copyOf(buffer, size);
+            this.length = length;
+        }
+
+        int getByteSize() {
+            return bytes.length;
+        }
+
+        @Override
+        long get(int offset) {
+            return decode(offset, null, 0, 1);
+        }
+
+        @Override
+        void set(int offset, long value) {
+            throw new UnsupportedOperationException("Packed chunks are read-only");
+        }
+
+        @Override
+        void copyTo(int offset, long[] target, int targetOffset, int length) {
+            decode(offset, target, targetOffset, length);
+        }
+
+        @Override
+        LongBuffer view(int length) {
+            long[] values = new long[length];
+            decode(0, values, 0, length);
+            return LongBuffer.wrap(values);
+        }
+
+        void unpackTo(Chunk target) {
+            long[] values = new long[length];
+            decode(0, values, 0, length);
+            for (int i = 0; i < length; i++) {
+                target.set(i, values[i]);
+            }
+        }
+
+        /**
+         * Decodes the entries up to {@code offset + length}, copies those from
+         * {@code offset} on into {@code target} unless it is {@code null},
+         * and returns the last one.
+         */
+        private long decode(int offset, long[] target, int targetOffset, int length) {
+            if (offset < 0 || length < 0 || offset + length > this.length) {
+                throw new IndexOutOfBoundsException("Offset: " + offset + ", Length: " + length
+                        + ", Size: " + this.length);
+            }
+            int position = 0;
+            long value = 0;
+            for (int i = 0; i < offset + length; i++) {
+                long zigzag = 0;
+                byte b;
+                int shift = 0;
+                do {
+                    b = bytes[position++];
+                    zigzag |= (long) (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += (zigzag >>> 1) ^ -(zigzag & 1);
+                if (target != null && i >= offset) {
+                    target[targetOffset + i - offset] = value;
+                }
+            }
+            return value;
+        }
+    }
+}
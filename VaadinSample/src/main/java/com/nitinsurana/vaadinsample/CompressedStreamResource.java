@@ -0,0 +1,109 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.DownloadStream;
+import com.vaadin.server.StreamResource;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+
+/**
+ * Stream resource that is gzip-compressed on the fly for clients that accept
+ * it.
+ * <p>
+ * {@link DownloadStream} copies its parameters into response headers and
+ * never sets a content length, so the download is sent with chunked transfer
+ * encoding once the first buffer has been flushed. The buffer size set here
+ * is used for that copy as well as for compression, which keeps the time to
+ * the first bytes independent of the document length.
+ */
+public class CompressedStreamResource extends StreamResource {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String CONTENT_ENCODING = "Content-Encoding";
+    static final String VARY = "Vary";
+
+    private final int compressionLevel;
+
+    /**
+     * @param compressionLevel gzip level from 1 to 9, or {@code 0} to always
+     *                         send the resource uncompressed
+     * @param bufferSize       bytes per compression and download buffer
+     */
+    public CompressedStreamResource(StreamSource source, String filename, int compressionLevel,
+                                    int bufferSize) {
+        super(source, filename);
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        setBufferSize(bufferSize);
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    @Override
+    public DownloadStream getStream() {
+        DownloadStream stream = super.getStream();
+        if (stream == null || compressionLevel == 0) {
+            return stream;
+        }
+        // The same URL may be served compressed or not
+        stream.setParameter(VARY, "Accept-Encoding");
+        VaadinRequest request = VaadinService.getCurrentRequest();
+        if (request != null && acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            stream.setStream(new GzipEncodingInputStream(stream.getStream(), compressionLevel, getBufferSize()));
+            stream.setParameter(CONTENT_ENCODING, "gzip");
+        }
+        return stream;
+    }
+
+    /**
+     * Tells whether an {@code Accept-Encoding} header allows gzip: listed as
+     * {@code gzip}, {@code x-gzip} or {@code *} without {@code q=0}.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        return accepts(acceptEncoding, "gzip", "x-gzip");
+    }
+
+    /**
+     * Tells whether an {@code Accept-Encoding} header allows one of the
+     * content codings {@code names}: listed, or covered by {@code *}, without
+     * {@code q=0}.
+     */
+    static boolean accepts(String acceptEncoding, String... names) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            boolean acceptable = true;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    acceptable = !isZero(parameter.substring(2).trim());
+                }
+            }
+            for (String accepted : names) {
+                if (name.equalsIgnoreCase(accepted)) {
+                    return acceptable;
+                }
+            }
+            if (name.equals("*")) {
+                wildcard = acceptable;
+            }
+        }
+        return wildcard != null && wildcard;
+    }
+
+    private static boolean isZero(String qvalue) {
+        try {
+            return Double.parseDouble(qvalue) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
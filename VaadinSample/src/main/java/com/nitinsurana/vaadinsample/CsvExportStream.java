@@ -0,0 +1,74 @@
+package com.nitinsurana.vaadinsample;
+
+/**
+ * Produces the click history CSV on demand while it is being read.
+ * <p>
+ * The bytes are identical to building the whole document in memory:
+ * <pre>
+ * Click Number,Timestamp
+ * 1,"2024-01-31 13:45:07"
+ * </pre>
+ */
+public class CsvExportStream extends RowExportStream {
+
+    static final String HEADER = "Click Number,Timestamp\n";
+    static final int DEFAULT_BUFFER_SIZE = RowExportStream.DEFAULT_BUFFER_SIZE;
+
+    // Upper bound for one encoded row: click number, quotes, separators and a
+    // 19 character timestamp even if every character needs three UTF-8 bytes
+    static final int MAX_ROW_BYTES = 128;
+
+    public CsvExportStream(ClickTimestampLog.Snapshot timestamps) {
+        this(timestamps, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvExportStream(ClickTimestampLog.Snapshot timestamps, int bufferSize) {
+        super(timestamps, bufferSize, MAX_ROW_BYTES);
+    }
+
+    /**
+     * Opens the export of {@code timestamps}. Histories of at least
+     * {@code parallelThreshold} rows are encoded by a
+     * {@link ParallelCsvExportStream} if there is more than one core to
+     * encode them on.
+     *
+     * @param parallelThreshold rows from which to encode in parallel, or
+     *                          {@code 0} to always encode on the reading
+     *                          thread
+     */
+    public static HistoryExportStream open(ClickTimestampLog.Snapshot timestamps, int bufferSize,
+                                           int parallelThreshold) {
+        if (parallelThreshold > 0 && timestamps.size() >= parallelThreshold
+                && Runtime.getRuntime().availableProcessors() > 1) {
+            return new ParallelCsvExportStream(timestamps);
+        }
+        return new CsvExportStream(timestamps, bufferSize);
+    }
+
+    @Override
+    protected int writeHeader(byte[] buffer, int offset) {
+        return writeAscii(HEADER, buffer, offset);
+    }
+
+    @Override
+    protected int writeRow(TimestampFormatter formatter, int row, long timestamp, byte[] buffer, int offset) {
+        return encodeRow(formatter, row + 1, timestamp, buffer, offset);
+    }
+
+    /**
+     * Encodes one row into {@code buffer} at {@code offset}, which must have
+     * room for {@link #MAX_ROW_BYTES}.
+     *
+     * @return the offset after the row
+     */
+    static int encodeRow(TimestampFormatter formatter, int clickNumber, long timestamp, byte[] buffer, int offset) {
+        offset = writeDecimal(clickNumber, buffer, offset);
+        buffer[offset++] = ',';
+        buffer[offset++] = '"';
+        // Formatted timestamps never contain quotes, so nothing to escape
+        offset = formatter.formatDateTime(timestamp, buffer, offset);
+        buffer[offset++] = '"';
+        buffer[offset++] = '\n';
+        return offset;
+    }
+}
@@ -0,0 +1,36 @@
+package com.nitinsurana.vaadinsample;
+
+/**
+ * The original export format; see {@link CsvExportStream}.
+ */
+public class CsvExporter implements HistoryExporter {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String NAME = "CSV";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "csv";
+    }
+
+    @Override
+    public String getMimeType() {
+        return "text/csv";
+    }
+
+    @Override
+    public boolean isCompressible() {
+        return true;
+    }
+
+    @Override
+    public HistoryExportStream open(ClickTimestampLog.Snapshot timestamps, int bufferSize) {
+        return CsvExportStream.open(timestamps, bufferSize, AppConfig.getCsvExportParallelThreshold());
+    }
+}
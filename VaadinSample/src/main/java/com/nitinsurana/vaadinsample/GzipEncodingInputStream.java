@@ -0,0 +1,142 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip-compresses another stream while it is being read.
+ * <p>
+ * {@link java.util.zip.GZIPOutputStream} needs the data pushed into it, but a
+ * download is pulled from an {@link InputStream}. This stream deflates one
+ * source buffer at a time instead, so the compressed document is never held
+ * in memory. The first block is sync-flushed, so the first bytes are ready
+ * after one source buffer instead of after the deflater's internal window.
+ */
+public class GzipEncodingInputStream extends InputStream {
+
+    static final int MIN_BUFFER_SIZE = 64;
+
+    // Magic, deflate, no flags, no modification time, no extra flags, unknown OS
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int TRAILER_BYTES = 8;
+
+    private final InputStream source;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] input;
+    private final byte[] output;
+    private int position;
+    private int limit;
+    private int flushMode = Deflater.SYNC_FLUSH;
+    private boolean headerWritten;
+    private boolean sourceDone;
+    private boolean trailerWritten;
+
+    /**
+     * @param level      compression level from {@link Deflater#BEST_SPEED} to
+     *                   {@link Deflater#BEST_COMPRESSION}
+     * @param bufferSize size of both the source and the compressed buffer
+     */
+    public GzipEncodingInputStream(InputStream source, int level, int bufferSize) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9: " + level);
+        }
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer must hold at least " + MIN_BUFFER_SIZE + " bytes");
+        }
+        this.source = source;
+        this.deflater = new Deflater(level, true);
+        this.input = new byte[bufferSize];
+        this.output = new byte[bufferSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return output[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        int count = Math.min(len, limit - position);
+        System.arraycopy(output, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        source.close();
+    }
+
+    /**
+     * Produces the next piece of the gzip member into the drained buffer.
+     *
+     * @return {@code false} once the trailer has been read
+     */
+    private boolean fill() throws IOException {
+        position = 0;
+        limit = 0;
+        if (!headerWritten) {
+            System.arraycopy(HEADER, 0, output, 0, HEADER.length);
+            limit = HEADER.length;
+            headerWritten = true;
+            return true;
+        }
+        while (!deflater.finished()) {
+            if (deflater.needsInput() && !sourceDone) {
+                int read = source.read(input, 0, input.length);
+                if (read < 0) {
+                    sourceDone = true;
+                    deflater.finish();
+                } else if (read > 0) {
+                    crc.update(input, 0, read);
+                    deflater.setInput(input, 0, read);
+                }
+            }
+            int deflated = deflater.deflate(output, 0, output.length, flushMode);
+            if (deflated < output.length) {
+                // A sync flush is complete once it leaves room in the buffer
+                flushMode = Deflater.NO_FLUSH;
+            }
+            if (deflated > 0) {
+                limit = deflated;
+                return true;
+            }
+        }
+        if (trailerWritten) {
+            return false;
+        }
+        writeIntLE((int) crc.getValue(), 0);
+        writeIntLE((int) deflater.getBytesRead(), 4);
+        limit = TRAILER_BYTES;
+        trailerWritten = true;
+        return true;
+    }
+
+    private void writeIntLE(int value, int offset) {
+        output[offset] = (byte) value;
+        output[offset + 1] = (byte) (value >>> 8);
+        output[offset + 2] = (byte) (value >>> 16);
+        output[offset + 3] = (byte) (value >>> 24);
+    }
+}
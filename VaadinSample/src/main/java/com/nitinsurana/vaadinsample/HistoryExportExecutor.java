@@ -0,0 +1,169 @@
+package com.nitinsurana.vaadinsample;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs asynchronous history exports of all UIs of a node, off the request
+ * threads.
+ * <p>
+ * At most {@code maxRunning} exports are generated at a time and at most
+ * {@code maxQueued} more wait for their turn. Further exports are refused
+ * right away instead of piling up, so a burst of exports of long histories
+ * cannot exhaust the node's threads, disk or memory.
+ * <p>
+ * Exports run on virtual threads when the runtime provides them, otherwise
+ * on {@code maxRunning} daemon threads. Either way a semaphore admits only
+ * {@code maxRunning} of them to generate at once.
+ */
+public final class HistoryExportExecutor {
+
+    private static HistoryExportExecutor shared;
+
+    private final int maxRunning;
+    private final int maxQueued;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final AtomicInteger runningJobs = new AtomicInteger();
+
+    /**
+     * @param maxRunning            exports generated at the same time
+     * @param maxQueued             exports waiting beyond those
+     * @param preferVirtualThreads  run exports on virtual threads if the
+     *                              runtime supports them
+     */
+    HistoryExportExecutor(int maxRunning, int maxQueued, boolean preferVirtualThreads) {
+        if (maxRunning < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Invalid export limits: " + maxRunning + " running, "
+                    + maxQueued + " queued");
+        }
+        this.maxRunning = maxRunning;
+        this.maxQueued = maxQueued;
+        ExecutorService virtual = preferVirtualThreads ? newVirtualThreadExecutor() : null;
+        virtualThreads = virtual != null;
+        executor = virtualThreads ? virtual : Executors.newFixedThreadPool(maxRunning, new ThreadFactory() {
+            private final AtomicInteger threadNumbers = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "history-export-" + threadNumbers.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        admitted = new Semaphore(maxRunning + maxQueued);
+        running = new Semaphore(maxRunning);
+    }
+
+    /**
+     * Returns the executor shared by all UIs of the node, created with the
+     * limits configured for the first caller's service.
+     */
+    public static synchronized HistoryExportExecutor getShared() {
+        if (shared == null) {
+            shared = new HistoryExportExecutor(AppConfig.getCsvExportMaxRunning(), AppConfig.getCsvExportMaxQueued(),
+                    true);
+        }
+        return shared;
+    }
+
+    /**
+     * Returns {@code Executors.newVirtualThreadPerTaskExecutor()} on runtimes
+     * that have it, {@code null} otherwise. Looked up reflectively since the
+     * application is compiled for Java 8.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Missing before Java 21, or a disabled preview feature
+            return null;
+        }
+    }
+
+    /**
+     * Schedules {@code job} unless the node already runs and queues as many
+     * exports as allowed. Never blocks.
+     *
+     * @return {@code false} if the job was refused
+     */
+    public boolean submit(final Runnable job) {
+        if (!admitted.tryAcquire()) {
+            return false;
+        }
+        AppMetrics.EXPORT_JOBS.add(1);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        running.acquireUninterruptibly();
+                        runningJobs.incrementAndGet();
+                        try {
+                            job.run();
+                        } finally {
+                            runningJobs.decrementAndGet();
+                            running.release();
+                        }
+                    } catch (RuntimeException e) {
+                        getLogger().log(Level.SEVERE, "History export failed", e);
+                    } finally {
+                        AppMetrics.EXPORT_JOBS.add(-1);
+                        admitted.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down
+            AppMetrics.EXPORT_JOBS.add(-1);
+            admitted.release();
+            return false;
+        }
+        return true;
+    }
+
+    public int getMaxRunning() {
+        return maxRunning;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Returns the number of exports being generated right now.
+     */
+    public int getRunningJobs() {
+        return runningJobs.get();
+    }
+
+    /**
+     * Returns the number of exports running or waiting.
+     */
+    public int getPendingJobs() {
+        return maxRunning + maxQueued - admitted.availablePermits();
+    }
+
+    /**
+     * Stops accepting exports; those already submitted still run.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(HistoryExportExecutor.class.getName());
+    }
+}
@@ -0,0 +1,126 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a history export to a temporary file, reporting its progress on
+ * the way. Runs on a {@link HistoryExportExecutor} thread.
+ * <p>
+ * The file belongs to the job until
+ * {@link Listener#completed(HistoryExportJob, File)} has been called; after
+ * that the listener is responsible for deleting it. {@link #discard()}
+ * deletes it either way.
+ */
+public class HistoryExportJob implements Runnable {
+
+    /** Minimum time between two progress reports. */
+    static final long PROGRESS_MILLIS = 250;
+
+    /**
+     * Receives the outcome of a job, on the job's thread.
+     */
+    public interface Listener {
+
+        /**
+         * @param done fraction of the rows written so far, from 0 to 1
+         */
+        void progress(HistoryExportJob job, float done);
+
+        void completed(HistoryExportJob job, File file);
+
+        void failed(HistoryExportJob job, Exception e);
+    }
+
+    private final HistoryExportStream export;
+    private final String fileSuffix;
+    private final int bufferSize;
+    private final File directory;
+    private final Listener listener;
+    private volatile File file;
+    private volatile boolean discarded;
+
+    /**
+     * @param export     the export to write, closed by the job
+     * @param fileSuffix suffix of the temporary file, such as {@code .csv}
+     * @param bufferSize bytes written at a time
+     * @param directory  directory of the temporary file, or {@code null} for
+     *                   the system temporary directory
+     */
+    public HistoryExportJob(HistoryExportStream export, String fileSuffix, int bufferSize, File directory,
+                            Listener listener) {
+        this.export = export;
+        this.fileSuffix = fileSuffix;
+        this.bufferSize = bufferSize;
+        this.directory = directory;
+        this.listener = listener;
+    }
+
+    public int getRows() {
+        return export.getRows();
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        try {
+            file = File.createTempFile("click_history_", fileSuffix, directory);
+            write(file);
+        } catch (IOException | RuntimeException e) {
+            deleteFile();
+            if (!discarded) {
+                listener.failed(this, e);
+            }
+            return;
+        } finally {
+            export.close();
+        }
+        if (discarded) {
+            deleteFile();
+            return;
+        }
+        AppMetrics.EXPORT_JOB_SECONDS.recordSince(start);
+        listener.completed(this, file);
+    }
+
+    private void write(File target) throws IOException {
+        long progressNanos = TimeUnit.MILLISECONDS.toNanos(PROGRESS_MILLIS);
+        int rows = export.getRows();
+        byte[] chunk = new byte[bufferSize];
+        try (OutputStream out = new FileOutputStream(target)) {
+            long lastReport = System.nanoTime();
+            int read;
+            while (!discarded && (read = export.read(chunk, 0, chunk.length)) > 0) {
+                out.write(chunk, 0, read);
+                long now = System.nanoTime();
+                if (now - lastReport >= progressNanos) {
+                    listener.progress(this, rows == 0 ? 1f : (float) export.getEncodedRows() / rows);
+                    lastReport = now;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the job if it is still running and deletes its file, also if it
+     * has already completed.
+     */
+    public void discard() {
+        discarded = true;
+        deleteFile();
+    }
+
+    public boolean isDiscarded() {
+        return discarded;
+    }
+
+    private void deleteFile() {
+        File written = file;
+        if (written != null && written.exists() && !written.delete()) {
+            written.deleteOnExit();
+        }
+    }
+}
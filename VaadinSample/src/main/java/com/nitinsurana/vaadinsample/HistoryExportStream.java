@@ -0,0 +1,33 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.InputStream;
+
+/**
+ * Export of a history snapshot, produced while it is being read. Closing
+ * the stream releases the snapshot, which may keep a spill file open.
+ */
+public abstract class HistoryExportStream extends InputStream {
+
+    protected final ClickTimestampLog.Snapshot timestamps;
+
+    protected HistoryExportStream(ClickTimestampLog.Snapshot timestamps) {
+        this.timestamps = timestamps;
+    }
+
+    /**
+     * Returns the number of rows being exported.
+     */
+    public int getRows() {
+        return timestamps.size();
+    }
+
+    /**
+     * Returns the number of rows encoded so far, for progress reporting.
+     */
+    public abstract int getEncodedRows();
+
+    @Override
+    public void close() {
+        timestamps.close();
+    }
+}
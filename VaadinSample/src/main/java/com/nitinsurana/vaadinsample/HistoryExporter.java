@@ -0,0 +1,41 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.Serializable;
+
+/**
+ * A download format of the click history.
+ * <p>
+ * Exporters are looked up with {@link java.util.ServiceLoader}, so further
+ * formats can be added by listing them in
+ * {@code META-INF/services/com.nitinsurana.vaadinsample.HistoryExporter}.
+ * They are shared by all UIs and must be stateless.
+ */
+public interface HistoryExporter extends Serializable {
+
+    /**
+     * Returns the name shown in the format selection, unique among the
+     * exporters.
+     */
+    String getName();
+
+    /**
+     * Returns the file name extension, without the dot.
+     */
+    String getFileExtension();
+
+    String getMimeType();
+
+    /**
+     * Tells whether gzip shrinks the format enough to compress it on the
+     * fly for browsers that accept it.
+     */
+    boolean isCompressible();
+
+    /**
+     * Opens the export of {@code timestamps}, which is closed with the
+     * returned stream. Rows are encoded while the stream is read.
+     *
+     * @param bufferSize bytes encoded at a time
+     */
+    HistoryExportStream open(ClickTimestampLog.Snapshot timestamps, int bufferSize);
+}
@@ -0,0 +1,69 @@
+package com.nitinsurana.vaadinsample;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.logging.Logger;
+
+/**
+ * The available {@link HistoryExporter}s, loaded once with
+ * {@link ServiceLoader} in the order they are listed.
+ */
+public final class HistoryExporters {
+
+    private static final List<HistoryExporter> ALL = load();
+
+    private HistoryExporters() {
+    }
+
+    private static List<HistoryExporter> load() {
+        List<HistoryExporter> exporters = new ArrayList<>();
+        for (HistoryExporter exporter : ServiceLoader.load(HistoryExporter.class,
+                HistoryExporters.class.getClassLoader())) {
+            if (find(exporters, exporter.getName()) != null) {
+                getLogger().warning("Ignoring " + exporter.getClass().getName() + ", another exporter is named "
+                        + exporter.getName());
+                continue;
+            }
+            exporters.add(exporter);
+        }
+        if (find(exporters, CsvExporter.NAME) == null) {
+            // Export CSV keeps working even if the service file is missing
+            exporters.add(0, new CsvExporter());
+        }
+        return Collections.unmodifiableList(exporters);
+    }
+
+    private static HistoryExporter find(List<HistoryExporter> exporters, String name) {
+        for (HistoryExporter exporter : exporters) {
+            if (exporter.getName().equalsIgnoreCase(name)) {
+                return exporter;
+            }
+        }
+        return null;
+    }
+
+    public static List<HistoryExporter> getAll() {
+        return ALL;
+    }
+
+    /**
+     * Returns the exporter with the given name, ignoring case, or
+     * {@code null} if there is none.
+     */
+    public static HistoryExporter get(String name) {
+        return find(ALL, name);
+    }
+
+    /**
+     * Returns the CSV exporter, selected until the user picks another format.
+     */
+    public static HistoryExporter getDefault() {
+        return get(CsvExporter.NAME);
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(HistoryExporters.class.getName());
+    }
+}
@@ -0,0 +1,150 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with HDR-style log-linear buckets over nanoseconds.
+ * <p>
+ * Each power of two is split into {@value #SUB_BUCKETS} equal buckets, so any
+ * recorded value is known to within 12.5% from 1 ns up to about 36 minutes;
+ * larger values land in the last bucket. Recording is one
+ * {@link LongAdder#increment()} plus one {@link LongAdder#add(long)}, with no
+ * locks or allocation.
+ * <p>
+ * Prometheus gets the usual cumulative buckets at fixed boundaries in seconds,
+ * summed from the fine buckets at write time.
+ */
+public final class LatencyHistogram extends MetricsRegistry.Metric {
+
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 41;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) << SUB_BUCKET_BITS;
+
+    private static final String[] EXPORTED_BOUNDS_SECONDS = {
+        "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1",
+        "0.25", "0.5", "1", "2.5", "5", "10"
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram(String name, String help) {
+        super(name, help);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a latency in nanoseconds; negative values count as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[bucketIndex(value)].increment();
+        sumNanos.add(value);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a
+     * {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded values,
+     * or {@code 0} if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = snapshotCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return highestValue(counts.length - 1);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        return (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+    }
+
+    static long highestValue(int index) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : lowestValue(index + 1) - 1;
+    }
+
+    private long[] snapshotCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    String getType() {
+        return "histogram";
+    }
+
+    @Override
+    void writeSamples(Writer out) throws IOException {
+        long[] counts = snapshotCounts();
+        long cumulative = 0;
+        int index = 0;
+        for (String boundSeconds : EXPORTED_BOUNDS_SECONDS) {
+            long boundNanos = Math.round(Double.parseDouble(boundSeconds) * 1e9);
+            while (index < counts.length && highestValue(index) <= boundNanos) {
+                cumulative += counts[index++];
+            }
+            out.write(getName() + "_bucket{le=\"" + boundSeconds + "\"} " + cumulative + "\n");
+        }
+        while (index < counts.length) {
+            cumulative += counts[index++];
+        }
+        out.write(getName() + "_bucket{le=\"+Inf\"} " + cumulative + "\n");
+        out.write(getName() + "_sum " + getSumNanos() / 1e9 + "\n");
+        out.write(getName() + "_count " + cumulative + "\n");
+    }
+}
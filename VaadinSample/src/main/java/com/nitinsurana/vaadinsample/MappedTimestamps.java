@@ -0,0 +1,83 @@
+package com.nitinsurana.vaadinsample;
+
+import java.nio.Buffer;
+import java.nio.LongBuffer;
+
+/**
+ * Read-only view of the first entries of a {@link SpillFile}, memory-mapped
+ * in fixed-size windows that are mapped on first access.
+ * <p>
+ * Reads are copies out of the page cache: no system call, buffer or object
+ * per read once a window is mapped. Not thread-safe.
+ */
+final class MappedTimestamps {
+
+    /** Entries per window: 128 MiB of timestamps. */
+    static final int DEFAULT_WINDOW_ENTRIES = 1 << 24;
+
+    private final SpillFile file;
+    private final long size;
+    private final int windowShift;
+    private final LongBuffer[] windows;
+
+    /**
+     * @param size          number of entries to expose, at most the entries
+     *                      written to {@code file}
+     * @param windowEntries entries per window, a power of two
+     */
+    MappedTimestamps(SpillFile file, long size, int windowEntries) {
+        if (Integer.bitCount(windowEntries) != 1) {
+            throw new IllegalArgumentException("Window entries must be a power of two: " + windowEntries);
+        }
+        this.file = file;
+        this.size = size;
+        this.windowShift = Integer.numberOfTrailingZeros(windowEntries);
+        this.windows = new LongBuffer[(int) ((size + windowEntries - 1) >>> windowShift)];
+    }
+
+    long size() {
+        return size;
+    }
+
+    long get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return window((int) (index >>> windowShift)).get((int) (index & windowMask()));
+    }
+
+    /**
+     * Copies {@code length} entries starting at {@code index} into
+     * {@code target}.
+     */
+    void read(long index, long[] target, int offset, int length) {
+        if (index < 0 || length < 0 || index + length > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + size);
+        }
+        while (length > 0) {
+            LongBuffer window = window((int) (index >>> windowShift));
+            int inWindow = (int) (index & windowMask());
+            int count = Math.min(length, window.capacity() - inWindow);
+            // Buffer cast keeps the Java 8 method signature
+            ((Buffer) window).position(inWindow);
+            window.get(target, offset, count);
+            index += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private LongBuffer window(int number) {
+        LongBuffer window = windows[number];
+        if (window == null) {
+            long start = (long) number << windowShift;
+            window = file.map(start, (int) Math.min(size - start, 1L << windowShift));
+            windows[number] = window;
+        }
+        return window;
+    }
+
+    private long windowMask() {
+        return (1L << windowShift) - 1;
+    }
+}
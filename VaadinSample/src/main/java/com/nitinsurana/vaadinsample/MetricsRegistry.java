@@ -0,0 +1,150 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of application metrics, written out in the Prometheus text
+ * exposition format.
+ * <p>
+ * Instruments are registered once, typically from static fields of
+ * {@link AppMetrics}, and updated from request threads without locking:
+ * counters, gauges and histogram buckets are {@link LongAdder}s, so concurrent
+ * updates do not contend on a shared word.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    /**
+     * Returns the registry exposed by {@link MetricsServlet}.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name, String help) {
+        return register(new Counter(name, help));
+    }
+
+    public Gauge gauge(String name, String help) {
+        return register(new Gauge(name, help));
+    }
+
+    public LatencyHistogram histogram(String name, String help) {
+        return register(new LatencyHistogram(name, help));
+    }
+
+    private synchronized <M extends Metric> M register(M metric) {
+        for (Metric existing : metrics) {
+            if (existing.getName().equals(metric.getName())) {
+                throw new IllegalArgumentException("Metric already registered: " + metric.getName());
+            }
+        }
+        metrics.add(metric);
+        return metric;
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text format, version 0.0.4.
+     */
+    public void write(Writer out) throws IOException {
+        for (Metric metric : metrics) {
+            out.write("# HELP " + metric.getName() + " " + metric.getHelp() + "\n");
+            out.write("# TYPE " + metric.getName() + " " + metric.getType() + "\n");
+            metric.writeSamples(out);
+        }
+    }
+
+    /**
+     * A named metric with its help text.
+     */
+    public abstract static class Metric {
+        private final String name;
+        private final String help;
+
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        abstract String getType();
+
+        abstract void writeSamples(Writer out) throws IOException;
+    }
+
+    /**
+     * Monotonically increasing count.
+     */
+    public static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name, String help) {
+            super(name, help);
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        String getType() {
+            return "counter";
+        }
+
+        @Override
+        void writeSamples(Writer out) throws IOException {
+            out.write(getName() + " " + get() + "\n");
+        }
+    }
+
+    /**
+     * Current level of something that goes up and down.
+     */
+    public static final class Gauge extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        Gauge(String name, String help) {
+            super(name, help);
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        String getType() {
+            return "gauge";
+        }
+
+        @Override
+        void writeSamples(Writer out) throws IOException {
+            out.write(getName() + " " + get() + "\n");
+        }
+    }
+}
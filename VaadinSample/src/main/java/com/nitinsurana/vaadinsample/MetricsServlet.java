@@ -0,0 +1,33 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.IOException;
+import java.io.Writer;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the default {@link MetricsRegistry} in the Prometheus text format.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Override
+    public void init() throws ServletException {
+        // Scrapes should list every metric, even before the first UI is opened
+        AppMetrics.ensureRegistered();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-cache");
+        Writer out = response.getWriter();
+        MetricsRegistry.getDefault().write(out);
+        out.flush();
+    }
+}
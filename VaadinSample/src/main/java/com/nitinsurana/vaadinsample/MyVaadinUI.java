@@ -1,65 +1,120 @@
 package com.nitinsurana.vaadinsample;
 
+import com.vaadin.annotations.Push;
+import com.vaadin.data.Property;
+import com.vaadin.server.DownloadStream;
 import com.vaadin.server.FileDownloader;
+import com.vaadin.server.Resource;
 import com.vaadin.server.StreamResource;
 import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
 import com.vaadin.ui.Button;
 import com.vaadin.ui.Button.ClickEvent;
+import com.vaadin.ui.Grid;
 import com.vaadin.ui.HorizontalLayout;
 import com.vaadin.ui.Label;
+import com.vaadin.ui.Link;
+import com.vaadin.ui.NativeSelect;
 import com.vaadin.ui.Panel;
+import com.vaadin.ui.ProgressBar;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 import com.vaadin.ui.VerticalLayout;
-import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import java.io.ObjectInputStream;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.Cookie;
 
 /**
  * The Application's "main" class
  */
+@Push
 public class MyVaadinUI extends UI {
 
+    private static final long serialVersionUID = 1L;
+
     private static final String STATS_PANEL_WIDTH = "400px";
     private static final String HISTORY_PANEL_WIDTH = "500px";
     private static final String HISTORY_PANEL_HEIGHT = "300px";
-    
-    // ThreadLocal to ensure thread-safety for SimpleDateFormat in multi-user web application
-    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
-        @Override
-        protected SimpleDateFormat initialValue() {
-            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        }
-    };
-    
-    // ThreadLocal for filename date format (YYYYMMDD_HHMM)
-    private static final ThreadLocal<SimpleDateFormat> FILENAME_DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
-        @Override
-        protected SimpleDateFormat initialValue() {
-            return new SimpleDateFormat("yyyyMMdd_HHmm");
-        }
-    };
+    static final String HISTORY_COOKIE = "click-history-key";
+    // The journal forgets a history when its cookie would have expired
+    private static final int HISTORY_COOKIE_MAX_AGE = (int) TimeUnit.MILLISECONDS.toSeconds(ClickJournal.RETENTION_MILLIS);
+    // Only names the download URL of a lazy bootstrap; each download creates its own export
+    private static final StreamResource EXPORT_DOWNLOAD = new StreamResource(null, "click_history");
     
     private int clickCount = 0;
     private long sessionStartTime;
-    private long lastClickTime;
-    private Label totalClicksLabel;
-    private Label sessionStartLabel;
-    private Label timeSinceClickLabel;
-    private Label sessionDurationLabel;
-    private VerticalLayout historyLayout;
-    private List<String> clickHistory;
-    private List<Long> clickTimestamps;
+    private volatile long lastClickTime;
+    private StatisticsModel statistics;
+    private ClickHistoryContainer historyContainer;
+    private ClickTimestampLog clickTimestamps;
+    // Not serialized: a restored UI keeps counting node-wide clicks only
+    private transient ClickAnalytics.SessionActivity sessionActivity;
+    // Not serialized: a restored UI stops journaling until the browser returns
+    private transient ClickJournal journal;
+    // Not serialized: the gauges count the UIs of this node
+    private transient boolean countedLive;
+    private UUID historyKey;
+    private final boolean asyncExport;
+    private final int clickBatchMillis;
+    private final boolean lazyBootstrap;
+    private Panel historyPanel;
+    private boolean liveStatistics;
+    private long idleCompactionMillis;
+    private boolean idleCompactionToDisk;
+    private Button clickButton;
+    // Only used when exports are generated asynchronously
+    private HistoryExporter exporter = HistoryExporters.getDefault();
+    private Button exportButton;
+    private ProgressBar exportProgress;
+    private Label exportStatus;
+    private Link exportLink;
+    private transient HistoryExportJob exportJob;
+    private File exportFile;
+
+    public MyVaadinUI() {
+        this(AppConfig.isAsyncCsvExport(), AppConfig.getClickBatchMillis(), AppConfig.isLazyBootstrap());
+    }
+
+    MyVaadinUI(boolean asyncExport, int clickBatchMillis) {
+        this(asyncExport, clickBatchMillis, false);
+    }
+
+    /**
+     * @param asyncExport      write exports to a file in the background
+     *                         instead of generating them while they are
+     *                         downloaded
+     * @param clickBatchMillis milliseconds the browser collects clicks
+     *                         before sending them, or {@code 0} to send each
+     *                         click
+     * @param lazyBootstrap    build the history grid, the export resource
+     *                         and the export progress only once they are
+     *                         needed, instead of in {@link #init}
+     */
+    MyVaadinUI(boolean asyncExport, int clickBatchMillis, boolean lazyBootstrap) {
+        this.asyncExport = asyncExport;
+        this.clickBatchMillis = clickBatchMillis;
+        this.lazyBootstrap = lazyBootstrap;
+    }
 
     @Override
     protected void init(VaadinRequest request) {
+        long initStart = System.nanoTime();
         sessionStartTime = System.currentTimeMillis();
         lastClickTime = sessionStartTime;
-        clickHistory = new ArrayList<>();
-        clickTimestamps = new ArrayList<>();
+        clickTimestamps = newClickLog();
+        idleCompactionMillis = AppConfig.getIdleCompactionSeconds() * 1000L;
+        idleCompactionToDisk = AppConfig.isIdleCompactionToDisk();
         
         final VerticalLayout layout = new VerticalLayout();
         layout.setMargin(true);
@@ -73,10 +128,12 @@ public class MyVaadinUI extends UI {
         statsLayout.setMargin(true);
         statsLayout.setSpacing(true);
         
-        totalClicksLabel = new Label();
-        sessionStartLabel = new Label();
-        timeSinceClickLabel = new Label();
-        sessionDurationLabel = new Label();
+        final Label totalClicksLabel = new Label();
+        final Label sessionStartLabel = new Label();
+        final Label timeSinceClickLabel = new Label();
+        final Label sessionDurationLabel = new Label();
+        statistics = new StatisticsModel(totalClicksLabel, sessionStartLabel, timeSinceClickLabel,
+                sessionDurationLabel);
         
         updateStatistics();
         
@@ -88,13 +145,12 @@ public class MyVaadinUI extends UI {
         layout.addComponent(statsPanel);
 
         // Create click history panel
-        final Panel historyPanel = new Panel("Click History Log");
+        historyPanel = new Panel("Click History Log");
         historyPanel.setWidth(HISTORY_PANEL_WIDTH);
         historyPanel.setHeight(HISTORY_PANEL_HEIGHT);
-        historyLayout = new VerticalLayout();
-        historyLayout.setMargin(true);
-        historyLayout.setSpacing(true);
-        historyPanel.setContent(historyLayout);
+        if (!lazyBootstrap || !clickTimestamps.isEmpty()) {
+            showHistoryGrid();
+        }
         layout.addComponent(historyPanel);
 
         final HorizontalLayout buttonLayout = new HorizontalLayout();
@@ -104,99 +160,648 @@ public class MyVaadinUI extends UI {
         button.addClickListener(new Button.ClickListener() {
             @Override
             public void buttonClick(ClickEvent event) {
+                long start = System.nanoTime();
+                rehydrateHistory();
                 clickCount++;
                 updateStatistics();
+                long previousClickTime = clickCount > 1 ? lastClickTime : 0;
                 lastClickTime = System.currentTimeMillis();
                 addClickToHistory();
+                ClickAnalytics.getShared().recordClick(sessionActivity, lastClickTime, previousClickTime);
+                AppMetrics.CLICKS.increment();
+                AppMetrics.CLICK_SECONDS.recordSince(start);
             }
         });
+        if (clickBatchMillis > 0) {
+            // Clicks made in the browser arrive here in batches instead
+            new ClickBatcher(clickBatchMillis, new ClickBatcher.BatchListener() {
+                @Override
+                public void clicksReceived(long[] timestamps) {
+                    applyClicks(timestamps);
+                }
+            }).extend(button);
+        }
         buttonLayout.addComponent(button);
+        clickButton = button;
 
         final Button clearHistoryButton = new Button("Clear History");
         clearHistoryButton.addClickListener(new Button.ClickListener() {
             @Override
             public void buttonClick(ClickEvent event) {
-                clickHistory.clear();
-                synchronized (clickTimestamps) {
-                    clickTimestamps.clear();
+                long start = System.nanoTime();
+                int cleared = clickTimestamps.size();
+                clickTimestamps.clear();
+                if (journal != null) {
+                    journal.append(historyKey, ClickJournal.CLEAR, System.currentTimeMillis());
+                }
+                if (historyContainer != null) {
+                    historyContainer.fireCleared();
                 }
-                historyLayout.removeAllComponents();
+                AppMetrics.HISTORY_ENTRIES.add(-cleared);
+                AppMetrics.CLEARS.increment();
+                AppMetrics.CLEAR_SECONDS.recordSince(start);
             }
         });
         buttonLayout.addComponent(clearHistoryButton);
 
-        // Export CSV button with FileDownloader
-        final Button exportCsvButton = new Button("Export CSV");
-        final FileDownloader fileDownloader = new FileDownloader(createCsvResource());
-        fileDownloader.extend(exportCsvButton);
-        // Update resource before each download to reflect current time and data
-        exportCsvButton.addClickListener(new Button.ClickListener() {
+        final NativeSelect formatSelect = new NativeSelect();
+        for (HistoryExporter available : HistoryExporters.getAll()) {
+            formatSelect.addItem(available.getName());
+        }
+        formatSelect.setNullSelectionAllowed(false);
+        formatSelect.setValue(exporter.getName());
+        formatSelect.setImmediate(true);
+        buttonLayout.addComponent(formatSelect);
+
+        exportButton = new Button(exportCaption());
+        final FileDownloader fileDownloader;
+        if (asyncExport) {
+            fileDownloader = null;
+            // Generated in the background; the file is offered as a link
+            exportButton.addClickListener(new Button.ClickListener() {
+                @Override
+                public void buttonClick(ClickEvent event) {
+                    startAsyncExport();
+                }
+            });
+        } else if (lazyBootstrap) {
+            // The export is created when the browser requests the download,
+            // so the current time, data and format need no click listeners
+            fileDownloader = null;
+            new FileDownloader(EXPORT_DOWNLOAD) {
+                @Override
+                public Resource getFileDownloadResource() {
+                    return createExportResource();
+                }
+            }.extend(exportButton);
+        } else {
+            // Export button with FileDownloader
+            fileDownloader = new FileDownloader(createExportResource());
+            fileDownloader.extend(exportButton);
+            // Update resource before each download to reflect current time and data
+            exportButton.addClickListener(new Button.ClickListener() {
+                @Override
+                public void buttonClick(ClickEvent event) {
+                    fileDownloader.setFileDownloadResource(createExportResource());
+                }
+            });
+        }
+        formatSelect.addValueChangeListener(new Property.ValueChangeListener() {
             @Override
-            public void buttonClick(ClickEvent event) {
-                fileDownloader.setFileDownloadResource(createCsvResource());
+            public void valueChange(Property.ValueChangeEvent event) {
+                exporter = HistoryExporters.get((String) event.getProperty().getValue());
+                exportButton.setCaption(exportCaption());
+                if (fileDownloader != null) {
+                    // The next click already downloads in the new format
+                    fileDownloader.setFileDownloadResource(createExportResource());
+                }
             }
         });
-        buttonLayout.addComponent(exportCsvButton);
+        buttonLayout.addComponent(exportButton);
 
         layout.addComponent(buttonLayout);
+
+        if (asyncExport && !lazyBootstrap) {
+            showExportProgress();
+        }
+
+        File journalDirectory = AppConfig.getJournalDirectory();
+        if (journalDirectory != null) {
+            recoverHistory(request, ClickJournal.forDirectory(journalDirectory, AppConfig.getJournalCommitMillis()));
+        }
+
+        // Live statistics can only reach the browser when push is enabled
+        if (getSession() != null && getPushConfiguration().getPushMode().isEnabled()) {
+            liveStatistics = true;
+            StatisticsTicker.getShared().register(this);
+        }
+        AppMetrics.UI_INITS.increment();
+        AppMetrics.UI_INIT_SECONDS.recordSince(initStart);
+    }
+    
+    @Override
+    public void attach() {
+        super.attach();
+        AppMetrics.LIVE_UIS.add(1);
+        countedLive = true;
+        sessionActivity = ClickAnalytics.getShared().attach(getSession());
+    }
+    
+    @Override
+    public void detach() {
+        super.detach();
+        if (countedLive) {
+            AppMetrics.LIVE_UIS.add(-1);
+            countedLive = false;
+        }
+        StatisticsTicker.getShared().unregister(this);
+        if (sessionActivity != null) {
+            ClickAnalytics.getShared().release(sessionActivity);
+            sessionActivity = null;
+        }
+        if (exportJob != null) {
+            exportJob.discard();
+            exportJob = null;
+        }
+        deleteExportFile();
+        // Deletes the spill file once no export is reading it any more, and
+        // drops a compacted history along with it
+        if (clickTimestamps != null) {
+            int released = clickTimestamps.size();
+            clickTimestamps.clear();
+            AppMetrics.HISTORY_ENTRIES.add(-released);
+        }
     }
     
+    /**
+     * A UI restored with its session, after a container restart or from a
+     * replicated session, is not attached again. It registers with this
+     * node's gauges and statistics ticker here instead, so that
+     * {@link #detach()} takes away only what was added.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (clickTimestamps != null) {
+            AppMetrics.HISTORY_ENTRIES.add(clickTimestamps.size());
+        }
+        if (getSession() != null) {
+            AppMetrics.LIVE_UIS.add(1);
+            countedLive = true;
+            // The session is not locked here, so the push mode is not read again
+            if (liveStatistics) {
+                StatisticsTicker.getShared().register(this);
+            }
+        }
+    }
+
+    /**
+     * Heartbeats keep arriving while the browser shows an idle UI, with the
+     * session locked, so they also check whether the history is due for
+     * compaction.
+     */
+    @Override
+    public void setLastHeartbeatTimestamp(long lastHeartbeat) {
+        super.setLastHeartbeatTimestamp(lastHeartbeat);
+        compactIfIdle(lastHeartbeat);
+    }
+
+    /**
+     * Compacts the click history once there has been no click for the
+     * configured idle period. The history stays readable by the grid and
+     * exports; the next click restores it.
+     *
+     * @return the bytes released, {@code 0} if the UI is not idle or its
+     * history is already compacted
+     */
+    long compactIfIdle(long now) {
+        if (clickTimestamps == null || idleCompactionMillis <= 0 || now - lastClickTime < idleCompactionMillis) {
+            return 0;
+        }
+        long reclaimed = clickTimestamps.compact(idleCompactionToDisk);
+        if (reclaimed > 0) {
+            AppMetrics.IDLE_COMPACTIONS.increment();
+            AppMetrics.IDLE_RECLAIMED_BYTES.add(reclaimed);
+        }
+        return reclaimed;
+    }
+
+    private void rehydrateHistory() {
+        if (clickTimestamps.expand()) {
+            AppMetrics.HISTORY_REHYDRATIONS.increment();
+        }
+    }
+
+    private static ClickTimestampLog newClickLog() {
+        return new ClickTimestampLog(AppConfig.isOffHeapHistory(),
+                AppConfig.getHistoryRetention(), AppConfig.getHistorySpillDirectory());
+    }
+
+    /**
+     * Rebuilds the history of a returning browser from the journal. Browsers
+     * are recognized by a cookie, which outlives both the session and a node
+     * restart; a new browser gets a new key. The cookie belongs to the
+     * browser, so all its tabs share one history: the journal interleaves
+     * their clicks, and Clear History in one tab also clears what the others
+     * get back.
+     * <p>
+     * The journal is read on one of its recovery threads instead of with the
+     * session locked, and the history is shown once it has been read. Clicks
+     * made meanwhile are journaled only then, so that the recovery cannot
+     * see them as well.
+     *
+     * @return completes once the recovered history has been handed to the
+     * session
+     */
+    CompletableFuture<Void> recoverHistory(VaadinRequest request, final ClickJournal journal) {
+        historyKey = readHistoryKey(request);
+        if (historyKey == null) {
+            historyKey = UUID.randomUUID();
+            VaadinResponse response = VaadinService.getCurrentResponse();
+            if (response != null) {
+                Cookie cookie = new Cookie(HISTORY_COOKIE, historyKey.toString());
+                String contextPath = request == null ? "" : request.getContextPath();
+                cookie.setPath(contextPath == null || contextPath.isEmpty() ? "/" : contextPath);
+                cookie.setMaxAge(HISTORY_COOKIE_MAX_AGE);
+                cookie.setHttpOnly(true);
+                response.addCookie(cookie);
+            }
+            this.journal = journal;
+            return CompletableFuture.completedFuture(null);
+        }
+        final ClickTimestampLog recovered = new ClickTimestampLog();
+        return journal.recoverAsync(historyKey, recovered).thenAccept(new Consumer<Integer>() {
+            @Override
+            public void accept(final Integer clicks) {
+                accessIfAttached(new Runnable() {
+                    @Override
+                    public void run() {
+                        showRecoveredHistory(journal, recovered, clicks);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Puts a recovered history in front of the clicks made while it was read
+     * and starts journaling. If the history was cleared meanwhile, the
+     * recovered clicks only count towards the total.
+     */
+    private void showRecoveredHistory(ClickJournal journal, ClickTimestampLog recovered, int recoveredClicks) {
+        long[] newer = clickTimestamps.toArray();
+        clickCount += recoveredClicks;
+        if (clickTimestamps.getFirstNumber() != 1) {
+            journal.append(historyKey, ClickJournal.CLEAR, System.currentTimeMillis());
+        } else {
+            ClickTimestampLog merged = newClickLog();
+            merged.skip(recovered.getFirstNumber() - 1);
+            for (long timestamp : recovered.toArray()) {
+                merged.add(timestamp);
+            }
+            for (long timestamp : newer) {
+                merged.add(timestamp);
+            }
+            ClickTimestampLog previous = clickTimestamps;
+            clickTimestamps = merged;
+            // Deletes its spill file once no export is reading it any more
+            previous.clear();
+            if (newer.length == 0 && !recovered.isEmpty()) {
+                lastClickTime = recovered.get(recovered.size() - 1);
+            }
+            AppMetrics.HISTORY_ENTRIES.add(recovered.size());
+            // The grid is built anew, over the merged log
+            if (historyPanel != null && (historyContainer != null || !merged.isEmpty())) {
+                showHistoryGrid();
+            }
+        }
+        for (long timestamp : newer) {
+            journal.append(historyKey, ClickJournal.CLICK, timestamp);
+        }
+        this.journal = journal;
+        updateStatistics();
+    }
+
+    private static UUID readHistoryKey(VaadinRequest request) {
+        Cookie[] cookies = request == null ? null : request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (HISTORY_COOKIE.equals(cookie.getName())) {
+                try {
+                    return UUID.fromString(cookie.getValue());
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
     private void updateStatistics() {
         long currentTime = System.currentTimeMillis();
         long sessionDuration = (currentTime - sessionStartTime) / 1000;
         long timeSinceLastClick = (currentTime - lastClickTime) / 1000;
         
-        totalClicksLabel.setValue("Total Clicks: " + clickCount);
-        sessionStartLabel.setValue("Session Start Time: " + DATE_FORMAT.get().format(new Date(sessionStartTime)));
-        timeSinceClickLabel.setValue("Time Since Last Click: " + timeSinceLastClick + " seconds");
-        sessionDurationLabel.setValue("Session Duration: " + sessionDuration + " seconds");
+        // Only labels whose values changed are updated and sent to the browser
+        statistics.showClicks(clickCount);
+        statistics.showSessionStart(sessionStartTime);
+        statistics.showTimes(sessionDuration, timeSinceLastClick);
+    }
+
+    long getSessionStartTime() {
+        return sessionStartTime;
+    }
+
+    long getLastClickTime() {
+        return lastClickTime;
+    }
+
+    StatisticsModel getStatistics() {
+        return statistics;
+    }
+
+    ClickTimestampLog getClickTimestamps() {
+        return clickTimestamps;
+    }
+
+    UUID getHistoryKey() {
+        return historyKey;
+    }
+
+    /**
+     * Fills the history panel with the grid of the click history.
+     */
+    private void showHistoryGrid() {
+        // Grid only loads the rows in view; entries are rendered from the log
+        historyContainer = new ClickHistoryContainer(clickTimestamps);
+        final Grid historyGrid = new Grid(historyContainer);
+        historyGrid.setSizeFull();
+        historyGrid.setHeaderVisible(false);
+        historyGrid.setSelectionMode(Grid.SelectionMode.NONE);
+        historyPanel.setContent(historyGrid);
+    }
+
+    /**
+     * Tells the history grid about {@code count} new entries. With a lazy
+     * bootstrap the grid is built for the first entry instead.
+     */
+    private void showEntriesAdded(int count) {
+        if (historyContainer != null) {
+            historyContainer.fireEntriesAdded(count);
+        } else if (historyPanel != null) {
+            showHistoryGrid();
+        }
+    }
+
+    /**
+     * Adds the progress, status and download link of asynchronous exports
+     * below the buttons.
+     */
+    private void showExportProgress() {
+        final HorizontalLayout exportLayout = new HorizontalLayout();
+        exportLayout.setSpacing(true);
+        exportProgress = new ProgressBar(0f);
+        exportProgress.setVisible(false);
+        exportStatus = new Label();
+        exportLink = new Link();
+        exportLink.setVisible(false);
+        exportLayout.addComponent(exportProgress);
+        exportLayout.addComponent(exportStatus);
+        exportLayout.addComponent(exportLink);
+        ((VerticalLayout) getContent()).addComponent(exportLayout);
     }
     
     private void addClickToHistory() {
-        String timestamp = DATE_FORMAT.get().format(new Date(lastClickTime));
-        String historyEntry = "Click #" + clickCount + " at " + timestamp;
-        clickHistory.add(historyEntry);
-        synchronized (clickTimestamps) {
-            clickTimestamps.add(lastClickTime);
+        logClick(lastClickTime);
+        AppMetrics.HISTORY_ENTRIES.add(1);
+        showEntriesAdded(1);
+    }
+
+    private void logClick(long timestamp) {
+        // The timestamp is the only record kept; the history text is rendered
+        // by the container when a row is shown. Listeners run under the
+        // session lock, which makes this the log's single writer.
+        clickTimestamps.add(timestamp);
+        if (journal != null) {
+            // Only queued; the journal's writer commits it in the background
+            journal.append(historyKey, ClickJournal.CLICK, timestamp);
         }
-        
-        Label historyLabel = new Label(historyEntry);
-        historyLayout.addComponent(historyLabel);
+    }
+
+    /**
+     * Applies a batch of clicks collected by the browser in one pass: the
+     * history and the counters take every click, while the grid and the
+     * statistics are updated once for the whole batch.
+     *
+     * @param timestamps times of the clicks, oldest first
+     */
+    void applyClicks(long[] timestamps) {
+        long start = System.nanoTime();
+        rehydrateHistory();
+        int previousCount = clickCount;
+        clickCount += timestamps.length;
+        // Like a single click, the batch shows the time since the click before it
+        updateStatistics();
+        ClickAnalytics analytics = ClickAnalytics.getShared();
+        for (int i = 0; i < timestamps.length; i++) {
+            long previousClickTime = previousCount + i > 0 ? lastClickTime : 0;
+            lastClickTime = timestamps[i];
+            logClick(timestamps[i]);
+            analytics.recordClick(sessionActivity, timestamps[i], previousClickTime);
+        }
+        AppMetrics.HISTORY_ENTRIES.add(timestamps.length);
+        showEntriesAdded(timestamps.length);
+        AppMetrics.CLICKS.add(timestamps.length);
+        AppMetrics.CLICK_BATCHES.increment();
+        AppMetrics.CLICK_BATCH_SECONDS.recordSince(start);
     }
     
-    private StreamResource createCsvResource() {
-        StreamResource resource = new StreamResource(new StreamResource.StreamSource() {
+    private String exportCaption() {
+        return "Export " + exporter.getName();
+    }
+
+    /**
+     * Returns the download of the history in the selected format.
+     */
+    private StreamResource createExportResource() {
+        long start = System.nanoTime();
+        final HistoryExporter format = exporter;
+        final int bufferSize = AppConfig.getCsvExportBufferSize();
+        // Compressed on the fly when the browser accepts gzip
+        StreamResource resource = new CompressedStreamResource(new StreamResource.StreamSource() {
             @Override
             public InputStream getStream() {
-                StringBuilder csv = new StringBuilder();
-                csv.append("Click Number,Timestamp\n");
-                
-                // Take a defensive copy to avoid concurrent modification while iterating
-                List<Long> timestampsSnapshot;
-                synchronized (clickTimestamps) {
-                    timestampsSnapshot = new ArrayList<>(clickTimestamps);
-                }
+                long streamStart = System.nanoTime();
+                // Rows are encoded while the response is written; the snapshot
+                // stays valid even if clicks or a clear happen meanwhile
+                InputStream stream = format.open(clickTimestamps.snapshot(), bufferSize);
+                AppMetrics.EXPORTS.increment();
+                AppMetrics.EXPORT_STREAM_SECONDS.recordSince(streamStart);
+                return stream;
+            }
+        }, generateExportFilename(format), gzipLevel(format), bufferSize);
+        resource.setMIMEType(format.getMimeType());
+        AppMetrics.EXPORT_RESOURCE_SECONDS.recordSince(start);
+        return resource;
+    }
 
-                for (int i = 0; i < timestampsSnapshot.size(); i++) {
-                    int clickNumber = i + 1;
-                    String timestamp = DATE_FORMAT.get().format(new Date(timestampsSnapshot.get(i)));
-                    csv.append(clickNumber)
-                       .append(",")
-                       .append("\"")
-                       .append(timestamp.replace("\"", "\"\""))
-                       .append("\"")
-                       .append("\n");
+    private static int gzipLevel(HistoryExporter format) {
+        return format.isCompressible() ? AppConfig.getCsvExportGzipLevel() : 0;
+    }
+    
+    /**
+     * Schedules an export of the history as of now. Progress and the finished
+     * file reach the browser through push; the request thread only takes the
+     * snapshot. Refused while the node runs as many exports as allowed.
+     */
+    void startAsyncExport() {
+        if (exportJob != null) {
+            return;
+        }
+        if (exportStatus == null) {
+            showExportProgress();
+        }
+        final HistoryExporter format = exporter;
+        final String filename = generateExportFilename(format);
+        final int gzipLevel = gzipLevel(format);
+        final int bufferSize = AppConfig.getCsvExportBufferSize();
+        HistoryExportStream export = format.open(clickTimestamps.snapshot(), bufferSize);
+        HistoryExportJob job = new HistoryExportJob(export, "." + format.getFileExtension(), bufferSize,
+                AppConfig.getHistorySpillDirectory(),
+                new HistoryExportJob.Listener() {
+                    @Override
+                    public void progress(final HistoryExportJob job, final float done) {
+                        accessIfAttached(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (job == exportJob) {
+                                    exportProgress.setValue(done);
+                                }
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void completed(final HistoryExportJob job, final File file) {
+                        accessIfAttached(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (job != exportJob) {
+                                    job.discard();
+                                    return;
+                                }
+                                exportJob = null;
+                                exportFile = file;
+                                exportProgress.setVisible(false);
+                                exportStatus.setValue("");
+                                exportLink.setCaption("Download " + filename);
+                                exportLink.setResource(createExportFileResource(file, filename,
+                                        format.getMimeType(), gzipLevel, bufferSize));
+                                exportLink.setVisible(true);
+                                exportButton.setEnabled(true);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void failed(final HistoryExportJob job, Exception e) {
+                        getLogger().log(Level.WARNING, "Could not export the click history", e);
+                        accessIfAttached(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (job == exportJob) {
+                                    exportJob = null;
+                                    exportProgress.setVisible(false);
+                                    exportStatus.setValue("The export failed, please try again");
+                                    exportButton.setEnabled(true);
+                                }
+                            }
+                        });
+                    }
+                });
+        if (!HistoryExportExecutor.getShared().submit(job)) {
+            export.close();
+            exportStatus.setValue("The server is busy with other exports, please try again in a moment");
+            AppMetrics.EXPORTS_REJECTED.increment();
+            return;
+        }
+        exportJob = job;
+        AppMetrics.EXPORTS.increment();
+        deleteExportFile();
+        exportLink.setVisible(false);
+        exportProgress.setValue(0f);
+        exportProgress.setVisible(true);
+        exportStatus.setValue("Exporting " + job.getRows() + " clicks");
+        exportButton.setEnabled(false);
+    }
+
+    /**
+     * Runs {@code task} with the session locked unless the UI has been closed,
+     * in which case {@link #detach()} has already discarded the export.
+     */
+    private void accessIfAttached(Runnable task) {
+        try {
+            access(task);
+        } catch (UIDetachedException e) {
+            // Nothing left to update
+        }
+    }
+
+    private StreamResource createExportFileResource(final File file, final String filename, String mimeType,
+                                                    int gzipLevel, int bufferSize) {
+        StreamResource resource = new CompressedStreamResource(new StreamResource.StreamSource() {
+            @Override
+            public InputStream getStream() {
+                try {
+                    return new FileInputStream(file);
+                } catch (FileNotFoundException e) {
+                    // Replaced by a newer export in the meantime
+                    return null;
+                }
+            }
+        }, filename, gzipLevel, bufferSize) {
+            @Override
+            public DownloadStream getStream() {
+                DownloadStream stream = super.getStream();
+                if (stream != null) {
+                    // A link would otherwise show text formats in the browser
+                    stream.setParameter(DownloadStream.CONTENT_DISPOSITION,
+                            "attachment; " + DownloadStream.getContentDispositionFilename(filename));
                 }
-                
-                return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+                return stream;
             }
-        }, generateCsvFilename());
-        resource.setMIMEType("text/csv");
+        };
+        resource.setMIMEType(mimeType);
         return resource;
     }
-    
-    private String generateCsvFilename() {
-        String dateTime = FILENAME_DATE_FORMAT.get().format(new Date());
-        return "click_history_" + dateTime + ".csv";
+
+    private void deleteExportFile() {
+        if (exportFile != null) {
+            if (!exportFile.delete() && exportFile.exists()) {
+                exportFile.deleteOnExit();
+            }
+            exportFile = null;
+        }
+    }
+
+    HistoryExporter getExporter() {
+        return exporter;
+    }
+
+    Button getClickButton() {
+        return clickButton;
+    }
+
+    Button getExportButton() {
+        return exportButton;
+    }
+
+    ProgressBar getExportProgress() {
+        return exportProgress;
+    }
+
+    Label getExportStatus() {
+        return exportStatus;
+    }
+
+    Link getExportLink() {
+        return exportLink;
+    }
+
+    File getExportFile() {
+        return exportFile;
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(MyVaadinUI.class.getName());
+    }
+
+    private static String generateExportFilename(HistoryExporter format) {
+        return TimestampFormatter.get()
+                .formatFileStamp(System.currentTimeMillis(), new StringBuilder("click_history_"))
+                .append('.')
+                .append(format.getFileExtension())
+                .toString();
     }
 }
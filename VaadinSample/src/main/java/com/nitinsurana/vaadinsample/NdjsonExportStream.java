@@ -0,0 +1,58 @@
+package com.nitinsurana.vaadinsample;
+
+/**
+ * Produces the click history as newline-delimited JSON while it is being
+ * read. Each click is one object with its number, the same local time as the
+ * CSV export and the epoch milliseconds:
+ * <pre>
+ * {"click":1,"timestamp":"2024-01-31 13:45:07","epochMillis":1706708707000}
+ * </pre>
+ */
+public class NdjsonExportStream extends RowExportStream {
+
+    private static final byte[] CLICK = ascii("{\"click\":");
+    private static final byte[] TIMESTAMP = ascii(",\"timestamp\":\"");
+    private static final byte[] EPOCH_MILLIS = ascii("\",\"epochMillis\":");
+
+    // Keys, a 10 digit click number, a timestamp whose characters may each
+    // need three UTF-8 bytes and a signed 19 digit epoch value
+    static final int MAX_ROW_BYTES = 160;
+
+    public NdjsonExportStream(ClickTimestampLog.Snapshot timestamps) {
+        this(timestamps, DEFAULT_BUFFER_SIZE);
+    }
+
+    public NdjsonExportStream(ClickTimestampLog.Snapshot timestamps, int bufferSize) {
+        super(timestamps, bufferSize, MAX_ROW_BYTES);
+    }
+
+    private static byte[] ascii(String value) {
+        byte[] bytes = new byte[value.length()];
+        writeAscii(value, bytes, 0);
+        return bytes;
+    }
+
+    @Override
+    protected int writeHeader(byte[] buffer, int offset) {
+        return offset;
+    }
+
+    @Override
+    protected int writeRow(TimestampFormatter formatter, int row, long timestamp, byte[] buffer, int offset) {
+        offset = write(CLICK, buffer, offset);
+        offset = writeDecimal(row + 1, buffer, offset);
+        offset = write(TIMESTAMP, buffer, offset);
+        // Formatted timestamps contain neither quotes nor backslashes
+        offset = formatter.formatDateTime(timestamp, buffer, offset);
+        offset = write(EPOCH_MILLIS, buffer, offset);
+        offset = writeDecimal(timestamp, buffer, offset);
+        buffer[offset++] = '}';
+        buffer[offset++] = '\n';
+        return offset;
+    }
+
+    private static int write(byte[] bytes, byte[] buffer, int offset) {
+        System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+        return offset + bytes.length;
+    }
+}
@@ -0,0 +1,37 @@
+package com.nitinsurana.vaadinsample;
+
+/**
+ * Newline-delimited JSON, one object per click; see
+ * {@link NdjsonExportStream}.
+ */
+public class NdjsonExporter implements HistoryExporter {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String NAME = "NDJSON";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "ndjson";
+    }
+
+    @Override
+    public String getMimeType() {
+        return "application/x-ndjson";
+    }
+
+    @Override
+    public boolean isCompressible() {
+        return true;
+    }
+
+    @Override
+    public HistoryExportStream open(ClickTimestampLog.Snapshot timestamps, int bufferSize) {
+        return new NdjsonExportStream(timestamps, bufferSize);
+    }
+}
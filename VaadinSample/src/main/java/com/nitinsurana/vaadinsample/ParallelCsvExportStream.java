@@ -0,0 +1,215 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Produces the same bytes as {@link CsvExportStream}, formatting ranges of
+ * rows on several cores ahead of the reader.
+ * <p>
+ * The snapshot is split into segments of consecutive rows. The reading
+ * thread copies each segment's timestamps out of the snapshot, which is not
+ * safe for concurrent readers, and submits the segment to a
+ * {@link ForkJoinPool}, where it is encoded into its own byte chunk. Chunks
+ * are handed out strictly in submission order, so click numbers and quoting
+ * are exactly those of the sequential encoder. At most two segments per
+ * worker are in flight, and drained segments are reused, which bounds the
+ * memory independently of the history length.
+ */
+public class ParallelCsvExportStream extends HistoryExportStream {
+
+    static final int DEFAULT_SEGMENT_ROWS = 16 * 1024;
+
+    // A typical row takes about 33 bytes; a segment grows if its rows do not fit
+    private static final int INITIAL_ROW_BYTES = 40;
+    private static final byte[] HEADER = CsvExportStream.HEADER.getBytes(StandardCharsets.US_ASCII);
+
+    private static ForkJoinPool sharedPool;
+
+    private final ForkJoinPool pool;
+    private final int segmentRows;
+    private final int maxPending;
+    private final Queue<ForkJoinTask<Segment>> pending = new ArrayDeque<>();
+    private final Queue<Segment> free = new ArrayDeque<>();
+    private Segment current;
+    private byte[] chunk = HEADER;
+    private int position;
+    private int limit = HEADER.length;
+    private int nextRow;
+    private int encodedRows;
+
+    public ParallelCsvExportStream(ClickTimestampLog.Snapshot timestamps) {
+        this(timestamps, getSharedPool(), DEFAULT_SEGMENT_ROWS);
+    }
+
+    /**
+     * @param pool        pool encoding the segments
+     * @param segmentRows rows per segment
+     */
+    ParallelCsvExportStream(ClickTimestampLog.Snapshot timestamps, ForkJoinPool pool, int segmentRows) {
+        super(timestamps);
+        if (segmentRows < 1) {
+            throw new IllegalArgumentException("Segments must hold at least one row: " + segmentRows);
+        }
+        this.pool = pool;
+        this.segmentRows = segmentRows;
+        this.maxPending = 2 * pool.getParallelism();
+    }
+
+    /**
+     * Returns the pool shared by all parallel exports of the node, with one
+     * worker per core.
+     */
+    static synchronized ForkJoinPool getSharedPool() {
+        if (sharedPool == null) {
+            sharedPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                    new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                        @Override
+                        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                            // Worker threads of the default factory are daemons
+                            ForkJoinWorkerThread thread =
+                                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                            thread.setName("csv-encoder-" + thread.getPoolIndex());
+                            return thread;
+                        }
+                    }, null, false);
+        }
+        return sharedPool;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !advance()) {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !advance()) {
+            return -1;
+        }
+        int count = Math.min(len, limit - position);
+        System.arraycopy(chunk, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public int getEncodedRows() {
+        return encodedRows;
+    }
+
+    /**
+     * Cancels the segments still being encoded and releases the snapshot.
+     */
+    @Override
+    public void close() {
+        ForkJoinTask<Segment> task;
+        while ((task = pending.poll()) != null) {
+            task.cancel(false);
+        }
+        super.close();
+    }
+
+    /**
+     * Moves on to the next encoded segment, submitting more segments to
+     * keep the workers busy.
+     *
+     * @return {@code false} when all rows have already been read
+     */
+    private boolean advance() throws IOException {
+        if (current != null) {
+            free.add(current);
+            current = null;
+        }
+        submitSegments();
+        ForkJoinTask<Segment> next = pending.poll();
+        if (next == null) {
+            return false;
+        }
+        try {
+            current = next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding the CSV export");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not encode the CSV export", e.getCause());
+        }
+        chunk = current.bytes;
+        position = 0;
+        limit = current.length;
+        encodedRows = current.firstRow + current.rows;
+        return true;
+    }
+
+    private void submitSegments() {
+        int size = timestamps.size();
+        while (pending.size() < maxPending && nextRow < size) {
+            Segment segment = free.poll();
+            if (segment == null) {
+                segment = new Segment(segmentRows);
+            }
+            int rows = Math.min(segmentRows, size - nextRow);
+            timestamps.read(nextRow, segment.timestamps, 0, rows);
+            segment.firstRow = nextRow;
+            segment.rows = rows;
+            pending.add(pool.submit(segment));
+            nextRow += rows;
+        }
+    }
+
+    /**
+     * A range of rows, encoded on a pool thread. Fields are written by the
+     * reading thread before submission and by the worker before completion,
+     * both of which happen-before the other side reads them.
+     */
+    private static final class Segment implements Callable<Segment> {
+        final long[] timestamps;
+        byte[] bytes;
+        int firstRow;
+        int rows;
+        int length;
+
+        Segment(int capacity) {
+            timestamps = new long[capacity];
+            bytes = new byte[capacity * INITIAL_ROW_BYTES + CsvExportStream.MAX_ROW_BYTES];
+        }
+
+        @Override
+        public Segment call() {
+            // Each worker formats with its own thread-local formatter
+            TimestampFormatter formatter = TimestampFormatter.get();
+            int offset = 0;
+            for (int i = 0; i < rows; i++) {
+                if (offset + CsvExportStream.MAX_ROW_BYTES > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                offset = CsvExportStream.encodeRow(formatter, firstRow + i + 1, timestamps[i], bytes, offset);
+            }
+            length = offset;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.nitinsurana.vaadinsample;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Export that encodes rows on demand while it is being read.
+ * <p>
+ * Rows are encoded into one fixed-size buffer that is refilled whenever the
+ * reader has drained it, so memory use does not depend on the history
+ * length. Subclasses only encode a header and single rows.
+ */
+public abstract class RowExportStream extends HistoryExportStream {
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    // Rows fetched from the snapshot per batch
+    private static final int ROW_BATCH = 256;
+
+    private final byte[] buffer;
+    private final int maxRowBytes;
+    private final long[] rowTimestamps = new long[ROW_BATCH];
+    private boolean headerWritten;
+    private int position;
+    private int limit;
+    private int nextRow;
+    private int batchStart;
+    private int batchEnd;
+
+    /**
+     * @param maxRowBytes upper bound for the header and for one encoded row
+     */
+    protected RowExportStream(ClickTimestampLog.Snapshot timestamps, int bufferSize, int maxRowBytes) {
+        super(timestamps);
+        if (bufferSize < maxRowBytes) {
+            throw new IllegalArgumentException("Buffer must hold at least " + maxRowBytes + " bytes");
+        }
+        this.buffer = new byte[bufferSize];
+        this.maxRowBytes = maxRowBytes;
+    }
+
+    /**
+     * Encodes what precedes the first row into {@code buffer} at
+     * {@code offset}.
+     *
+     * @return the offset after the header
+     */
+    protected abstract int writeHeader(byte[] buffer, int offset);
+
+    /**
+     * Encodes the row with index {@code row} into {@code buffer} at
+     * {@code offset}. Rows are encoded in order.
+     *
+     * @param formatter the reading thread's formatter
+     * @return the offset after the row
+     */
+    protected abstract int writeRow(TimestampFormatter formatter, int row, long timestamp, byte[] buffer,
+                                    int offset);
+
+    @Override
+    public int read() {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        int count = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public int getEncodedRows() {
+        return nextRow;
+    }
+
+    /**
+     * Encodes as many rows as fit into the drained buffer.
+     *
+     * @return {@code false} when all rows have already been read
+     */
+    private boolean fill() {
+        int end = 0;
+        if (!headerWritten) {
+            end = writeHeader(buffer, 0);
+            headerWritten = true;
+        }
+        int size = timestamps.size();
+        if (nextRow >= size && end == 0) {
+            return false;
+        }
+        // Looked up per fill since the stream may be read on another thread
+        TimestampFormatter formatter = TimestampFormatter.get();
+        while (nextRow < size && end + maxRowBytes <= buffer.length) {
+            end = writeRow(formatter, nextRow, timestamp(nextRow), buffer, end);
+            nextRow++;
+        }
+        position = 0;
+        limit = end;
+        return true;
+    }
+
+    private long timestamp(int row) {
+        if (row >= batchEnd) {
+            batchStart = row;
+            batchEnd = Math.min(row + ROW_BATCH, timestamps.size());
+            timestamps.read(batchStart, rowTimestamps, 0, batchEnd - batchStart);
+        }
+        return rowTimestamps[row - batchStart];
+    }
+
+    /**
+     * Writes the decimal digits of a non-negative {@code value}.
+     *
+     * @return the offset after the digits
+     */
+    static int writeDecimal(int value, byte[] buffer, int offset) {
+        int digits = 1;
+        for (int rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Writes the decimal digits of {@code value}.
+     *
+     * @return the offset after the digits
+     */
+    static int writeDecimal(long value, byte[] buffer, int offset) {
+        if (value < 0) {
+            buffer[offset++] = '-';
+            // Long.MIN_VALUE is not a timestamp
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    static int writeAscii(String value, byte[] buffer, int offset) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+        return offset + bytes.length;
+    }
+}
@@ -0,0 +1,157 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file of timestamps evicted from a {@link ClickTimestampLog}.
+ * <p>
+ * The format is a plain sequence of fixed-width 8 byte big-endian values, so
+ * entry {@code i} lives at byte offset {@code i * 8}. Reads use positional
+ * I/O and may run concurrently with appends.
+ * <p>
+ * The file is reference counted: the owning log holds one reference and each
+ * snapshot reading from it holds another. The file is closed and deleted once
+ * the last reference is released.
+ */
+public final class SpillFile {
+
+    /** Bytes per stored timestamp. */
+    public static final int ENTRY_BYTES = 8;
+
+    private final Path path;
+    private final FileChannel channel;
+    private volatile long entries;
+    private int references = 1;
+
+    private SpillFile(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Creates an empty spill file.
+     *
+     * @param directory where to create the file, or {@code null} for the
+     *                  default temporary directory
+     */
+    public static SpillFile create(File directory) {
+        try {
+            Path path = directory == null
+                    ? Files.createTempFile("click-history-", ".bin")
+                    : Files.createTempFile(directory.toPath(), "click-history-", ".bin");
+            return new SpillFile(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create click history spill file", e);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the number of timestamps written so far.
+     */
+    public long size() {
+        return entries;
+    }
+
+    /**
+     * Appends the timestamps remaining in {@code values}.
+     */
+    public synchronized void append(LongBuffer values) {
+        int count = values.remaining();
+        ByteBuffer bytes = ByteBuffer.allocate(count * ENTRY_BYTES);
+        bytes.asLongBuffer().put(values);
+        try {
+            long position = entries * ENTRY_BYTES;
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write click history spill file " + path, e);
+        }
+        entries += count;
+    }
+
+    /**
+     * Reads {@code length} timestamps starting at entry {@code index}.
+     */
+    public void read(long index, long[] target, int offset, int length) {
+        if (index < 0 || index + length > entries) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + entries);
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(length * ENTRY_BYTES);
+        try {
+            long position = index * ENTRY_BYTES;
+            while (bytes.hasRemaining()) {
+                int read = channel.read(bytes, position + bytes.position());
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read click history spill file " + path, e);
+        }
+        // Buffer cast keeps the Java 8 method signature
+        ((Buffer) bytes).flip();
+        bytes.asLongBuffer().get(target, offset, length);
+    }
+
+    /**
+     * Maps {@code length} timestamps starting at entry {@code index} into
+     * memory, read-only. The mapping stays readable after the file has been
+     * released.
+     */
+    public LongBuffer map(long index, int length) {
+        if (index < 0 || length < 0 || index + length > entries) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + entries);
+        }
+        try {
+            // Mapped buffers are big-endian like the file
+            return channel.map(FileChannel.MapMode.READ_ONLY, index * ENTRY_BYTES, (long) length * ENTRY_BYTES)
+                    .asLongBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map click history spill file " + path, e);
+        }
+    }
+
+    /**
+     * Adds a reference that keeps the file readable.
+     *
+     * @return {@code false} if the file has already been deleted
+     */
+    synchronized boolean acquire() {
+        if (references == 0) {
+            return false;
+        }
+        references++;
+        return true;
+    }
+
+    /**
+     * Drops a reference, deleting the file when none are left.
+     */
+    synchronized void release() {
+        if (references == 0) {
+            return;
+        }
+        if (--references == 0) {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete click history spill file " + path, e);
+            }
+        }
+    }
+}
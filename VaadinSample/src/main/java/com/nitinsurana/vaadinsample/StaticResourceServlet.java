@@ -0,0 +1,481 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.shared.Version;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the widgetsets, themes and scripts under {@code /VAADIN/} in place
+ * of {@link com.vaadin.server.VaadinServlet}, which would look each of them
+ * up and copy it through an input stream on every request.
+ * <p>
+ * A resource is resolved to a file once: files of the web application are
+ * served where they are, resources in JARs are extracted to the servlet
+ * context's temporary directory together with a gzip variant, written at
+ * that point if the JAR has none. A {@code .br} or {@code .gz} file next to
+ * a resource is sent to clients that accept it. Content is handed to the
+ * container's sendfile support where it offers it (Tomcat) and otherwise
+ * sent with {@link FileChannel#transferTo}, which leaves the copying to the
+ * JDK and the kernel.
+ * <p>
+ * Every representation has a strong ETag computed from its bytes, so a
+ * revalidation is answered with 304 and no content. GWT's {@code .cache.}
+ * files and resources requested with the Vaadin version in their {@code v}
+ * query parameter never change under their URL and are cached for a year as
+ * immutable; {@code .nocache.} files are revalidated on every use; all
+ * other resources may be cached for {@value #RESOURCE_CACHE_TIME} seconds.
+ * <p>
+ * Paths that resolve to nothing are remembered too, for
+ * {@value #MISS_RECHECK_MILLIS} ms, so that repeated requests for a missing
+ * resource are answered with 404 without looking it up again.
+ */
+public class StaticResourceServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Init-param: seconds other resources may be cached without revalidation. */
+    public static final String RESOURCE_CACHE_TIME = "resourceCacheTime";
+
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    static final String REVALIDATE = "no-cache";
+
+    // Tomcat's request attributes for handing a file to its sendfile support
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String VAADIN = "/VAADIN";
+    private static final int DEFAULT_CACHE_SECONDS = 3600;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Any path can be requested, so unlike resources the misses are bounded
+    static final int MAX_MISSES = 1024;
+    static final long MISS_RECHECK_MILLIS = 10_000;
+    private static final Set<String> COMPRESSIBLE = new HashSet<>(Arrays.asList(
+            "js", "css", "html", "svg", "ttf", "eot"));
+
+    private final ConcurrentMap<String, StaticResource> resources = new ConcurrentHashMap<>();
+    // Path of a missing resource to the time it was last looked up
+    private final ConcurrentMap<String, Long> misses = new ConcurrentHashMap<>();
+    private File extractDirectory;
+    private String cacheControl;
+    private String versionParameter;
+
+    @Override
+    public void init() throws ServletException {
+        File tempDirectory = (File) getServletContext().getAttribute(ServletContext.TEMPDIR);
+        try {
+            extractDirectory = tempDirectory != null ? new File(tempDirectory, "static-resources")
+                    : Files.createTempDirectory("static-resources").toFile();
+        } catch (IOException e) {
+            throw new ServletException("Could not create a directory for static resources", e);
+        }
+        String cacheTime = getInitParameter(RESOURCE_CACHE_TIME);
+        int seconds = cacheTime == null || cacheTime.trim().isEmpty() ? DEFAULT_CACHE_SECONDS
+                : Integer.parseInt(cacheTime.trim());
+        cacheControl = seconds > 0 ? "public, max-age=" + seconds : REVALIDATE;
+        versionParameter = "v=" + Version.getFullVersion();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(request, response, true);
+    }
+
+    @Override
+    protected void doHead(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(request, response, false);
+    }
+
+    private void serve(HttpServletRequest request, HttpServletResponse response, boolean content)
+            throws IOException {
+        String path = request.getPathInfo();
+        StaticResource resource = isSafePath(path) ? getResource(path) : null;
+        if (resource == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Representation representation = resource.select(request.getHeader("Accept-Encoding"));
+        String mimeType = getServletContext().getMimeType(path);
+        if (mimeType != null) {
+            response.setContentType(mimeType);
+        }
+        response.setHeader("Cache-Control", getCacheControl(path, request.getQueryString()));
+        response.setHeader("ETag", representation.etag);
+        response.setDateHeader("Last-Modified", representation.lastModified);
+        if (resource.gzip != null || resource.brotli != null) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        if (isNotModified(request, representation)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            AppMetrics.STATIC_NOT_MODIFIED.increment();
+            return;
+        }
+        if (representation.encoding != null) {
+            response.setHeader("Content-Encoding", representation.encoding);
+        }
+        // setContentLengthLong() is Servlet 3.1, older containers need the header
+        response.setHeader("Content-Length", Long.toString(representation.length));
+        if (content) {
+            send(request, response, representation);
+            AppMetrics.STATIC_RESPONSES.increment();
+            AppMetrics.STATIC_BYTES.add(representation.length);
+        }
+    }
+
+    /**
+     * Returns the resource at {@code path} below {@code /VAADIN}, resolving it
+     * again if one of its files has changed since. A missing resource is
+     * looked up again once {@link #MISS_RECHECK_MILLIS} have passed.
+     *
+     * @return {@code null} if there is no such resource
+     */
+    StaticResource getResource(String path) throws IOException {
+        StaticResource resource = resources.get(path);
+        if (resource == null || !resource.isCurrent()) {
+            long now = System.currentTimeMillis();
+            Long missed = misses.get(path);
+            if (resource == null && missed != null && now - missed < MISS_RECHECK_MILLIS) {
+                return null;
+            }
+            resource = load(path);
+            if (resource == null) {
+                resources.remove(path);
+                rememberMiss(path, now);
+            } else {
+                misses.remove(path);
+                resources.put(path, resource);
+            }
+        }
+        return resource;
+    }
+
+    private void rememberMiss(String path, long now) {
+        // Dropping all misses at once keeps the bound without tracking their age
+        if (misses.size() >= MAX_MISSES) {
+            misses.clear();
+        }
+        misses.put(path, now);
+    }
+
+    int getMissCount() {
+        return misses.size();
+    }
+
+    private StaticResource load(String path) throws IOException {
+        String name = VAADIN + path;
+        File file = findFile(name);
+        if (file == null) {
+            return null;
+        }
+        return new StaticResource(new Representation(file, null), findVariant(file, ".gz", "gzip"),
+                findVariant(file, ".br", "br"));
+    }
+
+    /**
+     * Finds the file of the resource {@code name}, in the web application or
+     * extracted from the JAR it is in.
+     */
+    private File findFile(String name) throws IOException {
+        String realPath = getServletContext().getRealPath(name);
+        if (realPath != null && new File(realPath).isFile()) {
+            return new File(realPath);
+        }
+        URL url = findURL(name);
+        if (url == null) {
+            return null;
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                File file = new File(url.toURI());
+                return file.isFile() ? file : null;
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid resource URL " + url, e);
+            }
+        }
+        return extract(name, url);
+    }
+
+    private URL findURL(String name) throws IOException {
+        URL url = getServletContext().getResource(name);
+        if (url == null) {
+            // Class loaders want the name without the leading slash
+            url = getClass().getClassLoader().getResource(name.substring(1));
+        }
+        return url;
+    }
+
+    /**
+     * Copies the JAR resource {@code name} and a gzip variant of it to the
+     * extract directory.
+     *
+     * @return the extracted file, or {@code null} if {@code name} is a
+     *         directory
+     */
+    private File extract(String name, URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection) {
+            JarURLConnection jarConnection = (JarURLConnection) connection;
+            if (jarConnection.getJarEntry() == null || jarConnection.getJarEntry().isDirectory()) {
+                return null;
+            }
+        }
+        File file = new File(extractDirectory, name);
+        long lastModified = connection.getLastModified();
+        copy(connection.getInputStream(), file, lastModified);
+        URL gzipUrl = findURL(name + ".gz");
+        File gzip = new File(file.getPath() + ".gz");
+        if (gzipUrl != null) {
+            copy(gzipUrl.openStream(), gzip, lastModified);
+        } else if (isCompressible(name)) {
+            copy(new GzipEncodingInputStream(new FileInputStream(file), Deflater.BEST_COMPRESSION, BUFFER_SIZE),
+                    gzip, lastModified);
+        }
+        return file;
+    }
+
+    /**
+     * Writes {@code in} to a temporary file that then replaces {@code target},
+     * so concurrent requests never see a partial file.
+     */
+    private static void copy(InputStream in, File target, long lastModified) throws IOException {
+        File directory = target.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Could not create " + directory);
+        }
+        File temporary = File.createTempFile(target.getName(), ".tmp", directory);
+        try (InputStream source = in) {
+            Files.copy(source, temporary.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (lastModified > 0 && !temporary.setLastModified(lastModified)) {
+                throw new IOException("Could not set the modification time of " + temporary);
+            }
+            Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    /**
+     * Returns the precompressed variant next to {@code file}, unless it is
+     * missing, older than the file or not smaller.
+     */
+    private static Representation findVariant(File file, String suffix, String encoding) throws IOException {
+        File variant = new File(file.getPath() + suffix);
+        if (!variant.isFile() || variant.lastModified() < file.lastModified() || variant.length() >= file.length()) {
+            return null;
+        }
+        return new Representation(variant, encoding);
+    }
+
+    /**
+     * Tells whether a file name should be compressed; formats that are
+     * compressed already are not.
+     */
+    static boolean isCompressible(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && COMPRESSIBLE.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Accepts paths whose segments are all proper names, so that a request
+     * can never leave the {@code VAADIN} directory or reach deployment
+     * descriptors inside it.
+     */
+    static boolean isSafePath(String path) {
+        if (path == null || !path.startsWith("/") || path.indexOf('\\') >= 0 || path.indexOf('\0') >= 0) {
+            return false;
+        }
+        for (String segment : path.substring(1).split("/", -1)) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")
+                    || segment.equalsIgnoreCase("WEB-INF") || segment.equalsIgnoreCase("META-INF")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    String getCacheControl(String path, String query) {
+        if (path.contains(".nocache.")) {
+            return REVALIDATE;
+        }
+        if (path.contains(".cache.") || isVersioned(query)) {
+            return IMMUTABLE;
+        }
+        return cacheControl;
+    }
+
+    /**
+     * Tells whether the query names the running Vaadin version, as Vaadin
+     * does for its bootstrap script, themes and push script.
+     */
+    private boolean isVersioned(String query) {
+        if (query == null) {
+            return false;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.equals(versionParameter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, Representation representation) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                // If-None-Match compares weakly
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(representation.etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have no milliseconds
+        return ifModifiedSince >= 0 && representation.lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static void send(HttpServletRequest request, HttpServletResponse response,
+                             Representation representation) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, representation.file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, representation.length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(representation.file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < representation.length) {
+                long sent = channel.transferTo(position, representation.length - position, out);
+                if (sent <= 0) {
+                    throw new EOFException(representation.file + " was truncated while it was sent");
+                }
+                position += sent;
+            }
+        }
+    }
+
+    /**
+     * A resource and its precompressed variants.
+     */
+    static final class StaticResource {
+        final Representation identity;
+        final Representation gzip;
+        final Representation brotli;
+
+        /**
+         * @param gzip   the gzip variant, or {@code null}
+         * @param brotli the brotli variant, or {@code null}
+         */
+        StaticResource(Representation identity, Representation gzip, Representation brotli) {
+            this.identity = identity;
+            this.gzip = gzip;
+            this.brotli = brotli;
+        }
+
+        Representation select(String acceptEncoding) {
+            if (brotli != null && CompressedStreamResource.accepts(acceptEncoding, "br")) {
+                return brotli;
+            }
+            if (gzip != null && CompressedStreamResource.acceptsGzip(acceptEncoding)) {
+                return gzip;
+            }
+            return identity;
+        }
+
+        boolean isCurrent() {
+            return identity.isCurrent() && (gzip == null || gzip.isCurrent())
+                    && (brotli == null || brotli.isCurrent());
+        }
+    }
+
+    /**
+     * One file of a resource, with the content coding it is sent with.
+     */
+    static final class Representation {
+        final File file;
+        final String encoding;
+        final long length;
+        final long lastModified;
+        final String etag;
+
+        /**
+         * @param encoding the {@code Content-Encoding}, or {@code null} for
+         *                 the resource itself
+         */
+        Representation(File file, String encoding) throws IOException {
+            this.file = file;
+            this.encoding = encoding;
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.etag = computeETag(file);
+        }
+
+        boolean isCurrent() {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+
+        private static String computeETag(File file) throws IOException {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is always available", e);
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (channel.read(buffer) != -1) {
+                    // Buffer casts keep the Java 8 method signatures
+                    ((Buffer) buffer).flip();
+                    digest.update(buffer);
+                    ((Buffer) buffer).clear();
+                }
+            }
+            // 128 bits of the hash are plenty to tell versions apart
+            byte[] hash = Arrays.copyOf(digest.digest(), 16);
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + '"';
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.ui.Label;
+import java.io.Serializable;
+
+/**
+ * Renders the statistics dashboard labels and remembers the values they show.
+ * <p>
+ * A label is only touched when its value changed, so unchanged labels neither
+ * rebuild their text nor become dirty connectors that are re-sent to the
+ * browser. The session start label is written once.
+ */
+public class StatisticsModel implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Label totalClicksLabel;
+    private final Label sessionStartLabel;
+    private final Label timeSinceClickLabel;
+    private final Label sessionDurationLabel;
+
+    private int shownClicks = -1;
+    private boolean sessionStartShown;
+    // Read by the statistics ticker thread to skip unchanged UIs
+    private volatile long shownDurationSeconds = -1;
+    private volatile long shownIdleSeconds = -1;
+
+    public StatisticsModel(Label totalClicksLabel, Label sessionStartLabel, Label timeSinceClickLabel,
+            Label sessionDurationLabel) {
+        this.totalClicksLabel = totalClicksLabel;
+        this.sessionStartLabel = sessionStartLabel;
+        this.timeSinceClickLabel = timeSinceClickLabel;
+        this.sessionDurationLabel = sessionDurationLabel;
+    }
+
+    static String totalClicksText(int clicks) {
+        return "Total Clicks: " + clicks;
+    }
+
+    static String sessionStartText(long sessionStartTime) {
+        return TimestampFormatter.get()
+                .formatDateTime(sessionStartTime, new StringBuilder("Session Start Time: "))
+                .toString();
+    }
+
+    static String timeSinceClickText(long seconds) {
+        return "Time Since Last Click: " + seconds + " seconds";
+    }
+
+    static String sessionDurationText(long seconds) {
+        return "Session Duration: " + seconds + " seconds";
+    }
+
+    public void showClicks(int clicks) {
+        if (clicks != shownClicks) {
+            totalClicksLabel.setValue(totalClicksText(clicks));
+            shownClicks = clicks;
+        }
+    }
+
+    public void showSessionStart(long sessionStartTime) {
+        if (!sessionStartShown) {
+            sessionStartLabel.setValue(sessionStartText(sessionStartTime));
+            sessionStartShown = true;
+        }
+    }
+
+    public void showTimes(long durationSeconds, long idleSeconds) {
+        showTimes(durationSeconds, null, idleSeconds, null);
+    }
+
+    /**
+     * Shows the time statistics, using the given texts when they are already
+     * rendered. A {@code null} text is rendered here if it is needed.
+     */
+    public void showTimes(long durationSeconds, String durationText, long idleSeconds, String idleText) {
+        if (idleSeconds != shownIdleSeconds) {
+            timeSinceClickLabel.setValue(idleText != null ? idleText : timeSinceClickText(idleSeconds));
+            shownIdleSeconds = idleSeconds;
+        }
+        if (durationSeconds != shownDurationSeconds) {
+            sessionDurationLabel.setValue(durationText != null ? durationText : sessionDurationText(durationSeconds));
+            shownDurationSeconds = durationSeconds;
+        }
+    }
+
+    /**
+     * Tells whether the labels already show the given time statistics. Safe to
+     * call without the session lock.
+     */
+    public boolean isShowingTimes(long durationSeconds, long idleSeconds) {
+        return shownDurationSeconds == durationSeconds && shownIdleSeconds == idleSeconds;
+    }
+}
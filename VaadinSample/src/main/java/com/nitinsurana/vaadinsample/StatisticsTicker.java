@@ -0,0 +1,170 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.VaadinSession;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Refreshes the time based statistics of every registered {@link MyVaadinUI}
+ * from one shared scheduler thread, instead of a timer per UI.
+ * <p>
+ * Each tick reads the clock once and renders each distinct label text once.
+ * UIs whose displayed values are unchanged are skipped. Changed UIs are
+ * updated with one {@link VaadinSession#access(Runnable)} per session, so a
+ * session is locked once per tick however many of its UIs changed.
+ */
+public final class StatisticsTicker {
+
+    /** Interval between refreshes; the labels show whole seconds. */
+    public static final long TICK_MILLIS = 1000;
+
+    private static final StatisticsTicker SHARED = new StatisticsTicker();
+
+    private final Set<MyVaadinUI> uis = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+
+    StatisticsTicker() {
+    }
+
+    /**
+     * Returns the ticker shared by all UIs of the application.
+     */
+    public static StatisticsTicker getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts refreshing {@code ui}. The scheduler thread is started with the
+     * first registered UI.
+     */
+    public synchronized void register(MyVaadinUI ui) {
+        uis.add(ui);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "click-statistics-ticker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            scheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    // An exception would cancel all further ticks
+                    try {
+                        tick(System.currentTimeMillis());
+                    } catch (RuntimeException e) {
+                        getLogger().log(Level.WARNING, "Could not refresh click statistics", e);
+                    }
+                }
+            }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops refreshing {@code ui}. The scheduler thread is stopped with the
+     * last registered UI.
+     */
+    public synchronized void unregister(MyVaadinUI ui) {
+        uis.remove(ui);
+        if (uis.isEmpty() && scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    int getRegisteredCount() {
+        return uis.size();
+    }
+
+    synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * Brings the statistics of all registered UIs up to date with {@code now}.
+     */
+    void tick(long now) {
+        Map<Long, String> durationTexts = new HashMap<>();
+        Map<Long, String> idleTexts = new HashMap<>();
+        Map<VaadinSession, List<Update>> changes = new HashMap<>();
+
+        for (MyVaadinUI ui : uis) {
+            VaadinSession session = ui.getSession();
+            if (session == null) {
+                continue;
+            }
+            long durationSeconds = (now - ui.getSessionStartTime()) / 1000;
+            long idleSeconds = (now - ui.getLastClickTime()) / 1000;
+            if (ui.getStatistics().isShowingTimes(durationSeconds, idleSeconds)) {
+                continue;
+            }
+            String durationText = durationTexts.get(durationSeconds);
+            if (durationText == null) {
+                durationText = StatisticsModel.sessionDurationText(durationSeconds);
+                durationTexts.put(durationSeconds, durationText);
+            }
+            String idleText = idleTexts.get(idleSeconds);
+            if (idleText == null) {
+                idleText = StatisticsModel.timeSinceClickText(idleSeconds);
+                idleTexts.put(idleSeconds, idleText);
+            }
+            List<Update> updates = changes.get(session);
+            if (updates == null) {
+                updates = new ArrayList<>();
+                changes.put(session, updates);
+            }
+            updates.add(new Update(ui, durationSeconds, durationText, idleSeconds, idleText));
+        }
+
+        for (Map.Entry<VaadinSession, List<Update>> entry : changes.entrySet()) {
+            final List<Update> updates = entry.getValue();
+            entry.getKey().access(new Runnable() {
+                @Override
+                public void run() {
+                    for (Update update : updates) {
+                        update.apply();
+                    }
+                }
+            });
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(StatisticsTicker.class.getName());
+    }
+
+    private static final class Update {
+        private final MyVaadinUI ui;
+        private final long durationSeconds;
+        private final String durationText;
+        private final long idleSeconds;
+        private final String idleText;
+
+        Update(MyVaadinUI ui, long durationSeconds, String durationText, long idleSeconds, String idleText) {
+            this.ui = ui;
+            this.durationSeconds = durationSeconds;
+            this.durationText = durationText;
+            this.idleSeconds = idleSeconds;
+            this.idleText = idleText;
+        }
+
+        void apply() {
+            // The UI may have been closed after the tick looked at it
+            if (ui.isAttached()) {
+                ui.getStatistics().showTimes(durationSeconds, durationText, idleSeconds, idleText);
+            }
+        }
+    }
+}
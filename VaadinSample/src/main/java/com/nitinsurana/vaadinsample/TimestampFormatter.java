@@ -0,0 +1,263 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.IOException;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats timestamps as {@code yyyy-MM-dd HH:mm:ss} and {@code yyyyMMdd_HHmm}
+ * without allocating.
+ * <p>
+ * Digits are written straight into caller supplied {@code char[]},
+ * {@code byte[]} or {@link Appendable} targets. The formatted text of the last
+ * second is cached, and only the time of day is recomputed while consecutive
+ * timestamps fall on the same local day. The output is identical to
+ * {@link SimpleDateFormat} with the default locale and time zone; setups that
+ * {@code SimpleDateFormat} would render with a non-Gregorian calendar or
+ * non-ASCII digits are delegated to it.
+ * <p>
+ * Instances are not thread-safe; use {@link #get()} for the calling thread's
+ * formatter.
+ */
+public final class TimestampFormatter {
+
+    /** Length of {@code yyyy-MM-dd HH:mm:ss}. */
+    public static final int DATE_TIME_LENGTH = 19;
+    /** Length of {@code yyyyMMdd_HHmm}. */
+    public static final int FILE_STAMP_LENGTH = 13;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    // Proleptic Gregorian dates match GregorianCalendar from here on; other
+    // years go through SimpleDateFormat for its Julian rules and wider years
+    private static final int MIN_YEAR = 1600;
+    private static final int MAX_YEAR = 9999;
+
+    // ThreadLocal to ensure thread-safety, like the SimpleDateFormat it replaces
+    private static final ThreadLocal<TimestampFormatter> CURRENT = new ThreadLocal<TimestampFormatter>() {
+        @Override
+        protected TimestampFormatter initialValue() {
+            return new TimestampFormatter(TimeZone.getDefault(), Locale.getDefault());
+        }
+    };
+
+    private final TimeZone timeZone;
+    private final boolean fastPath;
+    private final SimpleDateFormat fallbackDateTime;
+    private final SimpleDateFormat fallbackFileStamp;
+
+    private final char[] dateTime = new char[DATE_TIME_LENGTH];
+    private final char[] fileStamp = new char[FILE_STAMP_LENGTH];
+    private long cachedSecond = Long.MIN_VALUE;
+    private long cachedDay = Long.MIN_VALUE;
+
+    /**
+     * Returns the formatter of the calling thread, using the default time zone.
+     */
+    public static TimestampFormatter get() {
+        return CURRENT.get();
+    }
+
+    TimestampFormatter(TimeZone timeZone, Locale locale) {
+        this.timeZone = (TimeZone) timeZone.clone();
+        this.fastPath = usesGregorianAsciiDigits(locale);
+        fallbackDateTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", locale);
+        fallbackDateTime.setTimeZone(this.timeZone);
+        fallbackFileStamp = new SimpleDateFormat("yyyyMMdd_HHmm", locale);
+        fallbackFileStamp.setTimeZone(this.timeZone);
+    }
+
+    private static boolean usesGregorianAsciiDigits(Locale locale) {
+        return Calendar.getInstance(locale).getClass() == GregorianCalendar.class
+                && DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0';
+    }
+
+    /**
+     * Writes {@code yyyy-MM-dd HH:mm:ss} into {@code target} at {@code offset}.
+     *
+     * @return the offset just past the written characters
+     */
+    public int formatDateTime(long timestamp, char[] target, int offset) {
+        if (!update(timestamp)) {
+            String text = fallbackDateTime.format(new Date(timestamp));
+            text.getChars(0, text.length(), target, offset);
+            return offset + text.length();
+        }
+        System.arraycopy(dateTime, 0, target, offset, DATE_TIME_LENGTH);
+        return offset + DATE_TIME_LENGTH;
+    }
+
+    /**
+     * Writes {@code yyyy-MM-dd HH:mm:ss} as UTF-8 into {@code target} at
+     * {@code offset}. The target needs room for three bytes per character only
+     * when the locale uses non-ASCII digits.
+     *
+     * @return the offset just past the written bytes
+     */
+    public int formatDateTime(long timestamp, byte[] target, int offset) {
+        if (!update(timestamp)) {
+            return encodeUtf8(fallbackDateTime.format(new Date(timestamp)), target, offset);
+        }
+        for (int i = 0; i < DATE_TIME_LENGTH; i++) {
+            target[offset++] = (byte) dateTime[i];
+        }
+        return offset;
+    }
+
+    /**
+     * Appends {@code yyyy-MM-dd HH:mm:ss} to {@code target}.
+     */
+    public StringBuilder formatDateTime(long timestamp, StringBuilder target) {
+        if (!update(timestamp)) {
+            return target.append(fallbackDateTime.format(new Date(timestamp)));
+        }
+        return target.append(dateTime, 0, DATE_TIME_LENGTH);
+    }
+
+    /**
+     * Appends {@code yyyy-MM-dd HH:mm:ss} to {@code target}.
+     */
+    public void formatDateTime(long timestamp, Appendable target) throws IOException {
+        if (!update(timestamp)) {
+            target.append(fallbackDateTime.format(new Date(timestamp)));
+            return;
+        }
+        for (int i = 0; i < DATE_TIME_LENGTH; i++) {
+            target.append(dateTime[i]);
+        }
+    }
+
+    /**
+     * Returns {@code yyyy-MM-dd HH:mm:ss} as a new string.
+     */
+    public String formatDateTime(long timestamp) {
+        if (!update(timestamp)) {
+            return fallbackDateTime.format(new Date(timestamp));
+        }
+        return new String(dateTime, 0, DATE_TIME_LENGTH);
+    }
+
+    /**
+     * Writes {@code yyyyMMdd_HHmm} into {@code target} at {@code offset}.
+     *
+     * @return the offset just past the written characters
+     */
+    public int formatFileStamp(long timestamp, char[] target, int offset) {
+        if (!update(timestamp)) {
+            String text = fallbackFileStamp.format(new Date(timestamp));
+            text.getChars(0, text.length(), target, offset);
+            return offset + text.length();
+        }
+        // yyyy-MM-dd HH:mm:ss
+        // 0123456789012345678
+        System.arraycopy(dateTime, 0, target, offset, 4);
+        target[offset + 4] = dateTime[5];
+        target[offset + 5] = dateTime[6];
+        target[offset + 6] = dateTime[8];
+        target[offset + 7] = dateTime[9];
+        target[offset + 8] = '_';
+        target[offset + 9] = dateTime[11];
+        target[offset + 10] = dateTime[12];
+        target[offset + 11] = dateTime[14];
+        target[offset + 12] = dateTime[15];
+        return offset + FILE_STAMP_LENGTH;
+    }
+
+    /**
+     * Appends {@code yyyyMMdd_HHmm} to {@code target}.
+     */
+    public StringBuilder formatFileStamp(long timestamp, StringBuilder target) {
+        if (!update(timestamp)) {
+            return target.append(fallbackFileStamp.format(new Date(timestamp)));
+        }
+        formatFileStamp(timestamp, fileStamp, 0);
+        return target.append(fileStamp, 0, FILE_STAMP_LENGTH);
+    }
+
+    /**
+     * Brings the cached {@code dateTime} characters up to date.
+     *
+     * @return {@code false} if the timestamp must be formatted by
+     *         {@link SimpleDateFormat} instead
+     */
+    private boolean update(long timestamp) {
+        if (!fastPath) {
+            return false;
+        }
+        long second = Math.floorDiv(timestamp, 1000L);
+        if (second == cachedSecond) {
+            return true;
+        }
+        // Zone offsets only change on whole seconds, so one lookup per second
+        long local = timestamp + timeZone.getOffset(timestamp);
+        long day = Math.floorDiv(local, MILLIS_PER_DAY);
+        if (day != cachedDay) {
+            if (!writeDate(day)) {
+                return false;
+            }
+            cachedDay = day;
+        }
+        int secondOfDay = (int) (Math.floorMod(local, MILLIS_PER_DAY) / 1000L);
+        writeTwoDigits(secondOfDay / 3600, 11);
+        writeTwoDigits(secondOfDay / 60 % 60, 14);
+        writeTwoDigits(secondOfDay % 60, 17);
+        cachedSecond = second;
+        return true;
+    }
+
+    /**
+     * Writes {@code yyyy-MM-dd } for a day counted from 1970-01-01.
+     */
+    private boolean writeDate(long epochDay) {
+        // Civil-from-days, see http://howardhinnant.github.io/date_algorithms.html
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int dayOfMonth = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            return false;
+        }
+        int y = (int) year;
+        writeTwoDigits(y / 100, 0);
+        writeTwoDigits(y % 100, 2);
+        dateTime[4] = '-';
+        writeTwoDigits(month, 5);
+        dateTime[7] = '-';
+        writeTwoDigits(dayOfMonth, 8);
+        dateTime[10] = ' ';
+        dateTime[13] = ':';
+        dateTime[16] = ':';
+        return true;
+    }
+
+    private void writeTwoDigits(int value, int offset) {
+        dateTime[offset] = (char) ('0' + value / 10);
+        dateTime[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private static int encodeUtf8(String text, byte[] target, int offset) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                target[offset++] = (byte) c;
+            } else if (c < 0x800) {
+                target[offset++] = (byte) (0xc0 | c >> 6);
+                target[offset++] = (byte) (0x80 | c & 0x3f);
+            } else {
+                target[offset++] = (byte) (0xe0 | c >> 12);
+                target[offset++] = (byte) (0x80 | c >> 6 & 0x3f);
+                target[offset++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        return offset;
+    }
+}
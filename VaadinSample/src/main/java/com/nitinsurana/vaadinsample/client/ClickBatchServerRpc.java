@@ -0,0 +1,17 @@
+package com.nitinsurana.vaadinsample.client;
+
+import com.vaadin.shared.communication.ServerRpc;
+
+/**
+ * Delivers the clicks a {@link ClickBatcherConnector} collected.
+ */
+public interface ClickBatchServerRpc extends ServerRpc {
+
+    /**
+     * @param clickTimes epoch milliseconds of the clicks on the browser's
+     *                   clock, oldest first
+     * @param sentAt     the browser's clock when the batch was sent, which
+     *                   relates the click times to the server's clock
+     */
+    void clicks(long[] clickTimes, long sentAt);
+}
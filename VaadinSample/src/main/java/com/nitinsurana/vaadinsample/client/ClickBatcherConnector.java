@@ -0,0 +1,115 @@
+package com.nitinsurana.vaadinsample.client;
+
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.event.dom.client.HasClickHandlers;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.user.client.Timer;
+import com.nitinsurana.vaadinsample.ClickBatcher;
+import com.vaadin.client.ComponentConnector;
+import com.vaadin.client.ServerConnector;
+import com.vaadin.client.communication.ServerRpcQueue;
+import com.vaadin.client.extensions.AbstractExtensionConnector;
+import com.vaadin.shared.communication.MethodInvocation;
+import com.vaadin.shared.ui.Connect;
+import com.vaadin.shared.ui.button.ButtonServerRpc;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Takes over the clicks of the extended button: instead of the button's own
+ * round trip per click, the time of each click is collected and the batch is
+ * sent in one request once the window has passed or the batch is full.
+ * <p>
+ * Clicks are caught as the button's {@link ClickEvent}, which the button
+ * fires for mouse and touch clicks as well as for the clicks it synthesizes
+ * from Space, Enter and a press released outside of it. The button's
+ * connector has queued its {@link ButtonServerRpc#click} by then; the queue
+ * is only sent once the event has been handled, so that invocation is taken
+ * out again and the click joins the batch. Every click thus reaches the
+ * server in the order it was made.
+ */
+@Connect(ClickBatcher.class)
+public class ClickBatcherConnector extends AbstractExtensionConnector implements ClickHandler {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Timer flushTimer = new Timer() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private ComponentConnector button;
+    private HandlerRegistration clickRegistration;
+    private long[] pending = new long[0];
+    private int pendingCount;
+
+    @Override
+    protected void extend(ServerConnector target) {
+        button = (ComponentConnector) target;
+        // The button's connector added its handler when it was created, so
+        // this one runs after it
+        clickRegistration = ((HasClickHandlers) button.getWidget()).addClickHandler(this);
+    }
+
+    @Override
+    public ClickBatcherState getState() {
+        return (ClickBatcherState) super.getState();
+    }
+
+    @Override
+    public void onClick(ClickEvent event) {
+        if (!button.isEnabled()) {
+            return;
+        }
+        ServerRpcQueue queue = ServerRpcQueue.get(getConnection());
+        List<MethodInvocation> clicks = new ArrayList<>();
+        for (MethodInvocation invocation : queue.getAll()) {
+            if (button.getConnectorId().equals(invocation.getConnectorId())
+                    && ButtonServerRpc.class.getName().equals(invocation.getInterfaceName())
+                    && "click".equals(invocation.getMethodName())) {
+                clicks.add(invocation);
+            }
+        }
+        // The click is sent with the batch instead of on its own
+        for (MethodInvocation click : clicks) {
+            queue.removeMatching(click);
+        }
+        add(System.currentTimeMillis());
+    }
+
+    private void add(long clickTime) {
+        if (pending.length < getState().maxClicks) {
+            pending = Arrays.copyOf(pending, getState().maxClicks);
+        }
+        if (pendingCount == 0) {
+            flushTimer.schedule(getState().windowMillis);
+        }
+        pending[pendingCount++] = clickTime;
+        if (pendingCount >= getState().maxClicks) {
+            flushTimer.cancel();
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (pendingCount == 0) {
+            return;
+        }
+        long[] clickTimes = Arrays.copyOf(pending, pendingCount);
+        pendingCount = 0;
+        getRpcProxy(ClickBatchServerRpc.class).clicks(clickTimes, System.currentTimeMillis());
+    }
+
+    @Override
+    public void onUnregister() {
+        super.onUnregister();
+        flushTimer.cancel();
+        if (clickRegistration != null) {
+            clickRegistration.removeHandler();
+            clickRegistration = null;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.nitinsurana.vaadinsample.client;
+
+import com.vaadin.shared.communication.SharedState;
+
+/**
+ * Shared state of a {@link com.nitinsurana.vaadinsample.ClickBatcher}.
+ */
+public class ClickBatcherState extends SharedState {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Milliseconds the browser collects clicks before sending them. */
+    public int windowMillis;
+
+    /** Clicks after which a batch is sent without waiting for the window. */
+    public int maxClicks;
+}
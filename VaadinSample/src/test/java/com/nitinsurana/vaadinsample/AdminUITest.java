@@ -0,0 +1,65 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.data.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AdminUI class
+ */
+public class AdminUITest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    private ClickAnalytics analytics;
+    private AdminUI ui;
+
+    @BeforeEach
+    public void setUp() {
+        analytics = new ClickAnalytics(new MetricsRegistry().histogram("test_interval_seconds", "Intervals"));
+        ui = new AdminUI(analytics);
+    }
+
+    @Test
+    @DisplayName("Admin view should start empty and poll for updates")
+    public void testInitialView() {
+        ui.init(null);
+        assertEquals("Total clicks: 0", ui.getTotalClicksLabel().getValue());
+        assertEquals("Active sessions: 0 of 0 open", ui.getSessionsLabel().getValue());
+        assertEquals("Click interval p50 / p90 / p99: -", ui.getIntervalsLabel().getValue());
+        assertEquals(0, ui.getTopSessions().size());
+        assertEquals(AdminUI.REFRESH_MILLIS, ui.getPollInterval());
+    }
+
+    @Test
+    @DisplayName("Refresh should show node totals, rates and the busiest sessions")
+    public void testRefresh() {
+        ui.init(null);
+        ClickAnalytics.SessionActivity busy = analytics.attach(new Object());
+        ClickAnalytics.SessionActivity quiet = analytics.attach(new Object());
+        analytics.attach(new Object());
+        for (int i = 0; i < 20; i++) {
+            analytics.recordClick(busy, BASE_TIME + i * 500L, i == 0 ? 0 : BASE_TIME + (i - 1) * 500L);
+        }
+        analytics.recordClick(quiet, BASE_TIME + 9_000L, 0);
+
+        ui.refresh(BASE_TIME + 10_000L);
+        assertEquals("Clicks per second: 2.1 (10 s), 0.4 (60 s)", ui.getClickRateLabel().getValue());
+        assertEquals("Total clicks: 21", ui.getTotalClicksLabel().getValue());
+        assertEquals("Active sessions: 2 of 3 open", ui.getSessionsLabel().getValue());
+        assertEquals("Click interval p50 / p90 / p99: 503 / 503 / 503 ms", ui.getIntervalsLabel().getValue());
+
+        assertEquals(3, ui.getTopSessions().size());
+        Item first = ui.getTopSessions().getItem(ui.getTopSessions().getIdByIndex(0));
+        assertEquals(busy.getLabel(), first.getItemProperty(AdminUI.SESSION_PROPERTY).getValue());
+        assertEquals(20L, first.getItemProperty(AdminUI.CLICKS_PROPERTY).getValue());
+        assertEquals(TimestampFormatter.get().formatDateTime(BASE_TIME + 9_500L),
+                first.getItemProperty(AdminUI.LAST_CLICK_PROPERTY).getValue());
+        Item last = ui.getTopSessions().getItem(ui.getTopSessions().getIdByIndex(2));
+        assertEquals("", last.getItemProperty(AdminUI.LAST_CLICK_PROPERTY).getValue(),
+                "A session without clicks should have no last click");
+    }
+}
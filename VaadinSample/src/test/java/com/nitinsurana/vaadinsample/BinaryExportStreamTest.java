@@ -0,0 +1,125 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BinaryExportStream class
+ */
+public class BinaryExportStreamTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    private static byte[] readFully(InputStream in, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[chunk];
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] export(ClickTimestampLog log) throws IOException {
+        try (InputStream in = new BinaryExportStream(log.snapshot(), 64)) {
+            return readFully(in, 13);
+        }
+    }
+
+    @Test
+    @DisplayName("Decoding an export should give back the click timestamps")
+    public void testRoundTrip() throws IOException {
+        ClickTimestampLog log = new ClickTimestampLog();
+        long timestamp = BASE_TIME;
+        for (int i = 0; i < 10_000; i++) {
+            // Gaps from a millisecond to over a day
+            timestamp += 1L << (i % 28);
+            log.add(timestamp);
+        }
+        long[] decoded = BinaryExportStream.decode(new ByteArrayInputStream(export(log)));
+        assertArrayEquals(log.toArray(), decoded, "Timestamps should survive the round trip");
+    }
+
+    @Test
+    @DisplayName("Empty history should export only the header")
+    public void testEmptyHistory() throws IOException {
+        byte[] bytes = export(new ClickTimestampLog());
+        assertArrayEquals(new byte[]{'C', 'L', 'K', 'H', BinaryExportStream.VERSION, 0}, bytes);
+        assertEquals(0, BinaryExportStream.decode(new ByteArrayInputStream(bytes)).length);
+    }
+
+    @Test
+    @DisplayName("A clock stepping backwards should be encoded as a short negative delta")
+    public void testBackwardsClock() throws IOException {
+        ClickTimestampLog log = new ClickTimestampLog();
+        log.add(BASE_TIME);
+        log.add(BASE_TIME - 5);
+        log.add(BASE_TIME + 1_000);
+        log.add(0);
+        byte[] bytes = export(log);
+        assertArrayEquals(log.toArray(), BinaryExportStream.decode(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    @DisplayName("Spilled history should be exported completely")
+    public void testSpilledHistory(@TempDir Path spillDirectory) throws IOException {
+        ClickTimestampLog log = new ClickTimestampLog(false, 100, spillDirectory.toFile());
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                log.add(BASE_TIME + i * 1_234L);
+            }
+            assertTrue(log.getSpilledCount() > 0, "Some clicks should have been spilled");
+            assertArrayEquals(log.toArray(), BinaryExportStream.decode(new ByteArrayInputStream(export(log))));
+        } finally {
+            log.clear();
+        }
+    }
+
+    @Test
+    @DisplayName("Clicks seconds apart should take two bytes each")
+    public void testCompactness() throws IOException {
+        ClickTimestampLog log = new ClickTimestampLog();
+        for (int i = 0; i < 10_000; i++) {
+            log.add(BASE_TIME + i * 1_234L);
+        }
+        int binary = export(log).length;
+        int csv;
+        try (InputStream in = new CsvExportStream(log.snapshot())) {
+            csv = readFully(in, 8192).length;
+        }
+        assertTrue(binary < 10_000 * 2 + 32, "Binary export took " + binary + " bytes");
+        assertTrue(binary * 10 < csv, "Binary export should be far smaller than the CSV");
+    }
+
+    @Test
+    @DisplayName("Truncated or foreign input should be rejected")
+    public void testInvalidInput() throws IOException {
+        ClickTimestampLog log = new ClickTimestampLog();
+        for (int i = 0; i < 10; i++) {
+            log.add(BASE_TIME + i);
+        }
+        byte[] bytes = export(log);
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(EOFException.class,
+                    () -> BinaryExportStream.decode(new ByteArrayInputStream(truncated)),
+                    "Export cut after " + length + " bytes");
+        }
+        assertThrows(IOException.class,
+                () -> BinaryExportStream.decode(new ByteArrayInputStream("Click Number".getBytes("US-ASCII"))));
+        bytes[4] = 2;
+        byte[] newerVersion = bytes;
+        assertThrows(IOException.class, () -> BinaryExportStream.decode(new ByteArrayInputStream(newerVersion)));
+    }
+}
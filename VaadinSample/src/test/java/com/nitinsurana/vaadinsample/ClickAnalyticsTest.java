@@ -0,0 +1,133 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ClickAnalytics class
+ */
+public class ClickAnalyticsTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    private ClickAnalytics analytics;
+
+    @BeforeEach
+    public void setUp() {
+        analytics = new ClickAnalytics(new MetricsRegistry().histogram("test_interval_seconds", "Intervals"));
+    }
+
+    @Test
+    @DisplayName("Sliding window should count complete seconds and forget old ones")
+    public void testSlidingWindow() {
+        for (int second = 0; second < 5; second++) {
+            for (int i = 0; i <= second; i++) {
+                analytics.recordClick(null, BASE_TIME + second * 1000 + i, 0);
+            }
+        }
+        long now = BASE_TIME + 4_500;
+        assertEquals(1 + 2 + 3 + 4, analytics.getWindowClicks(now, 10),
+                "The second still filling up should not be counted");
+        assertEquals(3 + 4, analytics.getWindowClicks(now, 2));
+        assertEquals(15, analytics.getWindowClicks(now + 1_000, ClickAnalytics.WINDOW_SECONDS));
+        assertEquals(1.5, analytics.getClicksPerSecond(now + 1_000, 10), 1e-9);
+
+        long later = BASE_TIME + TimeUnit.SECONDS.toMillis(ClickAnalytics.WINDOW_SECONDS + 3);
+        assertEquals(4 + 5, analytics.getWindowClicks(later, ClickAnalytics.WINDOW_SECONDS),
+                "Seconds older than the window should be dropped");
+        analytics.recordClick(null, later, 0);
+        assertEquals(1, analytics.getWindowClicks(later + 1_000, 1),
+                "A reused bucket should start from zero");
+        assertEquals(16, analytics.getTotalClicks());
+        assertThrows(IllegalArgumentException.class, () -> analytics.getWindowClicks(later, 0));
+    }
+
+    @Test
+    @DisplayName("UIs of one session should share its activity until the last one is released")
+    public void testSessionTracking() {
+        Object session = new Object();
+        ClickAnalytics.SessionActivity first = analytics.attach(session);
+        ClickAnalytics.SessionActivity second = analytics.attach(session);
+        ClickAnalytics.SessionActivity other = analytics.attach(new Object());
+        assertSame(first, second, "UIs of a session should share its activity");
+        assertNotEquals(first.getLabel(), other.getLabel(), "Sessions should have distinct labels");
+        assertEquals(2, analytics.getOpenSessions());
+
+        analytics.release(first);
+        assertEquals(2, analytics.getOpenSessions(), "Session should stay while a UI is open");
+        analytics.release(second);
+        assertEquals(1, analytics.getOpenSessions(), "Session should go with its last UI");
+    }
+
+    @Test
+    @DisplayName("Top and active sessions should follow the recorded clicks")
+    public void testTopAndActiveSessions() {
+        List<ClickAnalytics.SessionActivity> sessions = new ArrayList<>();
+        for (int s = 0; s < 5; s++) {
+            sessions.add(analytics.attach(new Object()));
+        }
+        for (int s = 0; s < 4; s++) {
+            for (int i = 0; i <= s; i++) {
+                analytics.recordClick(sessions.get(s), BASE_TIME + s * 30_000L, 0);
+            }
+        }
+        List<ClickAnalytics.SessionActivity> top = analytics.getTopSessions(3);
+        assertEquals(3, top.size());
+        assertSame(sessions.get(3), top.get(0), "Busiest session should come first");
+        assertSame(sessions.get(2), top.get(1));
+        assertSame(sessions.get(1), top.get(2));
+        assertEquals(4, top.get(0).getClicks());
+        assertEquals(BASE_TIME + 90_000L, top.get(0).getLastClickTime());
+
+        long now = BASE_TIME + 100_000L;
+        assertEquals(2, analytics.getActiveSessions(now), "Only sessions clicking within the window are active");
+        assertEquals(5, analytics.getOpenSessions());
+    }
+
+    @Test
+    @DisplayName("Intervals should be recorded between consecutive clicks only")
+    public void testIntervals() {
+        analytics.recordClick(null, BASE_TIME, 0);
+        analytics.recordClick(null, BASE_TIME + 250, BASE_TIME);
+        analytics.recordClick(null, BASE_TIME + 750, BASE_TIME + 250);
+        LatencyHistogram intervals = analytics.getIntervals();
+        assertEquals(2, intervals.getCount(), "A first click has no interval");
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(750), intervals.getSumNanos());
+    }
+
+    @Test
+    @DisplayName("Concurrent clicks should all be counted without losing any")
+    public void testConcurrentClicks() throws Exception {
+        final int threads = 8;
+        final int clicksPerThread = 100_000;
+        final ClickAnalytics.SessionActivity shared = analytics.attach(new Object());
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < clicksPerThread; i++) {
+                        // Spread over three seconds so buckets roll over under contention
+                        analytics.recordClick(shared, BASE_TIME + i % 3_000, 0);
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long total = (long) threads * clicksPerThread;
+        assertEquals(total, analytics.getTotalClicks());
+        assertEquals(total, shared.getClicks());
+        assertEquals(total, analytics.getWindowClicks(BASE_TIME + 3_000, 3), "Window should not lose clicks");
+    }
+}
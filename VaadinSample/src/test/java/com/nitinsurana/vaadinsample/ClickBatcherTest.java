@@ -0,0 +1,76 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ClickBatcher class
+ */
+public class ClickBatcherTest {
+
+    private static final long SERVER_TIME = 1_700_000_000_000L;
+
+    private static class RecordingListener implements ClickBatcher.BatchListener {
+        final List<long[]> batches = new ArrayList<>();
+
+        @Override
+        public void clicksReceived(long[] timestamps) {
+            batches.add(timestamps);
+        }
+    }
+
+    @Test
+    @DisplayName("Click times should keep their spacing on the server's clock")
+    public void testClockOffset() {
+        RecordingListener listener = new RecordingListener();
+        ClickBatcher batcher = new ClickBatcher(100, listener);
+        // The browser's clock runs an hour behind
+        long browserTime = SERVER_TIME - 3_600_000L;
+        batcher.receive(new long[]{browserTime - 250, browserTime - 150, browserTime - 40}, browserTime,
+                SERVER_TIME);
+        assertEquals(1, listener.batches.size(), "One batch should be delivered");
+        assertArrayEquals(new long[]{SERVER_TIME - 250, SERVER_TIME - 150, SERVER_TIME - 40},
+                listener.batches.get(0));
+    }
+
+    @Test
+    @DisplayName("Clicks should never be dated after their arrival or before the previous click")
+    public void testClamping() {
+        RecordingListener listener = new RecordingListener();
+        ClickBatcher batcher = new ClickBatcher(100, listener);
+        batcher.receive(new long[]{900, 1_000, 1_200}, 1_000, SERVER_TIME);
+        assertArrayEquals(new long[]{SERVER_TIME - 100, SERVER_TIME, SERVER_TIME}, listener.batches.get(0),
+                "A click after the send time should be dated at the arrival");
+        // The second batch took a faster path, so its offset puts it earlier
+        batcher.receive(new long[]{1_500}, 1_600, SERVER_TIME + 50);
+        assertArrayEquals(new long[]{SERVER_TIME}, listener.batches.get(1),
+                "A click should not be dated before the previous one");
+    }
+
+    @Test
+    @DisplayName("Empty batches should be ignored and oversized ones cut to the limit")
+    public void testBatchLimits() {
+        RecordingListener listener = new RecordingListener();
+        ClickBatcher batcher = new ClickBatcher(100, 2, listener);
+        batcher.receive(new long[0], 0, SERVER_TIME);
+        batcher.receive(null, 0, SERVER_TIME);
+        assertTrue(listener.batches.isEmpty(), "Nothing should be delivered for empty batches");
+        batcher.receive(new long[]{1, 2, 3}, 3, SERVER_TIME);
+        assertEquals(2, listener.batches.get(0).length, "Only the first clicks should be kept");
+    }
+
+    @Test
+    @DisplayName("The window and limit should be shared with the browser")
+    public void testState() {
+        ClickBatcher batcher = new ClickBatcher(75, new RecordingListener());
+        assertEquals(75, batcher.getWindowMillis());
+        assertEquals(ClickBatcher.DEFAULT_MAX_CLICKS, batcher.getMaxClicks());
+        assertThrows(IllegalArgumentException.class, () -> new ClickBatcher(0, new RecordingListener()));
+        assertThrows(IllegalArgumentException.class, () -> new ClickBatcher(10, 0, new RecordingListener()));
+    }
+}
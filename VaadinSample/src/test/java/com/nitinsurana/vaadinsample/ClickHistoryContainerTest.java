@@ -0,0 +1,101 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.data.Container;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ClickHistoryContainer class
+ */
+public class ClickHistoryContainerTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    private ClickTimestampLog log;
+    private ClickHistoryContainer container;
+    private List<Container.ItemSetChangeEvent> events;
+
+    @BeforeEach
+    public void setUp() {
+        log = new ClickTimestampLog();
+        container = new ClickHistoryContainer(log);
+        events = new ArrayList<>();
+        container.addItemSetChangeListener(new Container.ItemSetChangeListener() {
+            @Override
+            public void containerItemSetChange(Container.ItemSetChangeEvent event) {
+                events.add(event);
+            }
+        });
+    }
+
+    private void click(long timestamp) {
+        log.add(timestamp);
+        container.fireEntryAdded();
+    }
+
+    @Test
+    @DisplayName("Entries should be rendered from the log with running click numbers")
+    public void testEntryText() {
+        click(BASE_TIME);
+        click(BASE_TIME + 1000);
+        String expected = "Click #2 at " + TimestampFormatter.get().formatDateTime(BASE_TIME + 1000);
+        assertEquals(expected, container.getContainerProperty(1, ClickHistoryContainer.ENTRY_PROPERTY).getValue());
+        assertEquals(expected, container.getItem(1).getItemProperty(ClickHistoryContainer.ENTRY_PROPERTY).getValue());
+        assertNull(container.getItem(2));
+    }
+
+    @Test
+    @DisplayName("Appending should fire an incremental add event for the new row")
+    public void testAddEvent() {
+        click(BASE_TIME);
+        click(BASE_TIME + 1);
+        assertEquals(2, events.size());
+        assertTrue(events.get(1) instanceof Container.Indexed.ItemAddEvent);
+        Container.Indexed.ItemAddEvent add = (Container.Indexed.ItemAddEvent) events.get(1);
+        assertEquals(1, add.getFirstIndex());
+        assertEquals(1, add.getAddedItemsCount());
+    }
+
+    @Test
+    @DisplayName("Item id ranges should be views over the requested rows only")
+    public void testItemIdRange() {
+        for (int i = 0; i < 10_000; i++) {
+            log.add(BASE_TIME + i);
+        }
+        List<?> ids = container.getItemIds(9_990, 50);
+        assertEquals(10, ids.size());
+        assertEquals(9_990, ids.get(0));
+        assertEquals(9_999, ids.get(9));
+        assertEquals(10_000, container.getItemIds().size());
+        assertEquals(9_999, container.lastItemId());
+        assertNull(container.nextItemId(9_999));
+        assertEquals(5, container.prevItemId(6));
+    }
+
+    @Test
+    @DisplayName("Clearing should restart the rows but keep counting clicks")
+    public void testCleared() {
+        click(BASE_TIME);
+        click(BASE_TIME + 1);
+        log.clear();
+        container.fireCleared();
+        assertEquals(0, container.size());
+        assertFalse(events.get(events.size() - 1) instanceof Container.Indexed.ItemAddEvent);
+        click(BASE_TIME + 2);
+        String text = (String) container.getContainerProperty(0, ClickHistoryContainer.ENTRY_PROPERTY).getValue();
+        assertTrue(text.startsWith("Click #3 at "), text);
+    }
+
+    @Test
+    @DisplayName("Container should be read-only")
+    public void testReadOnly() {
+        assertThrows(UnsupportedOperationException.class, () -> container.addItem());
+        assertThrows(UnsupportedOperationException.class, () -> container.removeAllItems());
+    }
+}
@@ -0,0 +1,203 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ClickJournal class
+ */
+public class ClickJournalTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+    private static final long COMMIT_MILLIS = 20;
+
+    @TempDir
+    Path directory;
+
+    private File journalFile() {
+        return directory.resolve(ClickJournal.FILE_NAME).toFile();
+    }
+
+    @Test
+    @DisplayName("Recovery should replay the clicks and clears of one history")
+    public void testRecovery() {
+        UUID key = UUID.randomUUID();
+        UUID otherKey = UUID.randomUUID();
+        ClickJournal journal = new ClickJournal(journalFile(), COMMIT_MILLIS);
+        for (int i = 0; i < 5; i++) {
+            journal.append(key, ClickJournal.CLICK, BASE_TIME + i);
+        }
+        journal.append(otherKey, ClickJournal.CLICK, BASE_TIME + 100);
+        journal.append(key, ClickJournal.CLEAR, BASE_TIME + 10);
+        journal.append(key, ClickJournal.CLICK, BASE_TIME + 20);
+        journal.append(key, ClickJournal.CLICK, BASE_TIME + 21);
+        journal.close();
+
+        // A new instance stands in for a restarted node
+        ClickJournal reopened = new ClickJournal(journalFile(), COMMIT_MILLIS);
+        ClickTimestampLog log = new ClickTimestampLog();
+        assertEquals(7, reopened.recover(key, log), "All clicks of the history should be replayed");
+        assertArrayEquals(new long[] {BASE_TIME + 20, BASE_TIME + 21}, log.toArray(),
+                "Only clicks after the last clear should be in the log");
+        assertEquals(6, log.getFirstNumber(), "Numbering should continue after the replayed clear");
+
+        ClickTimestampLog otherLog = new ClickTimestampLog();
+        assertEquals(1, reopened.recover(otherKey, otherLog));
+        assertArrayEquals(new long[] {BASE_TIME + 100}, otherLog.toArray());
+        assertEquals(0, reopened.recover(UUID.randomUUID(), new ClickTimestampLog()),
+                "An unknown history should be empty");
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Recovery should include events that are still queued")
+    public void testRecoveryCommitsQueuedEvents() {
+        UUID key = UUID.randomUUID();
+        ClickJournal journal = new ClickJournal(journalFile(), 60_000);
+        journal.append(key, ClickJournal.CLICK, BASE_TIME);
+        ClickTimestampLog log = new ClickTimestampLog();
+        assertEquals(1, journal.recover(key, log));
+        assertEquals(BASE_TIME, log.get(0));
+        assertEquals(0, journal.getCommitCount(), "Recovery should not wait for a commit");
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("Events from many threads should be written in few group commits")
+    public void testGroupCommit() throws Exception {
+        final ClickJournal journal = new ClickJournal(journalFile(), COMMIT_MILLIS);
+        final int threads = 4;
+        final int eventsPerThread = 5_000;
+        final List<UUID> keys = new ArrayList<>();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final UUID key = UUID.randomUUID();
+            keys.add(key);
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        journal.append(key, ClickJournal.CLICK, BASE_TIME + i);
+                    }
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        journal.sync();
+
+        assertEquals((long) threads * eventsPerThread * ClickJournal.RECORD_BYTES, journalFile().length());
+        assertTrue(journal.getCommitCount() < threads * eventsPerThread / 100,
+                "Events should be batched, but took " + journal.getCommitCount() + " commits");
+        for (UUID key : keys) {
+            ClickTimestampLog log = new ClickTimestampLog();
+            assertEquals(eventsPerThread, journal.recover(key, log));
+            assertEquals(BASE_TIME + eventsPerThread - 1, log.get(eventsPerThread - 1),
+                    "Each history should keep its own order");
+        }
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("Torn and corrupt records should be skipped on recovery")
+    public void testDamagedJournal() throws Exception {
+        UUID key = UUID.randomUUID();
+        ClickJournal journal = new ClickJournal(journalFile(), COMMIT_MILLIS);
+        for (int i = 0; i < 3; i++) {
+            journal.append(key, ClickJournal.CLICK, BASE_TIME + i);
+        }
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile(), "rw")) {
+            // Flip a timestamp bit of the middle record, then tear a record at the end
+            file.seek(ClickJournal.RECORD_BYTES + 23);
+            int value = file.read();
+            file.seek(ClickJournal.RECORD_BYTES + 23);
+            file.write(value ^ 1);
+            file.seek(file.length());
+            file.write(new byte[10]);
+        }
+
+        ClickJournal reopened = new ClickJournal(journalFile(), COMMIT_MILLIS);
+        assertEquals(3L * ClickJournal.RECORD_BYTES, journalFile().length(), "Torn record should be cut off");
+        reopened.append(key, ClickJournal.CLICK, BASE_TIME + 3);
+        ClickTimestampLog log = new ClickTimestampLog();
+        assertEquals(3, reopened.recover(key, log));
+        assertArrayEquals(new long[] {BASE_TIME, BASE_TIME + 2, BASE_TIME + 3}, log.toArray());
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Compaction should keep only what recovery needs")
+    public void testCompaction() {
+        UUID cleared = UUID.randomUUID();
+        UUID untouched = UUID.randomUUID();
+        UUID empty = UUID.randomUUID();
+        ClickJournal journal = new ClickJournal(journalFile(), COMMIT_MILLIS);
+        for (int i = 0; i < 5; i++) {
+            journal.append(cleared, ClickJournal.CLICK, BASE_TIME + i);
+            journal.append(untouched, ClickJournal.CLICK, BASE_TIME + 50 + i);
+            journal.append(empty, ClickJournal.CLICK, BASE_TIME + 100 + i);
+        }
+        journal.append(cleared, ClickJournal.CLEAR, BASE_TIME + 10);
+        journal.append(empty, ClickJournal.CLEAR, BASE_TIME + 110);
+        journal.append(cleared, ClickJournal.CLICK, BASE_TIME + 20);
+        journal.append(cleared, ClickJournal.CLICK, BASE_TIME + 21);
+        journal.compactNow();
+
+        // Each cleared history keeps a count and its clear, the rest only clicks since a clear
+        assertEquals(11L * ClickJournal.RECORD_BYTES, journalFile().length(), "Cleared clicks should be dropped");
+        assertRecovered(journal, cleared, 7, 6, BASE_TIME + 20, BASE_TIME + 21);
+        assertRecovered(journal, untouched, 5, 1, BASE_TIME + 50, BASE_TIME + 51, BASE_TIME + 52,
+                BASE_TIME + 53, BASE_TIME + 54);
+        assertRecovered(journal, empty, 5, 6);
+
+        journal.append(cleared, ClickJournal.CLICK, BASE_TIME + 22);
+        journal.close();
+        ClickJournal reopened = new ClickJournal(journalFile(), COMMIT_MILLIS);
+        assertRecovered(reopened, cleared, 8, 6, BASE_TIME + 20, BASE_TIME + 21, BASE_TIME + 22);
+        assertRecovered(reopened, empty, 5, 6);
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Histories should be forgotten once their retention period is over")
+    public void testExpiry() {
+        UUID expired = UUID.randomUUID();
+        UUID recent = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        ClickJournal journal = new ClickJournal(journalFile(), COMMIT_MILLIS, 60_000);
+        journal.append(expired, ClickJournal.CLICK, now - 120_000);
+        journal.append(recent, ClickJournal.CLICK, now - 120_000);
+        journal.append(recent, ClickJournal.CLICK, now);
+        journal.close();
+
+        ClickJournal reopened = new ClickJournal(journalFile(), COMMIT_MILLIS, 60_000);
+        assertRecovered(reopened, expired, 0, 1);
+        assertRecovered(reopened, recent, 2, 1, now - 120_000, now);
+        reopened.compactNow();
+        assertEquals(2L * ClickJournal.RECORD_BYTES, journalFile().length(),
+                "Records of an expired history should be dropped");
+        reopened.close();
+    }
+
+    private static void assertRecovered(ClickJournal journal, UUID key, int clicks, long firstNumber,
+                                        long... timestamps) {
+        ClickTimestampLog log = new ClickTimestampLog();
+        assertEquals(clicks, journal.recover(key, log), "All clicks of the history should be counted");
+        assertArrayEquals(timestamps, log.toArray());
+        assertEquals(firstNumber, log.getFirstNumber(), "Numbering should continue after the cleared clicks");
+    }
+}
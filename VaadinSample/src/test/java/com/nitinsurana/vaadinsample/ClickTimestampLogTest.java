@@ -0,0 +1,405 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ClickTimestampLog class
+ */
+public class ClickTimestampLogTest {
+
+    private static final int CLICKS = 200_000;
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("Timestamps should be returned in insertion order across chunks")
+    public void testAddAndGet() {
+        ClickTimestampLog log = new ClickTimestampLog();
+        int count = ClickTimestampLog.CHUNK_SIZE * 3 + 7;
+        for (int i = 0; i < count; i++) {
+            log.add(BASE_TIME + i);
+        }
+        assertEquals(count, log.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(BASE_TIME + i, log.get(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> log.get(count));
+    }
+
+    @Test
+    @DisplayName("Off-heap mode should store the same timestamps")
+    public void testOffHeapMode() {
+        ClickTimestampLog log = new ClickTimestampLog(true);
+        assertTrue(log.isOffHeap());
+        for (int i = 0; i < ClickTimestampLog.CHUNK_SIZE + 1; i++) {
+            log.add(BASE_TIME + i * 1000L);
+        }
+        assertEquals(BASE_TIME + ClickTimestampLog.CHUNK_SIZE * 1000L, log.get(ClickTimestampLog.CHUNK_SIZE));
+        assertArrayEquals(new long[]{BASE_TIME, BASE_TIME + 1000L}, Arrays.copyOf(log.toArray(), 2));
+    }
+
+    @Test
+    @DisplayName("Clear should empty the log and allow reuse")
+    public void testClear() {
+        ClickTimestampLog log = new ClickTimestampLog();
+        log.add(BASE_TIME);
+        log.add(BASE_TIME + 1);
+        log.clear();
+        assertTrue(log.isEmpty());
+        log.add(BASE_TIME + 2);
+        assertEquals(1, log.size());
+        assertEquals(BASE_TIME + 2, log.get(0));
+    }
+
+    @Test
+    @DisplayName("Log should survive Java serialization in both storage modes")
+    public void testSerialization() throws Exception {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            ClickTimestampLog log = new ClickTimestampLog(offHeap);
+            for (int i = 0; i < 1500; i++) {
+                log.add(BASE_TIME + i);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(log);
+            }
+            ClickTimestampLog copy;
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                copy = (ClickTimestampLog) in.readObject();
+            }
+            assertEquals(offHeap, copy.isOffHeap());
+            assertArrayEquals(log.toArray(), copy.toArray());
+        }
+    }
+
+    @Test
+    @DisplayName("Retention should spill old entries to disk while keeping the full history readable")
+    public void testRetentionSpillsToDisk(@TempDir Path spillDirectory) throws IOException {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            ClickTimestampLog log = new ClickTimestampLog(offHeap, 100, spillDirectory.toFile());
+            int count = 1_000;
+            for (int i = 0; i < count; i++) {
+                log.add(BASE_TIME + i);
+                assertTrue(i + 1 - log.getSpilledCount() >= Math.min(i + 1, 100),
+                        "At least the newest 100 entries should stay in memory");
+                assertTrue(i + 1 - log.getSpilledCount() <= 150, "The ring should stay bounded");
+            }
+            assertTrue(log.getSpilledCount() >= count - 150, "Older entries should have been spilled");
+            for (int i = 0; i < count; i++) {
+                assertEquals(BASE_TIME + i, log.get(i));
+            }
+            long[] all = log.toArray();
+            assertEquals(count, all.length);
+            assertEquals(BASE_TIME + count - 1, all[count - 1]);
+            assertEquals(1, countFiles(spillDirectory));
+
+            log.clear();
+            assertEquals(0, countFiles(spillDirectory), "Clearing should delete the spill file");
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshots should keep reading spilled entries after the log is cleared")
+    public void testSnapshotKeepsSpillFile(@TempDir Path spillDirectory) throws IOException {
+        ClickTimestampLog log = new ClickTimestampLog(false, 16, spillDirectory.toFile());
+        for (int i = 0; i < 200; i++) {
+            log.add(BASE_TIME + i);
+        }
+        ClickTimestampLog.Snapshot snapshot = log.snapshot();
+        for (int i = 200; i < 400; i++) {
+            log.add(BASE_TIME + i);
+        }
+        log.clear();
+        assertEquals(1, countFiles(spillDirectory), "An open snapshot should keep the spill file");
+
+        assertEquals(200, snapshot.size());
+        long[] values = new long[200];
+        snapshot.read(0, values, 0, 200);
+        for (int i = 0; i < 200; i++) {
+            assertEquals(BASE_TIME + i, values[i]);
+            assertEquals(BASE_TIME + i, snapshot.get(i));
+        }
+        snapshot.close();
+        assertEquals(0, countFiles(spillDirectory), "Closing the last snapshot should delete the file");
+    }
+
+    @Test
+    @DisplayName("Spilling log should survive Java serialization")
+    public void testRetentionSerialization(@TempDir Path spillDirectory) throws Exception {
+        ClickTimestampLog log = new ClickTimestampLog(false, 32, spillDirectory.toFile());
+        for (int i = 0; i < 500; i++) {
+            log.add(BASE_TIME + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(log);
+        }
+        ClickTimestampLog copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (ClickTimestampLog) in.readObject();
+        }
+        assertEquals(32, copy.getRetention());
+        assertArrayEquals(log.toArray(), copy.toArray());
+        log.clear();
+        copy.clear();
+    }
+
+    @Test
+    @DisplayName("Serialized log should take a few bytes per click and keep the click numbering")
+    public void testCompactSerialization() throws Exception {
+        ClickTimestampLog log = new ClickTimestampLog();
+        log.add(BASE_TIME);
+        log.clear();
+        for (int i = 0; i < 10_000; i++) {
+            // Seconds apart, with the occasional step back of the clock
+            log.add(BASE_TIME + i * 1_234L - (i % 100 == 0 ? 5_000 : 0));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(log);
+        }
+        assertTrue(bytes.size() < 10_000 * 3, "Serialized log took " + bytes.size() + " bytes");
+        ClickTimestampLog copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (ClickTimestampLog) in.readObject();
+        }
+        assertEquals(2, copy.getFirstNumber(), "Numbering should continue after the cleared click");
+        assertArrayEquals(log.toArray(), copy.toArray());
+    }
+
+    @Test
+    @DisplayName("A compacted log should pack its chunks, stay readable and unpack on the next click")
+    public void testCompact() throws Exception {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            ClickTimestampLog log = new ClickTimestampLog(offHeap);
+            int count = ClickTimestampLog.CHUNK_SIZE * 3 + 7;
+            for (int i = 0; i < count; i++) {
+                log.add(BASE_TIME + i * 1_234L - (i % 100 == 0 ? 5_000 : 0));
+            }
+            long[] clicks = log.toArray();
+            ClickTimestampLog.Snapshot before = log.snapshot();
+
+            long reclaimed = log.compact(false);
+            assertTrue(log.isCompacted());
+            assertTrue(reclaimed > count * 5L, "Packing should release most of the chunks, released " + reclaimed);
+            assertEquals(0, log.compact(false), "Compacting again should release nothing");
+            assertEquals(count, log.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(clicks[i], log.get(i));
+            }
+            assertArrayEquals(clicks, log.toArray());
+            long[] values = new long[count];
+            before.read(0, values, 0, count);
+            assertArrayEquals(clicks, values, "Snapshots should keep their chunks");
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(log);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                assertArrayEquals(clicks, ((ClickTimestampLog) in.readObject()).toArray());
+            }
+
+            log.add(BASE_TIME + count * 1_234L);
+            assertFalse(log.isCompacted(), "Adding should unpack the log");
+            assertFalse(log.expand(), "Nothing should be left to unpack");
+            assertEquals(count + 1, log.size());
+            assertArrayEquals(clicks, Arrays.copyOf(log.toArray(), count));
+            assertEquals(BASE_TIME + count * 1_234L, log.get(count));
+        }
+    }
+
+    @Test
+    @DisplayName("Compacting to disk should move full chunks to the spill file")
+    public void testCompactToDisk(@TempDir Path spillDirectory) throws IOException {
+        for (int retention : new int[]{0, 100}) {
+            ClickTimestampLog log = new ClickTimestampLog(false, retention, spillDirectory.toFile());
+            int count = retention == 0 ? ClickTimestampLog.CHUNK_SIZE * 3 + 7 : 130;
+            for (int i = 0; i < count; i++) {
+                log.add(BASE_TIME + i);
+            }
+            int inMemory = count - log.getSpilledCount();
+
+            assertTrue(log.compact(true) > 0);
+            assertTrue(log.isCompacted(), "The partly filled last chunk should be packed");
+            assertTrue(count - log.getSpilledCount() < inMemory, "Full chunks should have been spilled");
+            assertEquals(1, countFiles(spillDirectory));
+            assertArrayEquals(LongStream.range(0, count).map(i -> BASE_TIME + i).toArray(), log.toArray());
+
+            // Keeps appending and growing past the spilled chunks
+            for (int i = count; i < count * 4; i++) {
+                log.add(BASE_TIME + i);
+            }
+            for (int i = 0; i < count * 4; i++) {
+                assertEquals(BASE_TIME + i, log.get(i));
+            }
+            log.clear();
+            assertEquals(0, countFiles(spillDirectory), "Clearing should delete the spill file");
+        }
+    }
+
+    @Test
+    @DisplayName("Readers should always see a consistent prefix while one thread appends")
+    public void testConcurrentSnapshots() throws Exception {
+        stress(new ClickTimestampLog(), 2_000_000, 0);
+    }
+
+    @Test
+    @DisplayName("Readers should see consistent epochs while one thread appends, spills and clears")
+    public void testConcurrentSnapshotsWithSpillAndClear(@TempDir Path spillDirectory) throws Exception {
+        ClickTimestampLog log = new ClickTimestampLog(true, 64, spillDirectory.toFile());
+        stress(log, 1_000_000, 50_000);
+        log.clear();
+        assertEquals(0, countFiles(spillDirectory), "Closed snapshots should not keep spill files");
+    }
+
+    /**
+     * Appends {@code count} timestamps on one thread, clearing every
+     * {@code clearEvery} entries, while reader threads check that each
+     * snapshot is a contiguous run starting at an epoch boundary and that
+     * live sizes never shrink within an epoch.
+     */
+    private static void stress(final ClickTimestampLog log, final int count, final int clearEvery)
+            throws Exception {
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicInteger checkedSnapshots = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long[] window = new long[256];
+                    int lastSize = 0;
+                    int lastFirstNumber = 1;
+                    try {
+                        while (!done.get()) {
+                            // First numbers only grow, so equal reads bracket one epoch
+                            int firstNumber = log.getFirstNumber();
+                            int liveSize = log.size();
+                            if (firstNumber == log.getFirstNumber()) {
+                                if (firstNumber == lastFirstNumber && liveSize < lastSize) {
+                                    throw new AssertionError("Size went back from " + lastSize + " to " + liveSize);
+                                }
+                                lastFirstNumber = firstNumber;
+                                lastSize = liveSize;
+                            }
+                            try (ClickTimestampLog.Snapshot snapshot = log.snapshot()) {
+                                int size = snapshot.size();
+                                if (size == 0) {
+                                    continue;
+                                }
+                                long first = snapshot.get(0);
+                                long start = first - BASE_TIME;
+                                if (clearEvery == 0 ? start != 0 : start % clearEvery != 0) {
+                                    throw new AssertionError("Snapshot starts mid-epoch at " + start);
+                                }
+                                int middle = size / 2;
+                                for (int from : new int[] {0, middle, Math.max(0, size - window.length)}) {
+                                    int length = Math.min(window.length, size - from);
+                                    snapshot.read(from, window, 0, length);
+                                    for (int i = 0; i < length; i++) {
+                                        if (window[i] != first + from + i) {
+                                            throw new AssertionError("Entry " + (from + i) + " of " + size
+                                                    + " was " + (window[i] - BASE_TIME));
+                                        }
+                                    }
+                                }
+                                checkedSnapshots.incrementAndGet();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        for (int i = 0; i < count; i++) {
+            if (clearEvery > 0 && i > 0 && i % clearEvery == 0) {
+                log.clear();
+            }
+            log.add(BASE_TIME + i);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("Reader failed", failure.get());
+        }
+        assertTrue(checkedSnapshots.get() > 0, "Readers should have checked some snapshots");
+        int expectedSize = clearEvery == 0 ? count : (count - 1) % clearEvery + 1;
+        assertEquals(expectedSize, log.size());
+        assertEquals(count - expectedSize + 1, log.getFirstNumber());
+        assertEquals(BASE_TIME + count - 1, log.get(expectedSize - 1));
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    @DisplayName("Primitive log should retain far fewer heap bytes per click than List<Long>")
+    public void testMemoryFootprintPerClick() throws Exception {
+        long listBytes = HeapMeasurement.retainedBytes(new Callable<Object>() {
+            @Override
+            public Object call() {
+                List<Long> list = new ArrayList<>();
+                for (int i = 0; i < CLICKS; i++) {
+                    list.add(BASE_TIME + i * 997L);
+                }
+                return list;
+            }
+        });
+        long heapLogBytes = HeapMeasurement.retainedBytes(logFactory(false));
+        long offHeapLogBytes = HeapMeasurement.retainedBytes(logFactory(true));
+
+        double listPerClick = (double) listBytes / CLICKS;
+        double heapLogPerClick = (double) heapLogBytes / CLICKS;
+        double offHeapLogPerClick = (double) offHeapLogBytes / CLICKS;
+
+        assertTrue(listPerClick >= 16, "List<Long> should cost at least a boxed Long per click, was " + listPerClick);
+        assertTrue(heapLogPerClick <= 9, "Heap log should cost about 8 bytes per click, was " + heapLogPerClick);
+        assertTrue(heapLogPerClick * 2 < listPerClick,
+                "Heap log (" + heapLogPerClick + " B/click) should be less than half of List<Long> ("
+                        + listPerClick + " B/click)");
+        assertTrue(offHeapLogPerClick < 1, "Off-heap log should retain almost no heap, was " + offHeapLogPerClick);
+    }
+
+    private static Callable<Object> logFactory(final boolean offHeap) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() {
+                ClickTimestampLog log = new ClickTimestampLog(offHeap);
+                for (int i = 0; i < CLICKS; i++) {
+                    log.add(BASE_TIME + i * 997L);
+                }
+                return log;
+            }
+        };
+    }
+}
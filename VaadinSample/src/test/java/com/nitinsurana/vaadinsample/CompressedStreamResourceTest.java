@@ -0,0 +1,123 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.DownloadStream;
+import com.vaadin.server.StreamResource;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.util.CurrentInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CompressedStreamResource class
+ */
+public class CompressedStreamResourceTest {
+
+    private static final byte[] CSV = "Click Number,Timestamp\n1,\"2024-01-31 13:45:07\"\n"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @AfterEach
+    public void tearDown() {
+        CurrentInstance.set(VaadinRequest.class, null);
+    }
+
+    private static CompressedStreamResource resource(int level) {
+        return new CompressedStreamResource(new StreamResource.StreamSource() {
+            @Override
+            public InputStream getStream() {
+                return new ByteArrayInputStream(CSV);
+            }
+        }, "history.csv", level, 8192);
+    }
+
+    private static void setAcceptEncoding(final String acceptEncoding) {
+        VaadinRequest request = (VaadinRequest) Proxy.newProxyInstance(
+                CompressedStreamResourceTest.class.getClassLoader(), new Class<?>[] {VaadinRequest.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        boolean acceptEncodingHeader = "getHeader".equals(method.getName())
+                                && "Accept-Encoding".equalsIgnoreCase((String) args[0]);
+                        return acceptEncodingHeader ? acceptEncoding : null;
+                    }
+                });
+        CurrentInstance.set(VaadinRequest.class, request);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Clients accepting gzip should get a gzip-encoded stream")
+    public void testGzipNegotiated() throws IOException {
+        setAcceptEncoding("gzip, deflate, br");
+        DownloadStream stream = resource(6).getStream();
+        assertEquals("gzip", stream.getParameter(CompressedStreamResource.CONTENT_ENCODING));
+        assertEquals("Accept-Encoding", stream.getParameter(CompressedStreamResource.VARY));
+        assertEquals(8192, stream.getBufferSize());
+        assertArrayEquals(CSV, readFully(new GZIPInputStream(stream.getStream())));
+    }
+
+    @Test
+    @DisplayName("Clients without gzip should get the plain stream")
+    public void testPlainWithoutGzip() throws IOException {
+        setAcceptEncoding("identity");
+        DownloadStream stream = resource(6).getStream();
+        assertNull(stream.getParameter(CompressedStreamResource.CONTENT_ENCODING));
+        assertEquals("Accept-Encoding", stream.getParameter(CompressedStreamResource.VARY));
+        assertArrayEquals(CSV, readFully(stream.getStream()));
+
+        CurrentInstance.set(VaadinRequest.class, null);
+        assertArrayEquals(CSV, readFully(resource(6).getStream().getStream()), "No request means no gzip");
+    }
+
+    @Test
+    @DisplayName("Level 0 should disable compression entirely")
+    public void testCompressionDisabled() throws IOException {
+        setAcceptEncoding("gzip");
+        DownloadStream stream = resource(0).getStream();
+        assertNull(stream.getParameter(CompressedStreamResource.CONTENT_ENCODING));
+        assertNull(stream.getParameter(CompressedStreamResource.VARY));
+        assertArrayEquals(CSV, readFully(stream.getStream()));
+    }
+
+    @Test
+    @DisplayName("Accept-Encoding should be parsed with q-values and wildcards")
+    public void testAcceptEncodingParsing() {
+        assertTrue(CompressedStreamResource.acceptsGzip("gzip"));
+        assertTrue(CompressedStreamResource.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(CompressedStreamResource.acceptsGzip("x-gzip"));
+        assertTrue(CompressedStreamResource.acceptsGzip("br, *"));
+        assertFalse(CompressedStreamResource.acceptsGzip(null));
+        assertFalse(CompressedStreamResource.acceptsGzip(""));
+        assertFalse(CompressedStreamResource.acceptsGzip("identity"));
+        assertFalse(CompressedStreamResource.acceptsGzip("gzip;q=0"));
+        assertFalse(CompressedStreamResource.acceptsGzip("gzip; q=0.000, *"));
+        assertFalse(CompressedStreamResource.acceptsGzip("*;q=0"));
+        assertFalse(CompressedStreamResource.acceptsGzip("gzip;q=0, *;q=1"), "Explicit gzip;q=0 wins");
+
+        assertTrue(CompressedStreamResource.accepts("gzip, deflate, br", "br"));
+        assertTrue(CompressedStreamResource.accepts("BR;q=0.9", "br"));
+        assertFalse(CompressedStreamResource.accepts("gzip, deflate", "br"));
+        assertFalse(CompressedStreamResource.accepts("br;q=0, *", "br"));
+    }
+}
@@ -0,0 +1,169 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CsvExportStream class
+ */
+public class CsvExportStreamTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    /**
+     * The export as it was built before streaming: one StringBuilder for the
+     * whole document, formatted by SimpleDateFormat.
+     */
+    private static byte[] referenceCsv(ClickTimestampLog.Snapshot timestamps) {
+        StringBuilder csv = new StringBuilder();
+        csv.append("Click Number,Timestamp\n");
+        for (int i = 0; i < timestamps.size(); i++) {
+            int clickNumber = i + 1;
+            String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(timestamps.get(i)));
+            csv.append(clickNumber)
+               .append(",")
+               .append("\"")
+               .append(timestamp.replace("\"", "\"\""))
+               .append("\"")
+               .append("\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ClickTimestampLog logWith(int clicks) {
+        ClickTimestampLog log = new ClickTimestampLog();
+        for (int i = 0; i < clicks; i++) {
+            log.add(BASE_TIME + i * 1_234L);
+        }
+        return log;
+    }
+
+    private static byte[] readFully(InputStream in, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[chunk];
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Empty history should export only the header")
+    public void testEmptyHistory() throws IOException {
+        byte[] bytes = readFully(new CsvExportStream(new ClickTimestampLog().snapshot()), 64);
+        assertEquals(CsvExportStream.HEADER, new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Streamed bytes should be identical to the in-memory export")
+    public void testIdenticalToReference() throws IOException {
+        for (int clicks : new int[]{1, 3, 500, 10_000}) {
+            ClickTimestampLog.Snapshot snapshot = logWith(clicks).snapshot();
+            byte[] expected = referenceCsv(snapshot);
+            assertArrayEquals(expected, readFully(new CsvExportStream(snapshot), 8192),
+                    "Bulk reads of " + clicks + " rows");
+            assertArrayEquals(expected, readFully(new CsvExportStream(snapshot, 256), 7),
+                    "Small reads with a small buffer for " + clicks + " rows");
+        }
+    }
+
+    @Test
+    @DisplayName("Export should stream spilled entries first, then the in-memory ring")
+    public void testIdenticalWithSpilledHistory(@TempDir Path spillDirectory) throws IOException {
+        ClickTimestampLog log = new ClickTimestampLog(false, 100, spillDirectory.toFile());
+        for (int i = 0; i < 5_000; i++) {
+            log.add(BASE_TIME + i * 1_234L);
+        }
+        assertTrue(log.getSpilledCount() > 0, "Test history should have been spilled");
+        ClickTimestampLog.Snapshot snapshot = log.snapshot();
+        byte[] expected = referenceCsv(snapshot);
+        try (InputStream in = new CsvExportStream(snapshot, 512)) {
+            assertArrayEquals(expected, readFully(in, 333));
+        }
+        log.clear();
+    }
+
+    @Test
+    @DisplayName("Export of a mostly memory-mapped history should match the in-memory exporter byte for byte")
+    public void testMappedExportIdenticalToInMemory(@TempDir Path spillDirectory) throws Exception {
+        int clicks = 1_000_000;
+        ClickTimestampLog inMemory = logWith(clicks);
+        ClickTimestampLog spilled = new ClickTimestampLog(false, 10_000, spillDirectory.toFile());
+        for (int i = 0; i < clicks; i++) {
+            spilled.add(BASE_TIME + i * 1_234L);
+        }
+        assertTrue(spilled.getSpilledCount() > clicks - 20_000, "Nearly all rows should come from the spill file");
+
+        try (InputStream expected = new CsvExportStream(inMemory.snapshot());
+             InputStream actual = new CsvExportStream(spilled.snapshot())) {
+            assertArrayEquals(digest(expected), digest(actual));
+        }
+        spilled.clear();
+    }
+
+    private static byte[] digest(InputStream in) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return digest.digest();
+    }
+
+    @Test
+    @DisplayName("Single byte reads should produce the same document")
+    public void testSingleByteReads() throws IOException {
+        ClickTimestampLog.Snapshot snapshot = logWith(300).snapshot();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new CsvExportStream(snapshot, 128);
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+        assertArrayEquals(referenceCsv(snapshot), out.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Export should reflect the snapshot even if the log changes while streaming")
+    public void testSnapshotIsolation() throws IOException {
+        ClickTimestampLog log = logWith(2_000);
+        ClickTimestampLog.Snapshot snapshot = log.snapshot();
+        byte[] expected = referenceCsv(snapshot);
+
+        InputStream in = new CsvExportStream(snapshot, 256);
+        byte[] head = new byte[100];
+        int headLength = 0;
+        while (headLength < head.length) {
+            headLength += in.read(head, headLength, head.length - headLength);
+        }
+        log.add(BASE_TIME);
+        log.clear();
+        log.add(BASE_TIME + 5);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(head);
+        out.write(readFully(in, 1024));
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Buffers too small for a row should be rejected")
+    public void testRejectsTinyBuffer() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CsvExportStream(new ClickTimestampLog().snapshot(), 16));
+    }
+}
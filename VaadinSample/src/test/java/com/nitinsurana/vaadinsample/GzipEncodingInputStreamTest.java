@@ -0,0 +1,109 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GzipEncodingInputStream class
+ */
+public class GzipEncodingInputStreamTest {
+
+    private static byte[] readFully(InputStream in, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[chunk];
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        return readFully(new GZIPInputStream(new ByteArrayInputStream(compressed)), 4096);
+    }
+
+    private static byte[] csvLike(int rows) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= rows; i++) {
+            text.append(i).append(",\"2024-01-31 13:").append(i % 60 / 10).append(i % 10).append(":07\"\n");
+        }
+        return text.toString().getBytes();
+    }
+
+    @Test
+    @DisplayName("Compressed output should be valid gzip of the source")
+    public void testRoundTrip() throws IOException {
+        Random random = new Random(42);
+        byte[] noise = new byte[100_000];
+        random.nextBytes(noise);
+        for (byte[] data : new byte[][] {new byte[0], csvLike(1), csvLike(50_000), noise}) {
+            for (int level : new int[] {1, 6, 9}) {
+                for (int bufferSize : new int[] {64, 8192}) {
+                    byte[] compressed = readFully(
+                            new GzipEncodingInputStream(new ByteArrayInputStream(data), level, bufferSize), 1000);
+                    assertArrayEquals(data, gunzip(compressed),
+                            data.length + " bytes at level " + level + " with buffer " + bufferSize);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Single byte reads should produce the same gzip stream")
+    public void testSingleByteReads() throws IOException {
+        byte[] data = csvLike(2_000);
+        InputStream in = new GzipEncodingInputStream(new ByteArrayInputStream(data), 6, 256);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int value;
+        while ((value = in.read()) != -1) {
+            out.write(value);
+        }
+        assertArrayEquals(data, gunzip(out.toByteArray()));
+    }
+
+    @Test
+    @DisplayName("Repetitive CSV rows should compress well")
+    public void testCompressionRatio() throws IOException {
+        byte[] data = csvLike(100_000);
+        byte[] compressed = readFully(new GzipEncodingInputStream(new ByteArrayInputStream(data), 6, 8192), 8192);
+        assertTrue(compressed.length * 4 < data.length,
+                "Expected at least 4:1, got " + data.length + " -> " + compressed.length);
+    }
+
+    @Test
+    @DisplayName("First compressed bytes should be available after one source buffer")
+    public void testFirstBytesEarly() throws IOException {
+        final int[] sourceBytesRead = new int[1];
+        InputStream source = new ByteArrayInputStream(csvLike(200_000)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int read = super.read(b, off, len);
+                sourceBytesRead[0] += Math.max(0, read);
+                return read;
+            }
+        };
+        InputStream in = new GzipEncodingInputStream(source, 9, 1024);
+        byte[] first = new byte[64];
+        assertEquals(10, in.read(first), "Header should come first");
+        assertTrue(in.read(first) > 0, "Deflated data should follow");
+        assertEquals(1024, sourceBytesRead[0], "Only one source buffer should have been consumed");
+    }
+
+    @Test
+    @DisplayName("Invalid levels and tiny buffers should be rejected")
+    public void testRejectsInvalidSettings() {
+        InputStream source = new ByteArrayInputStream(new byte[0]);
+        assertThrows(IllegalArgumentException.class, () -> new GzipEncodingInputStream(source, 0, 8192));
+        assertThrows(IllegalArgumentException.class, () -> new GzipEncodingInputStream(source, 10, 8192));
+        assertThrows(IllegalArgumentException.class, () -> new GzipEncodingInputStream(source, 6, 16));
+    }
+}
@@ -0,0 +1,43 @@
+package com.nitinsurana.vaadinsample;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Test helper that estimates how many heap bytes an object graph retains by
+ * comparing used heap before and after building it.
+ */
+final class HeapMeasurement {
+
+    private static volatile Object keepAlive;
+
+    private HeapMeasurement() {
+    }
+
+    /**
+     * Builds an object graph and returns the heap it retains, in bytes.
+     */
+    static long retainedBytes(Callable<?> factory) throws Exception {
+        long before = usedHeap();
+        Object graph = factory.call();
+        keepAlive = graph;
+        long after = usedHeap();
+        keepAlive = null;
+        return after - before;
+    }
+
+    static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Repeat until a collection no longer frees anything measurable
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(20);
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used - 1024) {
+                return Math.min(current, used);
+            }
+            used = current;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,124 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HistoryExportExecutor class
+ */
+public class HistoryExportExecutorTest {
+
+    @Test
+    @DisplayName("Exports beyond the running and queued limits should be refused until one finishes")
+    public void testBackpressure() throws Exception {
+        HistoryExportExecutor executor = new HistoryExportExecutor(1, 1, false);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(2);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.countDown();
+            }
+        };
+        try {
+            assertTrue(executor.submit(blocking), "First export should run");
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertTrue(executor.submit(blocking), "Second export should wait");
+            assertFalse(executor.submit(blocking), "Third export should be refused");
+            assertEquals(1, executor.getRunningJobs(), "Only one export should run");
+            assertEquals(2, executor.getPendingJobs(), "Running and waiting exports should be counted");
+
+            release.countDown();
+            assertTrue(finished.await(10, TimeUnit.SECONDS), "Admitted exports should complete");
+            final CountDownLatch done = new CountDownLatch(1);
+            assertTrue(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            }), "Exports should be accepted again once the node is idle");
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("No more exports than allowed should run at once, on virtual threads or not")
+    public void testConcurrencyLimit() throws Exception {
+        for (boolean virtualThreads : new boolean[] {false, true}) {
+            HistoryExportExecutor executor = new HistoryExportExecutor(2, 20, virtualThreads);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final CountDownLatch finished = new CountDownLatch(20);
+            try {
+                for (int i = 0; i < 20; i++) {
+                    assertTrue(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            int now = running.incrementAndGet();
+                            synchronized (maxRunning) {
+                                if (now > maxRunning.get()) {
+                                    maxRunning.set(now);
+                                }
+                            }
+                            try {
+                                Thread.sleep(5);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            running.decrementAndGet();
+                            finished.countDown();
+                        }
+                    }));
+                }
+                assertTrue(finished.await(30, TimeUnit.SECONDS), "All exports should complete");
+                assertTrue(maxRunning.get() <= 2, "At most 2 exports should run at once, was " + maxRunning.get());
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A failing export should not keep its slot")
+    public void testFailureReleasesSlot() throws Exception {
+        HistoryExportExecutor executor = new HistoryExportExecutor(1, 0, false);
+        try {
+            assertTrue(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalStateException("Expected by the test");
+                }
+            }));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (executor.getPendingJobs() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, executor.getPendingJobs(), "The failed export should be done");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Invalid limits should be rejected")
+    public void testInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new HistoryExportExecutor(0, 1, false));
+        assertThrows(IllegalArgumentException.class, () -> new HistoryExportExecutor(1, -1, false));
+    }
+}
@@ -0,0 +1,117 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HistoryExportJob class
+ */
+public class HistoryExportJobTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private static class RecordingListener implements HistoryExportJob.Listener {
+        final List<Float> progress = new ArrayList<>();
+        File completed;
+        Exception failure;
+
+        @Override
+        public void progress(HistoryExportJob job, float done) {
+            progress.add(done);
+        }
+
+        @Override
+        public void completed(HistoryExportJob job, File file) {
+            completed = file;
+        }
+
+        @Override
+        public void failed(HistoryExportJob job, Exception e) {
+            failure = e;
+        }
+    }
+
+    private static ClickTimestampLog createLog(int clicks) {
+        ClickTimestampLog log = new ClickTimestampLog();
+        for (int i = 0; i < clicks; i++) {
+            log.add(BASE_TIME + i * 1000L);
+        }
+        return log;
+    }
+
+    private static byte[] streamedCsv(ClickTimestampLog log) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new CsvExportStream(log.snapshot())) {
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                out.write(chunk, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("The exported file should match the streamed CSV")
+    public void testWritesCsv() throws Exception {
+        ClickTimestampLog log = createLog(50_000);
+        RecordingListener listener = new RecordingListener();
+        HistoryExportJob job = new HistoryExportJob(new CsvExportStream(log.snapshot(), 8192), ".csv", 8192,
+                directory.toFile(), listener);
+        assertEquals(50_000, job.getRows());
+        job.run();
+
+        assertNull(listener.failure, "Export should not fail");
+        assertNotNull(listener.completed, "Export should complete");
+        assertEquals(directory.toFile(), listener.completed.getParentFile(), "File should be in the given directory");
+        assertArrayEquals(streamedCsv(log), Files.readAllBytes(listener.completed.toPath()),
+                "File should contain the same CSV as a streamed export");
+        for (float done : listener.progress) {
+            assertTrue(done >= 0 && done <= 1, "Progress should be a fraction, was " + done);
+        }
+
+        job.discard();
+        assertFalse(listener.completed.exists(), "Discarding should delete the completed file");
+    }
+
+    @Test
+    @DisplayName("A job discarded before it runs should neither complete nor leave a file")
+    public void testDiscardedBeforeRun() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        HistoryExportJob job = new HistoryExportJob(new CsvExportStream(createLog(1_000).snapshot(), 8192), ".csv",
+                8192, directory.toFile(), listener);
+        job.discard();
+        job.run();
+
+        assertTrue(job.isDiscarded());
+        assertNull(listener.completed, "Discarded job should not complete");
+        assertNull(listener.failure, "Discarded job should not fail");
+        assertEquals(0, directory.toFile().list().length, "No file should be left behind");
+    }
+
+    @Test
+    @DisplayName("A job that cannot create its file should report the failure")
+    public void testFailure() {
+        RecordingListener listener = new RecordingListener();
+        File missing = directory.resolve("missing").toFile();
+        new HistoryExportJob(new CsvExportStream(createLog(10).snapshot(), 8192), ".csv", 8192, missing, listener)
+                .run();
+
+        assertNull(listener.completed);
+        assertNotNull(listener.failure, "Failure should be reported");
+    }
+}
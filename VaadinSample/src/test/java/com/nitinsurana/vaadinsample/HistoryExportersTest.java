@@ -0,0 +1,46 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HistoryExporters class
+ */
+public class HistoryExportersTest {
+
+    @Test
+    @DisplayName("CSV, NDJSON and binary exporters should be registered in that order")
+    public void testRegisteredExporters() {
+        List<String> names = new ArrayList<>();
+        for (HistoryExporter exporter : HistoryExporters.getAll()) {
+            names.add(exporter.getName());
+        }
+        assertEquals(3, names.size(), "Exporters: " + names);
+        assertEquals(CsvExporter.NAME, names.get(0));
+        assertEquals(NdjsonExporter.NAME, names.get(1));
+        assertEquals(BinaryExporter.NAME, names.get(2));
+    }
+
+    @Test
+    @DisplayName("Exporters should be looked up by name ignoring case")
+    public void testLookup() {
+        assertTrue(HistoryExporters.get("ndjson") instanceof NdjsonExporter);
+        assertTrue(HistoryExporters.get("BINARY") instanceof BinaryExporter);
+        assertNull(HistoryExporters.get("xlsx"), "Unknown formats should not be found");
+        assertTrue(HistoryExporters.getDefault() instanceof CsvExporter, "CSV should be the default");
+    }
+
+    @Test
+    @DisplayName("Only text formats should be compressed")
+    public void testCompressible() {
+        assertTrue(HistoryExporters.get(CsvExporter.NAME).isCompressible());
+        assertTrue(HistoryExporters.get(NdjsonExporter.NAME).isCompressible());
+        assertFalse(HistoryExporters.get(BinaryExporter.NAME).isCompressible(),
+                "Varints leave little for gzip to remove");
+    }
+}
@@ -0,0 +1,81 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyHistogram class
+ */
+public class LatencyHistogramTest {
+
+    private LatencyHistogram histogram;
+
+    @BeforeEach
+    public void setUp() {
+        histogram = new MetricsRegistry().histogram("test_seconds", "Test latency");
+    }
+
+    @Test
+    @DisplayName("Buckets should cover every value with at most 12.5% error")
+    public void testBucketBoundaries() {
+        for (long value = 0; value < 1_000_000; value += value < 100 ? 1 : 997) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.lowestValue(index) <= value, "Bucket should start at or below " + value);
+            assertTrue(LatencyHistogram.highestValue(index) >= value, "Bucket should end at or above " + value);
+            long width = LatencyHistogram.highestValue(index) - LatencyHistogram.lowestValue(index) + 1;
+            assertTrue(width <= Math.max(1, value / LatencyHistogram.SUB_BUCKETS),
+                    "Bucket of " + value + " should be narrow, was " + width);
+        }
+        for (int index = 0; index < 200; index++) {
+            assertEquals(LatencyHistogram.highestValue(index) + 1, LatencyHistogram.lowestValue(index + 1),
+                    "Buckets should be contiguous");
+        }
+    }
+
+    @Test
+    @DisplayName("Percentiles should be close to the recorded values")
+    public void testPercentiles() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500_000L, histogram.getSumNanos());
+        long p50 = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, "p50 was " + p50);
+        assertTrue(p99 >= 990_000 && p99 <= 990_000 * 1.125, "p99 was " + p99);
+    }
+
+    @Test
+    @DisplayName("Huge and negative values should still be counted")
+    public void testExtremeValues() {
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Prometheus buckets should be cumulative and end with +Inf")
+    public void testPrometheusSamples() throws Exception {
+        histogram.record(50_000);        // 50 us
+        histogram.record(2_000_000);     // 2 ms
+        histogram.record(20_000_000_000L); // 20 s
+        StringWriter out = new StringWriter();
+        histogram.writeSamples(out);
+        String text = out.toString();
+
+        assertTrue(text.contains("test_seconds_bucket{le=\"0.0001\"} 1\n"), text);
+        assertTrue(text.contains("test_seconds_bucket{le=\"0.0025\"} 2\n"), text);
+        assertTrue(text.contains("test_seconds_bucket{le=\"10\"} 2\n"), text);
+        assertTrue(text.contains("test_seconds_bucket{le=\"+Inf\"} 3\n"), text);
+        assertTrue(text.contains("test_seconds_sum 20.00205\n"), text);
+        assertTrue(text.contains("test_seconds_count 3\n"), text);
+    }
+}
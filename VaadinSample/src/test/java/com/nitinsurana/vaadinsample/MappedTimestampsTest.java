@@ -0,0 +1,83 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MappedTimestamps class
+ */
+public class MappedTimestampsTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+    private static final int ENTRIES = 1_000;
+
+    @TempDir
+    Path directory;
+
+    private SpillFile file;
+
+    @BeforeEach
+    public void setUp() {
+        file = SpillFile.create(directory.toFile());
+        long[] values = new long[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            values[i] = BASE_TIME + i * 7L;
+        }
+        file.append(LongBuffer.wrap(values));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        file.release();
+    }
+
+    @Test
+    @DisplayName("Reads should cross window boundaries transparently")
+    public void testReadAcrossWindows() {
+        MappedTimestamps mapped = new MappedTimestamps(file, ENTRIES, 64);
+        long[] values = new long[ENTRIES];
+        mapped.read(0, values, 0, ENTRIES);
+        for (int i = 0; i < ENTRIES; i++) {
+            assertEquals(BASE_TIME + i * 7L, values[i]);
+            assertEquals(BASE_TIME + i * 7L, mapped.get(i));
+        }
+
+        long[] slice = new long[100];
+        mapped.read(60, slice, 0, 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(BASE_TIME + (60 + i) * 7L, slice[i], "Slice spanning windows");
+        }
+    }
+
+    @Test
+    @DisplayName("Only the requested prefix should be readable")
+    public void testBounds() {
+        MappedTimestamps mapped = new MappedTimestamps(file, 500, 64);
+        assertEquals(500, mapped.size());
+        assertEquals(BASE_TIME + 499 * 7L, mapped.get(499));
+        assertThrows(IndexOutOfBoundsException.class, () -> mapped.get(500));
+        assertThrows(IndexOutOfBoundsException.class, () -> mapped.read(490, new long[20], 0, 20));
+        assertThrows(IllegalArgumentException.class, () -> new MappedTimestamps(file, 500, 100));
+    }
+
+    @Test
+    @DisplayName("Mapped windows should stay readable after the file is deleted")
+    public void testReadableAfterRelease() {
+        SpillFile released = SpillFile.create(directory.toFile());
+        released.append(LongBuffer.wrap(new long[] {BASE_TIME, BASE_TIME + 1}));
+        MappedTimestamps mapped = new MappedTimestamps(released, 2, 64);
+        assertEquals(BASE_TIME, mapped.get(0));
+        released.release();
+        assertFalse(Files.exists(released.getPath()), "File should have been deleted");
+        assertEquals(BASE_TIME + 1, mapped.get(1));
+    }
+}
@@ -0,0 +1,94 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MetricsRegistry class
+ */
+public class MetricsRegistryTest {
+
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    private String scrape() throws Exception {
+        StringWriter out = new StringWriter();
+        registry.write(out);
+        return out.toString();
+    }
+
+    @Test
+    @DisplayName("Counters and gauges should be written in the Prometheus text format")
+    public void testTextFormat() throws Exception {
+        MetricsRegistry.Counter requests = registry.counter("test_requests_total", "Requests served");
+        MetricsRegistry.Gauge sessions = registry.gauge("test_sessions", "Open sessions");
+        requests.increment();
+        requests.add(2);
+        sessions.add(5);
+        sessions.add(-2);
+
+        assertEquals("# HELP test_requests_total Requests served\n"
+                + "# TYPE test_requests_total counter\n"
+                + "test_requests_total 3\n"
+                + "# HELP test_sessions Open sessions\n"
+                + "# TYPE test_sessions gauge\n"
+                + "test_sessions 3\n", scrape());
+    }
+
+    @Test
+    @DisplayName("Registering a name twice should fail")
+    public void testDuplicateName() {
+        registry.counter("test_total", "First");
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("test_total", "Second"));
+    }
+
+    @Test
+    @DisplayName("Concurrent updates should not lose counts")
+    public void testConcurrentUpdates() throws Exception {
+        final MetricsRegistry.Counter counter = registry.counter("test_total", "Updates");
+        final LatencyHistogram histogram = registry.histogram("test_seconds", "Latency");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100_000; i++) {
+                        counter.increment();
+                        histogram.record(i);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(800_000, counter.get());
+        assertEquals(800_000, histogram.getCount());
+    }
+
+    @Test
+    @DisplayName("Application metrics should be registered in the default registry")
+    public void testApplicationMetrics() throws Exception {
+        AppMetrics.ensureRegistered();
+        StringWriter out = new StringWriter();
+        MetricsRegistry.getDefault().write(out);
+        String text = out.toString();
+        assertTrue(text.contains("# TYPE vaadinsample_clicks_total counter\n"), text);
+        assertTrue(text.contains("# TYPE vaadinsample_click_seconds histogram\n"), text);
+        assertTrue(text.contains("# TYPE vaadinsample_live_uis gauge\n"), text);
+        assertTrue(text.contains("# TYPE vaadinsample_history_entries gauge\n"), text);
+    }
+}
@@ -1,21 +1,46 @@
 package com.nitinsurana.vaadinsample;
 
+import com.vaadin.data.Container;
+import com.vaadin.server.ClientConnector;
 import com.vaadin.server.FileDownloader;
 import com.vaadin.server.StreamResource;
 import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.ui.Button;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.Grid;
 import com.vaadin.ui.Label;
+import com.vaadin.ui.NativeSelect;
 import com.vaadin.ui.Panel;
+import com.vaadin.ui.UI;
 import com.vaadin.ui.VerticalLayout;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import javax.servlet.http.Cookie;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +49,8 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 public class MyVaadinUITest {
 
+    private static final int MEASURED_CLICKS = 20_000;
+
     private MyVaadinUI ui;
     private VaadinRequest request;
 
@@ -60,6 +87,22 @@ public class MyVaadinUITest {
         return null;
     }
 
+    /**
+     * Helper method to get the history grid from the history panel.
+     */
+    private Grid findHistoryGrid(Panel historyPanel) {
+        assertTrue(historyPanel.getContent() instanceof Grid, "History panel should contain a Grid");
+        return (Grid) historyPanel.getContent();
+    }
+    
+    /**
+     * Helper method to read the text of a history entry.
+     */
+    private String historyEntryText(Container.Indexed history, int index) {
+        Object itemId = history.getIdByIndex(index);
+        return (String) history.getContainerProperty(itemId, ClickHistoryContainer.ENTRY_PROPERTY).getValue();
+    }
+
     @Test
     @DisplayName("UI should be initialized with content on init")
     public void testUIInitialization() {
@@ -114,16 +157,15 @@ public class MyVaadinUITest {
         
         // Get history panel and verify initial state
         Panel historyPanel = (Panel) mainLayout.getComponent(1);
-        VerticalLayout historyLayout = (VerticalLayout) historyPanel.getContent();
-        assertEquals(0, historyLayout.getComponentCount(), "History should be empty initially");
+        Container.Indexed history = findHistoryGrid(historyPanel).getContainerDataSource();
+        assertEquals(0, history.size(), "History should be empty initially");
         
         // Simulate button click
         clickButton.click();
         
         // Verify history entry was added
-        assertEquals(1, historyLayout.getComponentCount(), "History should have 1 entry after click");
-        Label historyEntry = (Label) historyLayout.getComponent(0);
-        assertTrue(historyEntry.getValue().startsWith("Click #1 at "), 
+        assertEquals(1, history.size(), "History should have 1 entry after click");
+        assertTrue(historyEntryText(history, 0).startsWith("Click #1 at "), 
                   "History entry should have correct format");
     }
 
@@ -156,7 +198,7 @@ public class MyVaadinUITest {
         
         // Get history panel
         Panel historyPanel = (Panel) mainLayout.getComponent(1);
-        VerticalLayout historyLayout = (VerticalLayout) historyPanel.getContent();
+        Container.Indexed history = findHistoryGrid(historyPanel).getContainerDataSource();
         
         // Click multiple times
         clickButton.click();
@@ -164,16 +206,12 @@ public class MyVaadinUITest {
         clickButton.click();
         
         // Verify 3 history entries were added
-        assertEquals(3, historyLayout.getComponentCount(), "History should have 3 entries after 3 clicks");
+        assertEquals(3, history.size(), "History should have 3 entries after 3 clicks");
         
         // Verify entries have correct format
-        Label firstEntry = (Label) historyLayout.getComponent(0);
-        Label secondEntry = (Label) historyLayout.getComponent(1);
-        Label thirdEntry = (Label) historyLayout.getComponent(2);
-        
-        assertTrue(firstEntry.getValue().startsWith("Click #1 at "), "First entry should be Click #1");
-        assertTrue(secondEntry.getValue().startsWith("Click #2 at "), "Second entry should be Click #2");
-        assertTrue(thirdEntry.getValue().startsWith("Click #3 at "), "Third entry should be Click #3");
+        assertTrue(historyEntryText(history, 0).startsWith("Click #1 at "), "First entry should be Click #1");
+        assertTrue(historyEntryText(history, 1).startsWith("Click #2 at "), "Second entry should be Click #2");
+        assertTrue(historyEntryText(history, 2).startsWith("Click #3 at "), "Third entry should be Click #3");
     }
 
     @Test
@@ -212,18 +250,23 @@ public class MyVaadinUITest {
         
         // Get history panel
         Panel historyPanel = (Panel) mainLayout.getComponent(1);
-        VerticalLayout historyLayout = (VerticalLayout) historyPanel.getContent();
+        Container.Indexed history = findHistoryGrid(historyPanel).getContainerDataSource();
         
         // Add some history entries
         clickButton.click();
         clickButton.click();
-        assertEquals(2, historyLayout.getComponentCount(), "History should have 2 entries");
+        assertEquals(2, history.size(), "History should have 2 entries");
         
         // Clear history
         clearHistoryButton.click();
         
         // Verify history is cleared
-        assertEquals(0, historyLayout.getComponentCount(), "History should be empty after clearing");
+        assertEquals(0, history.size(), "History should be empty after clearing");
+        
+        // Click numbering continues from the total click count
+        clickButton.click();
+        assertEquals(1, history.size(), "History should have 1 entry after clicking again");
+        assertTrue(historyEntryText(history, 0).startsWith("Click #3 at "), "Entry should keep the running click number");
     }
 
     @Test
@@ -426,10 +469,10 @@ public class MyVaadinUITest {
         ui.init(request);
         VerticalLayout layout = (VerticalLayout) ui.getContent();
         Panel historyPanel = (Panel) layout.getComponent(1);
-        VerticalLayout historyLayout = (VerticalLayout) historyPanel.getContent();
+        Grid historyGrid = findHistoryGrid(historyPanel);
         
-        assertEquals(0, historyLayout.getComponentCount(), 
-                    "History layout should be empty initially");
+        assertEquals(0, historyGrid.getContainerDataSource().size(), 
+                    "History should be empty initially");
     }
 
     @Test
@@ -609,4 +652,557 @@ public class MyVaadinUITest {
                   "Date/time should be in YYYYMMDD_HHMM format, but was: " + dateTimePart);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Selecting another format should change the export's caption, filename and content")
+    public void testExportFormatSelection() throws Exception {
+        ui.init(request);
+
+        com.vaadin.ui.HorizontalLayout buttonLayout = findButtonLayout((VerticalLayout) ui.getContent());
+        NativeSelect formatSelect = null;
+        for (int i = 0; i < buttonLayout.getComponentCount(); i++) {
+            if (buttonLayout.getComponent(i) instanceof NativeSelect) {
+                formatSelect = (NativeSelect) buttonLayout.getComponent(i);
+            }
+        }
+        assertNotNull(formatSelect, "Format select should exist");
+        assertEquals(CsvExporter.NAME, formatSelect.getValue(), "CSV should be selected initially");
+
+        Button clickButton = findButtonByCaption(buttonLayout, "Click Me");
+        clickButton.click();
+        clickButton.click();
+
+        formatSelect.setValue(NdjsonExporter.NAME);
+        assertEquals("Export NDJSON", ui.getExportButton().getCaption(), "Caption should name the format");
+        FileDownloader fileDownloader = (FileDownloader) ui.getExportButton().getExtensions().iterator().next();
+        StreamResource resource = (StreamResource) fileDownloader.getFileDownloadResource();
+        assertEquals("application/x-ndjson", resource.getMIMEType());
+        assertTrue(resource.getFilename().endsWith(".ndjson"), "Filename was " + resource.getFilename());
+        try (InputStream in = resource.getStreamSource().getStream()) {
+            String ndjson = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+                    .lines().collect(Collectors.joining("\n"));
+            assertTrue(ndjson.startsWith("{\"click\":1,"), "Content should be NDJSON: " + ndjson);
+        }
+
+        formatSelect.setValue(BinaryExporter.NAME);
+        ui.getExportButton().click();
+        resource = (StreamResource) fileDownloader.getFileDownloadResource();
+        assertEquals("application/octet-stream", resource.getMIMEType());
+        assertTrue(resource.getFilename().endsWith(".clicks"), "Filename was " + resource.getFilename());
+        assertEquals(0, ((CompressedStreamResource) resource).getCompressionLevel(),
+                "Binary exports should not be gzipped");
+        try (InputStream in = resource.getStreamSource().getStream()) {
+            assertEquals(2, BinaryExportStream.decode(in).length, "Both clicks should be exported");
+        }
+    }
+
+    @Test
+    @DisplayName("Each click should retain only a compact record, not a history string")
+    public void testRetainedSizePerClick() throws Exception {
+        long emptySession = HeapMeasurement.retainedBytes(sessionFactory(0));
+        long busySession = HeapMeasurement.retainedBytes(sessionFactory(MEASURED_CLICKS));
+        double perClick = (double) (busySession - emptySession) / MEASURED_CLICKS;
+
+        // A formatted "Click #N at yyyy-MM-dd HH:mm:ss" string alone costs 70+ bytes
+        assertTrue(perClick < 16, "Session should retain about 8 bytes per click, was " + perClick);
+    }
+
+    private Callable<Object> sessionFactory(final int clicks) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() {
+                MyVaadinUI session = new MyVaadinUI();
+                session.init(request);
+                Button clickButton = findButtonByCaption(
+                        findButtonLayout((VerticalLayout) session.getContent()), "Click Me");
+                for (int i = 0; i < clicks; i++) {
+                    clickButton.click();
+                    completeRoundTrip(session);
+                }
+                return session;
+            }
+        };
+    }
+
+    /**
+     * Helper method to flush the changes a response would send to the browser,
+     * so per-request bookkeeping is not counted as retained history.
+     */
+    private static void completeRoundTrip(UI session) {
+        ConnectorTracker tracker = session.getConnectorTracker();
+        for (ClientConnector connector : tracker.getDirtyConnectors()) {
+            connector.beforeClientResponse(false);
+            connector.retrievePendingRpcCalls();
+        }
+        tracker.markAllConnectorsClean();
+    }
+
+    @Test
+    @DisplayName("A click should only dirty the connectors whose state changed")
+    public void testDirtyConnectorsPerClick() {
+        ui.init(request);
+        VerticalLayout mainLayout = (VerticalLayout) ui.getContent();
+        Button clickButton = findButtonByCaption(findButtonLayout(mainLayout), "Click Me");
+        VerticalLayout statsLayout = (VerticalLayout) ((Panel) mainLayout.getComponent(0)).getContent();
+        Label totalClicksLabel = (Label) statsLayout.getComponent(0);
+        Label sessionStartLabel = (Label) statsLayout.getComponent(1);
+
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        for (int i = 0; i < 5; i++) {
+            tracker.markAllConnectorsClean();
+            clickButton.click();
+            Collection<ClientConnector> dirty = tracker.getDirtyConnectors();
+
+            assertTrue(dirty.contains(totalClicksLabel), "Total clicks label should be sent");
+            assertFalse(dirty.contains(sessionStartLabel), "Session start label should never be re-sent");
+            // Total clicks, the history rows and at most the two time labels
+            // when a second boundary was crossed
+            assertTrue(dirty.size() <= 4, "Click should dirty at most 4 connectors, was " + dirty);
+        }
+    }
+
+    @Test
+    @DisplayName("Clicks, clears and exports should be recorded in the metrics")
+    public void testHotPathMetrics() throws Exception {
+        ui.init(request);
+        com.vaadin.ui.HorizontalLayout buttonLayout = findButtonLayout((VerticalLayout) ui.getContent());
+        long clicks = AppMetrics.CLICKS.get();
+        long clickSamples = AppMetrics.CLICK_SECONDS.getCount();
+        long clears = AppMetrics.CLEARS.get();
+        long exports = AppMetrics.EXPORTS.get();
+        long entries = AppMetrics.HISTORY_ENTRIES.get();
+
+        Button clickButton = findButtonByCaption(buttonLayout, "Click Me");
+        clickButton.click();
+        clickButton.click();
+        assertEquals(clicks + 2, AppMetrics.CLICKS.get(), "Clicks should be counted");
+        assertEquals(clickSamples + 2, AppMetrics.CLICK_SECONDS.getCount(), "Click latency should be recorded");
+        assertEquals(entries + 2, AppMetrics.HISTORY_ENTRIES.get(), "History entries should be counted");
+
+        Button exportCsvButton = findButtonByCaption(buttonLayout, "Export CSV");
+        exportCsvButton.click();
+        FileDownloader fileDownloader = (FileDownloader) exportCsvButton.getExtensions().iterator().next();
+        ((StreamResource) fileDownloader.getFileDownloadResource()).getStreamSource().getStream().close();
+        assertEquals(exports + 1, AppMetrics.EXPORTS.get(), "Export should be counted");
+
+        findButtonByCaption(buttonLayout, "Clear History").click();
+        assertEquals(clears + 1, AppMetrics.CLEARS.get(), "Clear should be counted");
+        assertEquals(entries, AppMetrics.HISTORY_ENTRIES.get(), "Cleared entries should no longer be counted");
+    }
+
+    @Test
+    @DisplayName("Clicks should feed the node-wide analytics while the UI is attached")
+    public void testClicksFeedAnalytics() {
+        ClickAnalytics analytics = ClickAnalytics.getShared();
+        int openSessions = analytics.getOpenSessions();
+        long totalClicks = analytics.getTotalClicks();
+        final ReentrantLock lock = new ReentrantLock();
+        VaadinSession session = new VaadinSession(null) {
+            @Override
+            public Lock getLockInstance() {
+                return lock;
+            }
+
+            @Override
+            public void unlock() {
+                lock.unlock();
+            }
+        };
+        session.lock();
+        try {
+            ui.setSession(session);
+            ui.init(request);
+            assertEquals(openSessions + 1, analytics.getOpenSessions(), "Attached UI should open a session");
+            Button clickButton = findButtonByCaption(findButtonLayout((VerticalLayout) ui.getContent()), "Click Me");
+            clickButton.click();
+            clickButton.click();
+            assertEquals(totalClicks + 2, analytics.getTotalClicks(), "Clicks should be counted node-wide");
+            ui.detach();
+        } finally {
+            session.unlock();
+        }
+        assertEquals(openSessions, analytics.getOpenSessions(), "Detached UI should release its session");
+    }
+
+    @Test
+    @DisplayName("A returning browser should get its click history back from the journal")
+    public void testHistoryRecoveredFromJournal(@TempDir Path journalDirectory) throws Exception {
+        ClickJournal journal = new ClickJournal(journalDirectory.resolve(ClickJournal.FILE_NAME).toFile(), 20);
+        try {
+            ui.init(request);
+            ui.recoverHistory(request, journal);
+            Button clickButton = findButtonByCaption(findButtonLayout((VerticalLayout) ui.getContent()), "Click Me");
+            clickButton.click();
+            clickButton.click();
+            findButtonByCaption(findButtonLayout((VerticalLayout) ui.getContent()), "Clear History").click();
+            clickButton.click();
+            long[] expected = ui.getClickTimestamps().toArray();
+
+            // The browser comes back with its cookie after the session expired
+            final Cookie cookie = new Cookie(MyVaadinUI.HISTORY_COOKIE, ui.getHistoryKey().toString());
+            VaadinRequest returning = (VaadinRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {VaadinRequest.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            return "getCookies".equals(method.getName()) ? new Cookie[] {cookie} : null;
+                        }
+                    });
+            MyVaadinUI recovered = new MyVaadinUI();
+            VaadinSession session = new SerializableSession();
+            Future<Void> recovery;
+            session.lock();
+            try {
+                recovered.setSession(session);
+                recovered.init(returning);
+                recovery = recovered.recoverHistory(returning, journal);
+                // The history is read without the session lock, so the browser can click meanwhile
+                findButtonByCaption(findButtonLayout((VerticalLayout) recovered.getContent()), "Click Me").click();
+            } finally {
+                session.unlock();
+            }
+            recovery.get(5, TimeUnit.SECONDS);
+
+            long[] newer = recovered.getClickTimestamps().toArray();
+            assertEquals(expected.length + 1, newer.length, "A click made during recovery should be kept once");
+            assertArrayEquals(expected, Arrays.copyOf(newer, expected.length),
+                    "History after the last clear should be restored in front of newer clicks");
+            assertEquals(3, recovered.getClickTimestamps().getFirstNumber(),
+                    "Click numbering should continue where it stopped");
+            assertEquals(newer[newer.length - 1], recovered.getLastClickTime());
+
+            ClickTimestampLog journaled = new ClickTimestampLog();
+            assertEquals(4, journal.recover(recovered.getHistoryKey(), journaled),
+                    "The click made during recovery should be journaled after the recovered history");
+            assertArrayEquals(newer, journaled.toArray());
+
+            session.lock();
+            try {
+                recovered.detach();
+            } finally {
+                session.unlock();
+            }
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    @DisplayName("A serialized UI should restore its history and statistics")
+    public void testSerializationRoundTrip() throws Exception {
+        ui.init(request);
+        Button clickButton = findButtonByCaption(findButtonLayout((VerticalLayout) ui.getContent()), "Click Me");
+        for (int i = 0; i < 1_000; i++) {
+            clickButton.click();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(ui);
+        }
+        MyVaadinUI copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (MyVaadinUI) in.readObject();
+        }
+
+        VerticalLayout mainLayout = (VerticalLayout) copy.getContent();
+        Container.Indexed history = findHistoryGrid((Panel) mainLayout.getComponent(1)).getContainerDataSource();
+        Container.Indexed original = findHistoryGrid((Panel) ((VerticalLayout) ui.getContent()).getComponent(1))
+                .getContainerDataSource();
+        assertEquals(1_000, history.size(), "History should be restored");
+        assertEquals(historyEntryText(original, 999), historyEntryText(history, 999),
+                "Entries should be rendered as before");
+        findButtonByCaption(findButtonLayout(mainLayout), "Click Me").click();
+        assertEquals(1_001, history.size(), "A restored UI should keep logging clicks");
+        Label totalClicksLabel = (Label) ((VerticalLayout) ((Panel) mainLayout.getComponent(0)).getContent())
+                .getComponent(0);
+        assertEquals("Total Clicks: 1001", totalClicksLabel.getValue(), "Statistics should continue");
+    }
+
+    @Test
+    @DisplayName("A UI restored with its session should be counted again and closed without unbalancing the gauges")
+    public void testRestoredUiGauges() throws Exception {
+        long entries = AppMetrics.HISTORY_ENTRIES.get();
+        long liveUis = AppMetrics.LIVE_UIS.get();
+        VaadinSession session = new SerializableSession();
+        session.lock();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ui.setSession(session);
+            ui.init(request);
+            Button clickButton = findButtonByCaption(findButtonLayout((VerticalLayout) ui.getContent()), "Click Me");
+            for (int i = 0; i < 10; i++) {
+                clickButton.click();
+            }
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(ui);
+            }
+            ui.detach();
+        } finally {
+            session.unlock();
+        }
+        assertEquals(entries, AppMetrics.HISTORY_ENTRIES.get());
+        assertEquals(liveUis, AppMetrics.LIVE_UIS.get());
+
+        // As after a container restart: restored, but never attached again
+        MyVaadinUI copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (MyVaadinUI) in.readObject();
+        }
+        assertEquals(entries + 10, AppMetrics.HISTORY_ENTRIES.get(), "Restored entries should be counted");
+        assertEquals(liveUis + 1, AppMetrics.LIVE_UIS.get(), "A restored UI should be counted as live");
+
+        copy.getSession().lock();
+        try {
+            copy.detach();
+        } finally {
+            copy.getSession().unlock();
+        }
+        assertEquals(entries, AppMetrics.HISTORY_ENTRIES.get(), "Closing a restored UI should balance the gauge");
+        assertEquals(liveUis, AppMetrics.LIVE_UIS.get(), "Closing a restored UI should balance the gauge");
+    }
+
+    /**
+     * Session without a service that can be serialized along with its UIs.
+     */
+    private static final class SerializableSession extends VaadinSession {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        SerializableSession() {
+            super(null);
+        }
+
+        @Override
+        public Lock getLockInstance() {
+            return lock;
+        }
+
+        @Override
+        public void unlock() {
+            lock.unlock();
+        }
+
+        @Override
+        public Future<Void> access(Runnable runnable) {
+            // Run right away instead of going through the service
+            accessSynchronously(runnable);
+            return null;
+        }
+    }
+
+    @Test
+    @DisplayName("A batch of browser clicks should be applied to the history and statistics at once")
+    public void testClickBatch() {
+        MyVaadinUI batchingUi = new MyVaadinUI(false, 50);
+        batchingUi.init(request);
+        VerticalLayout mainLayout = (VerticalLayout) batchingUi.getContent();
+        Button clickButton = findButtonByCaption(findButtonLayout(mainLayout), "Click Me");
+        ClickBatcher batcher = null;
+        for (Object extension : clickButton.getExtensions()) {
+            if (extension instanceof ClickBatcher) {
+                batcher = (ClickBatcher) extension;
+            }
+        }
+        assertNotNull(batcher, "Click Me should be batched in the browser");
+        assertEquals(50, batcher.getWindowMillis());
+
+        Container.Indexed history = findHistoryGrid((Panel) mainLayout.getComponent(1)).getContainerDataSource();
+        final int[] addedItems = new int[1];
+        ((Container.ItemSetChangeNotifier) history).addItemSetChangeListener(new Container.ItemSetChangeListener() {
+            @Override
+            public void containerItemSetChange(Container.ItemSetChangeEvent event) {
+                addedItems[0] += ((Container.Indexed.ItemAddEvent) event).getAddedItemsCount();
+            }
+        });
+        long now = System.currentTimeMillis();
+        batcher.receive(new long[]{now - 3_300, now - 3_200, now - 3_100}, now, now);
+
+        assertEquals(3, history.size(), "Every click should be logged");
+        assertEquals(3, addedItems[0], "The grid should be told about all clicks");
+        assertArrayEquals(new long[]{now - 3_300, now - 3_200, now - 3_100},
+                batchingUi.getClickTimestamps().toArray(), "Clicks should keep their browser times");
+        assertEquals(now - 3_100, batchingUi.getLastClickTime());
+        assertTrue(historyEntryText(history, 2).startsWith("Click #3 at "));
+        VerticalLayout statsLayout = (VerticalLayout) ((Panel) mainLayout.getComponent(0)).getContent();
+        Label totalClicksLabel = (Label) statsLayout.getComponent(0);
+        assertEquals("Total Clicks: 3", totalClicksLabel.getValue());
+
+        batcher.receive(new long[]{now}, now, now);
+        String idleText = ((Label) statsLayout.getComponent(2)).getValue();
+        java.util.regex.Matcher matcher = java.util.regex.Pattern
+                .compile("Time Since Last Click: (\\d+) seconds").matcher(idleText);
+        assertTrue(matcher.find(), "Label should match expected format: '" + idleText + "'");
+        assertTrue(Integer.parseInt(matcher.group(1)) >= 3,
+                "A batch should show the time since the click before it, but showed: " + idleText);
+        assertEquals("Total Clicks: 4", totalClicksLabel.getValue());
+
+        // Server-side clicks still go through the button's listener
+        clickButton.click();
+        assertEquals(5, history.size(), "A server-side click should be logged");
+
+        ui.init(request);
+        Button defaultButton = findButtonByCaption(findButtonLayout((VerticalLayout) ui.getContent()), "Click Me");
+        assertTrue(defaultButton.getExtensions().isEmpty(), "Clicks should not be batched by default");
+    }
+
+    @Test
+    @DisplayName("A lazy bootstrap should build the history grid and the export when they are first used")
+    public void testLazyBootstrap() throws Exception {
+        MyVaadinUI lazyUi = new MyVaadinUI(false, 0, true);
+        lazyUi.init(request);
+        VerticalLayout mainLayout = (VerticalLayout) lazyUi.getContent();
+        assertEquals("Statistics Dashboard", mainLayout.getComponent(0).getCaption());
+        Panel historyPanel = (Panel) mainLayout.getComponent(1);
+        assertEquals("Click History Log", historyPanel.getCaption(), "The history panel should keep its place");
+        assertNull(historyPanel.getContent(), "The grid should not be built before the first click");
+
+        com.vaadin.ui.HorizontalLayout buttonLayout = findButtonLayout(mainLayout);
+        findButtonByCaption(buttonLayout, "Clear History").click();
+        assertNull(historyPanel.getContent(), "Clearing an empty history should not build the grid");
+
+        Button clickButton = findButtonByCaption(buttonLayout, "Click Me");
+        clickButton.click();
+        Container.Indexed history = findHistoryGrid(historyPanel).getContainerDataSource();
+        assertEquals(1, history.size(), "The first click should be shown");
+        assertTrue(historyEntryText(history, 0).startsWith("Click #1 at "));
+        clickButton.click();
+        assertEquals(2, history.size(), "Later clicks should go to the same grid");
+
+        Button exportButton = findButtonByCaption(buttonLayout, "Export CSV");
+        FileDownloader fileDownloader = (FileDownloader) exportButton.getExtensions().iterator().next();
+        StreamResource resource = (StreamResource) fileDownloader.getFileDownloadResource();
+        assertTrue(resource.getFilename().matches("click_history_\\d{8}_\\d{4}\\.csv"),
+                "Each download should get a current filename, was " + resource.getFilename());
+        try (InputStream in = resource.getStreamSource().getStream()) {
+            String csv = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+                    .lines().collect(Collectors.joining("\n"));
+            assertEquals(3, csv.split("\n").length, "Header and both clicks should be exported");
+        }
+        assertNotSame(resource, fileDownloader.getFileDownloadResource(), "Each download should be created anew");
+
+        ((NativeSelect) buttonLayout.getComponent(2)).setValue(NdjsonExporter.NAME);
+        assertEquals("application/x-ndjson",
+                ((StreamResource) fileDownloader.getFileDownloadResource()).getMIMEType(),
+                "The selected format should be downloaded");
+
+        MyVaadinUI asyncUi = new MyVaadinUI(true, 0, true);
+        asyncUi.init(request);
+        assertEquals(3, ((VerticalLayout) asyncUi.getContent()).getComponentCount(),
+                "Export progress should not be built before the first export");
+        assertNull(asyncUi.getExportProgress());
+    }
+
+    @Test
+    @DisplayName("A heartbeat after the idle period should compact the history until the next click")
+    public void testIdleCompaction() {
+        ui.init(request);
+        VerticalLayout mainLayout = (VerticalLayout) ui.getContent();
+        Button clickButton = findButtonByCaption(findButtonLayout(mainLayout), "Click Me");
+        for (int i = 0; i < 2_000; i++) {
+            clickButton.click();
+        }
+        ClickTimestampLog log = ui.getClickTimestamps();
+        long[] clicks = log.toArray();
+        long compactions = AppMetrics.IDLE_COMPACTIONS.get();
+        long reclaimedBytes = AppMetrics.IDLE_RECLAIMED_BYTES.get();
+        long rehydrations = AppMetrics.HISTORY_REHYDRATIONS.get();
+        long idleSince = ui.getLastClickTime() + AppConfig.getIdleCompactionSeconds() * 1000L;
+
+        ui.setLastHeartbeatTimestamp(idleSince - 1);
+        assertFalse(log.isCompacted(), "A UI clicked within the idle period should be left alone");
+
+        ui.setLastHeartbeatTimestamp(idleSince);
+        assertTrue(log.isCompacted(), "An idle UI's history should be compacted");
+        assertEquals(compactions + 1, AppMetrics.IDLE_COMPACTIONS.get(), "The compaction should be counted");
+        long reclaimed = AppMetrics.IDLE_RECLAIMED_BYTES.get() - reclaimedBytes;
+        assertTrue(reclaimed > clicks.length * 4L, "Packing should release most of the history, released " + reclaimed);
+        assertEquals(0, ui.compactIfIdle(idleSince + 1), "A compacted history should not be compacted again");
+
+        Container.Indexed history = findHistoryGrid((Panel) mainLayout.getComponent(1)).getContainerDataSource();
+        assertEquals(clicks.length, history.size());
+        assertTrue(historyEntryText(history, 1_999).startsWith("Click #2000 at "),
+                "The grid should keep showing a compacted history");
+        assertArrayEquals(clicks, log.toArray(), "Exports should see the same clicks");
+
+        clickButton.click();
+        assertFalse(log.isCompacted(), "The next click should restore the history");
+        assertEquals(rehydrations + 1, AppMetrics.HISTORY_REHYDRATIONS.get(), "The restore should be counted");
+        assertEquals(clicks.length + 1, log.size());
+        assertArrayEquals(clicks, Arrays.copyOf(log.toArray(), clicks.length));
+    }
+
+    @Test
+    @DisplayName("An asynchronous export should be offered as a file once it is written")
+    public void testAsyncExport() throws Exception {
+        final ReentrantLock lock = new ReentrantLock();
+        VaadinSession session = new VaadinSession(null) {
+            @Override
+            public Lock getLockInstance() {
+                return lock;
+            }
+
+            @Override
+            public void unlock() {
+                lock.unlock();
+            }
+
+            @Override
+            public Future<Void> access(Runnable runnable) {
+                // Run right away instead of going through the service
+                accessSynchronously(runnable);
+                return null;
+            }
+        };
+        MyVaadinUI asyncUi = new MyVaadinUI(true, 0);
+        session.lock();
+        try {
+            asyncUi.setSession(session);
+            asyncUi.init(request);
+            Button clickButton = findButtonByCaption(findButtonLayout((VerticalLayout) asyncUi.getContent()), "Click Me");
+            clickButton.click();
+            clickButton.click();
+            assertTrue(asyncUi.getExportButton().getExtensions().isEmpty(),
+                    "Asynchronous exports should not be downloaded on click");
+            asyncUi.getExportButton().click();
+            assertFalse(asyncUi.getExportButton().isEnabled(), "Export should be disabled while running");
+            assertTrue(asyncUi.getExportProgress().isVisible(), "Progress should be shown");
+        } finally {
+            session.unlock();
+        }
+
+        // The job reports back with the session lock, so wait without it
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            session.lock();
+            try {
+                if (asyncUi.getExportLink().isVisible()) {
+                    break;
+                }
+            } finally {
+                session.unlock();
+            }
+            Thread.sleep(5);
+        }
+
+        session.lock();
+        try {
+            assertTrue(asyncUi.getExportLink().isVisible(), "Download link should be shown");
+            assertTrue(asyncUi.getExportButton().isEnabled(), "Export should be enabled again");
+            assertFalse(asyncUi.getExportProgress().isVisible(), "Progress should be hidden");
+            File file = asyncUi.getExportFile();
+            assertTrue(file.exists(), "Export file should exist");
+            StreamResource resource = (StreamResource) asyncUi.getExportLink().getResource();
+            String csv;
+            try (InputStream in = resource.getStreamSource().getStream()) {
+                csv = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+                        .lines().collect(Collectors.joining("\n"));
+            }
+            assertTrue(csv.startsWith("Click Number,Timestamp\n1,"), "File should contain the CSV");
+            assertEquals(3, csv.split("\n").length, "File should contain both clicks");
+            assertTrue(resource.getStream().getParameter("Content-Disposition").startsWith("attachment"),
+                    "File should be downloaded instead of shown");
+
+            asyncUi.detach();
+            assertFalse(file.exists(), "Export file should be deleted with the UI");
+        } finally {
+            session.unlock();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for NdjsonExportStream class
+ */
+public class NdjsonExportStreamTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    private static List<String> lines(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)).lines()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Empty history should export nothing")
+    public void testEmptyHistory() throws IOException {
+        try (InputStream in = new NdjsonExportStream(new ClickTimestampLog().snapshot())) {
+            assertEquals(-1, in.read(), "No header should be written");
+        }
+    }
+
+    @Test
+    @DisplayName("Each click should be one JSON object with its number, local time and epoch milliseconds")
+    public void testLines() throws IOException {
+        ClickTimestampLog log = new ClickTimestampLog();
+        for (int i = 0; i < 5_000; i++) {
+            log.add(BASE_TIME + i * 1_234L);
+        }
+        List<String> lines;
+        try (InputStream in = new NdjsonExportStream(log.snapshot(), 256)) {
+            lines = lines(in);
+        }
+        assertEquals(5_000, lines.size(), "One line per click");
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        for (int i = 0; i < lines.size(); i++) {
+            long timestamp = log.get(i);
+            assertEquals("{\"click\":" + (i + 1) + ",\"timestamp\":\"" + format.format(new Date(timestamp))
+                    + "\",\"epochMillis\":" + timestamp + "}", lines.get(i), "Line " + (i + 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Timestamps before 1970 should keep their sign")
+    public void testNegativeEpoch() throws IOException {
+        ClickTimestampLog log = new ClickTimestampLog();
+        log.add(-1_234L);
+        try (InputStream in = new NdjsonExportStream(log.snapshot())) {
+            assertTrue(lines(in).get(0).endsWith(",\"epochMillis\":-1234}"));
+        }
+    }
+}
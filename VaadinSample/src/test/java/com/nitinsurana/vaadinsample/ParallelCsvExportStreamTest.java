@@ -0,0 +1,140 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ParallelCsvExportStream class
+ */
+public class ParallelCsvExportStreamTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    // More workers than cores still interleaves the segments
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static ClickTimestampLog logWith(ClickTimestampLog log, int clicks) {
+        for (int i = 0; i < clicks; i++) {
+            log.add(BASE_TIME + i * 1_234L);
+        }
+        return log;
+    }
+
+    private static byte[] readFully(InputStream in, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[chunk];
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Empty history should export only the header")
+    public void testEmptyHistory() throws IOException {
+        byte[] bytes = readFully(new ParallelCsvExportStream(new ClickTimestampLog().snapshot(), pool, 100), 64);
+        assertEquals(CsvExportStream.HEADER, new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Parallel bytes should be identical to the sequential export")
+    public void testIdenticalToSequential() throws IOException {
+        for (int clicks : new int[] {1, 999, 1_000, 1_001, 100_000}) {
+            ClickTimestampLog log = logWith(new ClickTimestampLog(), clicks);
+            byte[] expected = readFully(new CsvExportStream(log.snapshot()), 8192);
+            assertArrayEquals(expected, readFully(new ParallelCsvExportStream(log.snapshot(), pool, 1_000), 8192),
+                    "Bulk reads of " + clicks + " rows");
+            assertArrayEquals(expected, readFully(new ParallelCsvExportStream(log.snapshot(), pool, 7), 13),
+                    "Small reads of small segments for " + clicks + " rows");
+        }
+    }
+
+    @Test
+    @DisplayName("Single byte reads should return the same bytes")
+    public void testSingleByteReads() throws IOException {
+        ClickTimestampLog log = logWith(new ClickTimestampLog(), 5_000);
+        byte[] expected = readFully(new CsvExportStream(log.snapshot()), 8192);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ParallelCsvExportStream(log.snapshot(), pool, 100)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                out.write(b);
+            }
+        }
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Spilled history should be exported in order")
+    public void testSpilledHistory(@TempDir Path spillDirectory) throws IOException {
+        ClickTimestampLog log = logWith(new ClickTimestampLog(true, 1_000, spillDirectory.toFile()), 50_000);
+        assertTrue(log.getSpilledCount() > 0, "History should have been spilled");
+        byte[] expected = readFully(new CsvExportStream(log.snapshot()), 8192);
+        assertArrayEquals(expected, readFully(new ParallelCsvExportStream(log.snapshot(), pool, 3_000), 8192));
+        log.clear();
+    }
+
+    @Test
+    @DisplayName("Encoded rows should be reported up to the history length")
+    public void testEncodedRows() throws IOException {
+        ClickTimestampLog log = logWith(new ClickTimestampLog(), 10_000);
+        ParallelCsvExportStream in = new ParallelCsvExportStream(log.snapshot(), pool, 1_000);
+        assertEquals(0, in.getEncodedRows(), "Nothing should be encoded before reading");
+        byte[] buffer = new byte[CsvExportStream.HEADER.length() + 1];
+        int previous = 0;
+        while (in.read(buffer) != -1) {
+            assertTrue(in.getEncodedRows() >= previous, "Progress should not go back");
+            previous = in.getEncodedRows();
+        }
+        assertEquals(10_000, in.getEncodedRows());
+        in.close();
+    }
+
+    @Test
+    @DisplayName("Closing early should release the snapshot")
+    public void testCloseEarly(@TempDir Path spillDirectory) throws IOException {
+        ClickTimestampLog log = logWith(new ClickTimestampLog(true, 1_000, spillDirectory.toFile()), 20_000);
+        InputStream in = new ParallelCsvExportStream(log.snapshot(), pool, 500);
+        assertTrue(in.read(new byte[100]) > 0);
+        in.close();
+        log.clear();
+        assertEquals(0, spillDirectory.toFile().list().length, "Spill file should be deleted once released");
+    }
+
+    @Test
+    @DisplayName("Exports below the threshold should be encoded sequentially")
+    public void testThreshold() {
+        ClickTimestampLog log = logWith(new ClickTimestampLog(), 100);
+        assertTrue(CsvExportStream.open(log.snapshot(), 8192, 0) instanceof CsvExportStream,
+                "A threshold of 0 should disable parallel encoding");
+        assertTrue(CsvExportStream.open(log.snapshot(), 8192, 101) instanceof CsvExportStream,
+                "Histories below the threshold should be encoded sequentially");
+        boolean multiCore = Runtime.getRuntime().availableProcessors() > 1;
+        assertEquals(multiCore, CsvExportStream.open(log.snapshot(), 8192, 100) instanceof ParallelCsvExportStream,
+                "Histories at the threshold should be encoded in parallel on multi-core machines");
+    }
+}
@@ -0,0 +1,433 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.shared.Version;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StaticResourceServlet class
+ */
+public class StaticResourceServletTest {
+
+    private static final String SCRIPT_NAME = "widgetsets/app/0123456789ABCDEF.cache.js";
+    private static final byte[] SCRIPT = repeat("function f(){return 42;}\n", 200);
+
+    @TempDir
+    Path webapp;
+
+    @TempDir
+    Path tempDirectory;
+
+    private StaticResourceServlet servlet;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private int realPathLookups;
+
+    @BeforeEach
+    public void setUp() throws ServletException {
+        servlet = new StaticResourceServlet();
+        servlet.init(config("60"));
+    }
+
+    private static byte[] repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = webapp.resolve("VAADIN").resolve(name).toFile();
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] content) throws IOException {
+        return readFully(new GZIPInputStream(new ByteArrayInputStream(content)));
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private ServletConfig config(final String cacheTime) {
+        final ServletContext context = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {ServletContext.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "getRealPath":
+                                realPathLookups++;
+                                return webapp.toString() + args[0];
+                            case "getAttribute":
+                                return ServletContext.TEMPDIR.equals(args[0]) ? tempDirectory.toFile() : null;
+                            case "getMimeType":
+                                return ((String) args[0]).endsWith(".js") ? "application/javascript" : null;
+                            default:
+                                return null;
+                        }
+                    }
+                });
+        return (ServletConfig) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {ServletConfig.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "getServletContext":
+                                return context;
+                            case "getInitParameter":
+                                return StaticResourceServlet.RESOURCE_CACHE_TIME.equals(args[0]) ? cacheTime : null;
+                            case "getServletName":
+                                return "Static Resource Servlet";
+                            default:
+                                return null;
+                        }
+                    }
+                });
+    }
+
+    /**
+     * A request for {@code /VAADIN/<path>}; the query string may follow a
+     * {@code ?} in the path.
+     */
+    private HttpServletRequest request(final String method, String path, final Map<String, String> headers) {
+        int question = path == null ? -1 : path.indexOf('?');
+        final String pathInfo = question < 0 ? path : path.substring(0, question);
+        final String query = question < 0 ? null : path.substring(question + 1);
+        final Map<String, String> caseInsensitive = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        caseInsensitive.putAll(headers);
+        return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method m, Object[] args) {
+                        switch (m.getName()) {
+                            case "getMethod":
+                                return method;
+                            case "getPathInfo":
+                                return pathInfo;
+                            case "getQueryString":
+                                return query;
+                            case "getHeader":
+                                return caseInsensitive.get(args[0]);
+                            case "getDateHeader":
+                                String date = caseInsensitive.get(args[0]);
+                                return date == null ? -1L : Long.parseLong(date);
+                            case "getProtocol":
+                                return "HTTP/1.1";
+                            case "getAttribute":
+                                return attributes.get(args[0]);
+                            case "setAttribute":
+                                attributes.put((String) args[0], args[1]);
+                                return null;
+                            default:
+                                return m.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Records what the servlet writes to a response.
+     */
+    private static final class Response {
+        int status = HttpServletResponse.SC_OK;
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        HttpServletResponse proxy() {
+            final ServletOutputStream out = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+
+                public boolean isReady() {
+                    return true;
+                }
+
+                public void setWriteListener(javax.servlet.WriteListener writeListener) {
+                }
+            };
+            return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {HttpServletResponse.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            switch (method.getName()) {
+                                case "setStatus":
+                                case "sendError":
+                                    status = (Integer) args[0];
+                                    return null;
+                                case "setHeader":
+                                    headers.put((String) args[0], (String) args[1]);
+                                    return null;
+                                case "setDateHeader":
+                                    headers.put((String) args[0], Long.toString((Long) args[1]));
+                                    return null;
+                                case "setContentType":
+                                    headers.put("Content-Type", (String) args[0]);
+                                    return null;
+                                case "getOutputStream":
+                                    return out;
+                                default:
+                                    return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                            }
+                        }
+                    });
+        }
+    }
+
+    private Response get(String path, Map<String, String> headers) throws ServletException, IOException {
+        return serve("GET", path, headers);
+    }
+
+    private Response serve(String method, String path, Map<String, String> headers)
+            throws ServletException, IOException {
+        Response response = new Response();
+        servlet.service(request(method, path, headers), response.proxy());
+        return response;
+    }
+
+    private static Map<String, String> headers(String... namesAndValues) {
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return headers;
+    }
+
+    @Test
+    @DisplayName("A file of the web application should be sent with validators and a year of caching")
+    public void testServeFile() throws Exception {
+        write(SCRIPT_NAME, SCRIPT);
+        Response response = get("/" + SCRIPT_NAME, headers());
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertArrayEquals(SCRIPT, response.body.toByteArray());
+        assertEquals(Integer.toString(SCRIPT.length), response.headers.get("Content-Length"));
+        assertEquals("application/javascript", response.headers.get("Content-Type"));
+        assertEquals(StaticResourceServlet.IMMUTABLE, response.headers.get("Cache-Control"));
+        assertNotNull(response.headers.get("Last-Modified"));
+        assertNull(response.headers.get("Content-Encoding"));
+        assertNull(response.headers.get("Vary"), "No variants, nothing to vary on");
+        String etag = response.headers.get("ETag");
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""), "Strong ETag: " + etag);
+        assertEquals(etag, get("/" + SCRIPT_NAME, headers()).headers.get("ETag"), "ETags are stable");
+    }
+
+    @Test
+    @DisplayName("A precompressed variant should be sent to clients accepting its coding")
+    public void testPrecompressedVariant() throws Exception {
+        write(SCRIPT_NAME, SCRIPT);
+        write(SCRIPT_NAME + ".gz", gzip(SCRIPT));
+
+        Response compressed = get("/" + SCRIPT_NAME, headers("Accept-Encoding", "gzip, deflate"));
+        assertEquals("gzip", compressed.headers.get("Content-Encoding"));
+        assertEquals("Accept-Encoding", compressed.headers.get("Vary"));
+        assertTrue(compressed.body.size() < SCRIPT.length);
+        assertArrayEquals(SCRIPT, gunzip(compressed.body.toByteArray()));
+
+        Response plain = get("/" + SCRIPT_NAME, headers("Accept-Encoding", "gzip;q=0"));
+        assertNull(plain.headers.get("Content-Encoding"));
+        assertEquals("Accept-Encoding", plain.headers.get("Vary"));
+        assertArrayEquals(SCRIPT, plain.body.toByteArray());
+        assertNotEquals(compressed.headers.get("ETag"), plain.headers.get("ETag"),
+                "Each representation has its own ETag");
+    }
+
+    @Test
+    @DisplayName("A variant older than its resource should be ignored")
+    public void testStaleVariantIgnored() throws Exception {
+        File script = write(SCRIPT_NAME, SCRIPT);
+        File gzip = write(SCRIPT_NAME + ".gz", gzip(SCRIPT));
+        assertTrue(gzip.setLastModified(script.lastModified() - 60_000));
+        Response response = get("/" + SCRIPT_NAME, headers("Accept-Encoding", "gzip"));
+        assertNull(response.headers.get("Content-Encoding"));
+        assertArrayEquals(SCRIPT, response.body.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Revalidations should be answered with 304 and no content")
+    public void testNotModified() throws Exception {
+        write(SCRIPT_NAME, SCRIPT);
+        Response first = get("/" + SCRIPT_NAME, headers());
+        String etag = first.headers.get("ETag");
+        String lastModified = first.headers.get("Last-Modified");
+
+        Response byETag = get("/" + SCRIPT_NAME, headers("If-None-Match", "\"other\", W/" + etag));
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, byETag.status);
+        assertEquals(0, byETag.body.size());
+        assertEquals(etag, byETag.headers.get("ETag"));
+
+        Response byDate = get("/" + SCRIPT_NAME, headers("If-Modified-Since", lastModified));
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, byDate.status);
+
+        Response otherETag = get("/" + SCRIPT_NAME,
+                headers("If-None-Match", "\"other\"", "If-Modified-Since", lastModified));
+        assertEquals(HttpServletResponse.SC_OK, otherETag.status, "If-None-Match takes precedence");
+        assertArrayEquals(SCRIPT, otherETag.body.toByteArray());
+
+        Response older = get("/" + SCRIPT_NAME,
+                headers("If-Modified-Since", Long.toString(Long.parseLong(lastModified) - 5000)));
+        assertEquals(HttpServletResponse.SC_OK, older.status);
+    }
+
+    @Test
+    @DisplayName("A changed file should be sent with a new ETag")
+    public void testChangedFile() throws Exception {
+        File script = write(SCRIPT_NAME, SCRIPT);
+        String etag = get("/" + SCRIPT_NAME, headers()).headers.get("ETag");
+
+        byte[] changed = repeat("function g(){return 43;}\n", 300);
+        Files.write(script.toPath(), changed);
+        assertTrue(script.setLastModified(script.lastModified() + 2000));
+        Response response = get("/" + SCRIPT_NAME, headers("If-None-Match", etag));
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertArrayEquals(changed, response.body.toByteArray());
+        assertNotEquals(etag, response.headers.get("ETag"));
+    }
+
+    @Test
+    @DisplayName("Cache-Control should depend on whether the URL changes with the content")
+    public void testCacheControl() throws Exception {
+        write("widgetsets/app/app.nocache.js", SCRIPT);
+        write("themes/app/styles.css", SCRIPT);
+        assertEquals(StaticResourceServlet.REVALIDATE,
+                get("/widgetsets/app/app.nocache.js", headers()).headers.get("Cache-Control"));
+        assertEquals("public, max-age=60", get("/themes/app/styles.css", headers()).headers.get("Cache-Control"));
+        assertEquals(StaticResourceServlet.IMMUTABLE,
+                get("/themes/app/styles.css?v=" + Version.getFullVersion(), headers()).headers.get("Cache-Control"));
+        assertEquals("public, max-age=60",
+                get("/themes/app/styles.css?v=1.0.0", headers()).headers.get("Cache-Control"),
+                "Only the running version makes a URL immutable");
+
+        servlet.init(config("0"));
+        assertEquals(StaticResourceServlet.REVALIDATE,
+                get("/themes/app/styles.css", headers()).headers.get("Cache-Control"));
+    }
+
+    @Test
+    @DisplayName("Resources in JARs should be extracted and sent with their gzip variant")
+    public void testJarResource() throws Exception {
+        byte[] bootstrap = readFully(getClass().getClassLoader().getResourceAsStream("VAADIN/vaadinBootstrap.js"));
+
+        Response compressed = get("/vaadinBootstrap.js", headers("Accept-Encoding", "gzip"));
+        assertEquals(HttpServletResponse.SC_OK, compressed.status);
+        assertEquals("gzip", compressed.headers.get("Content-Encoding"));
+        assertArrayEquals(bootstrap, gunzip(compressed.body.toByteArray()));
+
+        Response plain = get("/vaadinBootstrap.js", headers());
+        assertArrayEquals(bootstrap, plain.body.toByteArray());
+        assertTrue(tempDirectory.resolve("static-resources/VAADIN/vaadinBootstrap.js").toFile().isFile(),
+                "Extracted to the servlet context's temporary directory");
+    }
+
+    @Test
+    @DisplayName("Directories, missing files and unsafe paths should not be found")
+    public void testNotFound() throws Exception {
+        write(SCRIPT_NAME, SCRIPT);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/widgetsets/app", headers()).status);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/widgetsets/app/missing.js", headers()).status);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/themes", headers()).status, "Directory in a JAR");
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/../WEB-INF/web.xml", headers()).status);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get(null, headers()).status);
+
+        assertTrue(StaticResourceServlet.isSafePath("/themes/reindeer/styles.css"));
+        assertFalse(StaticResourceServlet.isSafePath("/themes/../../WEB-INF/web.xml"));
+        assertFalse(StaticResourceServlet.isSafePath("/themes/./styles.css"));
+        assertFalse(StaticResourceServlet.isSafePath("/themes//styles.css"));
+        assertFalse(StaticResourceServlet.isSafePath("/META-INF/MANIFEST.MF"));
+        assertFalse(StaticResourceServlet.isSafePath("/themes\\..\\web.xml"));
+        assertFalse(StaticResourceServlet.isSafePath("themes/styles.css"));
+    }
+
+    @Test
+    @DisplayName("Missing resources should be remembered in a bounded cache")
+    public void testMissesCached() throws Exception {
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/widgetsets/app/missing.js", headers()).status);
+        int lookups = realPathLookups;
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, get("/widgetsets/app/missing.js", headers()).status);
+        assertEquals(lookups, realPathLookups, "A known miss should not be looked up again");
+
+        for (int i = 0; i <= StaticResourceServlet.MAX_MISSES; i++) {
+            get("/widgetsets/app/missing-" + i + ".js", headers());
+        }
+        assertTrue(servlet.getMissCount() <= StaticResourceServlet.MAX_MISSES,
+                "Misses should not pile up, but " + servlet.getMissCount() + " were kept");
+
+        // The file appears once the miss has been forgotten
+        write("widgetsets/app/missing.js", SCRIPT);
+        assertEquals(HttpServletResponse.SC_OK, get("/widgetsets/app/missing.js", headers()).status);
+    }
+
+    @Test
+    @DisplayName("HEAD requests should get the headers of GET without content")
+    public void testHead() throws Exception {
+        write(SCRIPT_NAME, SCRIPT);
+        Response head = serve("HEAD", "/" + SCRIPT_NAME, headers());
+        assertEquals(HttpServletResponse.SC_OK, head.status);
+        assertEquals(Integer.toString(SCRIPT.length), head.headers.get("Content-Length"));
+        assertEquals(get("/" + SCRIPT_NAME, headers()).headers.get("ETag"), head.headers.get("ETag"));
+        assertEquals(0, head.body.size());
+    }
+
+    @Test
+    @DisplayName("Content should be left to Tomcat's sendfile where it is supported")
+    public void testSendfile() throws Exception {
+        File script = write(SCRIPT_NAME, SCRIPT);
+        attributes.put(StaticResourceServlet.SENDFILE_SUPPORT, Boolean.TRUE);
+        Response response = get("/" + SCRIPT_NAME, headers());
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertEquals(0, response.body.size(), "Tomcat writes the content itself");
+        assertEquals(script.getAbsolutePath(), attributes.get(StaticResourceServlet.SENDFILE_FILENAME));
+        assertEquals(0L, attributes.get(StaticResourceServlet.SENDFILE_START));
+        assertEquals((long) SCRIPT.length, attributes.get(StaticResourceServlet.SENDFILE_END));
+    }
+}
@@ -0,0 +1,99 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StatisticsModel class
+ */
+public class StatisticsModelTest {
+
+    private UI ui;
+    private Label totalClicksLabel;
+    private Label sessionStartLabel;
+    private Label timeSinceClickLabel;
+    private Label sessionDurationLabel;
+    private StatisticsModel model;
+
+    @BeforeEach
+    public void setUp() {
+        totalClicksLabel = new Label();
+        sessionStartLabel = new Label();
+        timeSinceClickLabel = new Label();
+        sessionDurationLabel = new Label();
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.setContent(new VerticalLayout(totalClicksLabel, sessionStartLabel, timeSinceClickLabel,
+                sessionDurationLabel));
+        model = new StatisticsModel(totalClicksLabel, sessionStartLabel, timeSinceClickLabel,
+                sessionDurationLabel);
+    }
+
+    private boolean isDirty(Label label) {
+        return ui.getConnectorTracker().isDirty(label);
+    }
+
+    @Test
+    @DisplayName("Labels should show the rendered statistics")
+    public void testRendersValues() {
+        model.showClicks(3);
+        model.showTimes(42, 7);
+        assertEquals("Total Clicks: 3", totalClicksLabel.getValue());
+        assertEquals("Time Since Last Click: 7 seconds", timeSinceClickLabel.getValue());
+        assertEquals("Session Duration: 42 seconds", sessionDurationLabel.getValue());
+        assertTrue(model.isShowingTimes(42, 7), "Model should remember the shown times");
+        assertFalse(model.isShowingTimes(43, 7), "Model should notice a changed duration");
+    }
+
+    @Test
+    @DisplayName("Session start should only be written once")
+    public void testSessionStartWrittenOnce() {
+        model.showSessionStart(0);
+        String shown = sessionStartLabel.getValue();
+        assertTrue(shown.startsWith("Session Start Time: "), shown);
+        ui.getConnectorTracker().markAllConnectorsClean();
+
+        model.showSessionStart(0);
+        assertSame(shown, sessionStartLabel.getValue(), "Session start text should not be rebuilt");
+        assertFalse(isDirty(sessionStartLabel), "Session start label should stay clean");
+    }
+
+    @Test
+    @DisplayName("Unchanged values should leave their labels clean")
+    public void testUnchangedLabelsStayClean() {
+        model.showClicks(1);
+        model.showTimes(10, 2);
+        ui.getConnectorTracker().markAllConnectorsClean();
+
+        model.showClicks(2);
+        model.showTimes(10, 2);
+        assertTrue(isDirty(totalClicksLabel), "Changed click count should be sent");
+        assertFalse(isDirty(timeSinceClickLabel), "Unchanged idle time should not be sent");
+        assertFalse(isDirty(sessionDurationLabel), "Unchanged duration should not be sent");
+
+        ui.getConnectorTracker().markAllConnectorsClean();
+        model.showTimes(11, 2);
+        assertTrue(isDirty(sessionDurationLabel), "Changed duration should be sent");
+        assertFalse(isDirty(timeSinceClickLabel), "Unchanged idle time should not be sent");
+    }
+
+    @Test
+    @DisplayName("Pre-rendered texts should be used as given")
+    public void testUsesPreRenderedTexts() {
+        String durationText = StatisticsModel.sessionDurationText(5);
+        String idleText = StatisticsModel.timeSinceClickText(1);
+        model.showTimes(5, durationText, 1, idleText);
+        assertSame(durationText, sessionDurationLabel.getValue());
+        assertSame(idleText, timeSinceClickLabel.getValue());
+    }
+}
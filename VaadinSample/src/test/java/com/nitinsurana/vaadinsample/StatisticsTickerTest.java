@@ -0,0 +1,182 @@
+package com.nitinsurana.vaadinsample;
+
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Panel;
+import com.vaadin.ui.VerticalLayout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StatisticsTicker class
+ */
+public class StatisticsTickerTest {
+
+    private StatisticsTicker ticker;
+    private CountingSession firstSession;
+    private CountingSession secondSession;
+    private MyVaadinUI firstUI;
+    private MyVaadinUI secondUI;
+    private MyVaadinUI otherSessionUI;
+
+    @BeforeEach
+    public void setUp() {
+        ticker = new StatisticsTicker();
+        firstSession = new CountingSession();
+        secondSession = new CountingSession();
+        firstUI = createUI(firstSession);
+        secondUI = createUI(firstSession);
+        otherSessionUI = createUI(secondSession);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ticker.unregister(firstUI);
+        ticker.unregister(secondUI);
+        ticker.unregister(otherSessionUI);
+    }
+
+    private MyVaadinUI createUI(VaadinSession session) {
+        MyVaadinUI ui = new MyVaadinUI();
+        session.lock();
+        try {
+            ui.setSession(session);
+            ui.init(null);
+        } finally {
+            session.unlock();
+        }
+        return ui;
+    }
+
+    /**
+     * Helper method to read a statistics label by its position.
+     */
+    private String statisticsText(MyVaadinUI ui, int index) {
+        ui.getSession().lock();
+        try {
+            Panel statsPanel = (Panel) ((VerticalLayout) ui.getContent()).getComponent(0);
+            return ((Label) ((VerticalLayout) statsPanel.getContent()).getComponent(index)).getValue();
+        } finally {
+            ui.getSession().unlock();
+        }
+    }
+
+    /**
+     * Helper method returning a time at which all test UIs are in the same
+     * second of their session.
+     */
+    private long sameSecondFor(long seconds) {
+        long start = Math.min(firstUI.getSessionStartTime(),
+                Math.min(secondUI.getSessionStartTime(), otherSessionUI.getSessionStartTime()));
+        return start + seconds * 1000 + 999;
+    }
+
+    @Test
+    @DisplayName("UIs without push should not be registered by init")
+    public void testInitWithoutPushDoesNotRegister() {
+        assertEquals(0, StatisticsTicker.getShared().getRegisteredCount(),
+                "Only UIs with push enabled should get live statistics");
+    }
+
+    @Test
+    @DisplayName("A tick should lock each session once and update all its changed UIs")
+    public void testTickBatchesPerSession() {
+        ticker.register(firstUI);
+        ticker.register(secondUI);
+        ticker.register(otherSessionUI);
+
+        ticker.tick(sameSecondFor(5));
+
+        assertEquals(1, firstSession.accessCount, "Session with two UIs should be accessed once");
+        assertEquals(1, secondSession.accessCount, "Session with one UI should be accessed once");
+        for (MyVaadinUI ui : new MyVaadinUI[] {firstUI, secondUI, otherSessionUI}) {
+            assertEquals("Time Since Last Click: 5 seconds", statisticsText(ui, 2));
+            assertEquals("Session Duration: 5 seconds", statisticsText(ui, 3));
+        }
+    }
+
+    @Test
+    @DisplayName("Equal label values should be rendered once per tick")
+    public void testTextsRenderedOncePerTick() {
+        ticker.register(firstUI);
+        ticker.register(otherSessionUI);
+
+        ticker.tick(sameSecondFor(7));
+
+        assertSame(statisticsText(firstUI, 3), statisticsText(otherSessionUI, 3),
+                "UIs showing the same duration should share the rendered text");
+    }
+
+    @Test
+    @DisplayName("UIs whose displayed values did not change should be skipped")
+    public void testUnchangedUIsSkipped() {
+        ticker.register(firstUI);
+        ticker.register(otherSessionUI);
+
+        long now = sameSecondFor(3);
+        ticker.tick(now);
+        ticker.tick(now);
+
+        assertEquals(1, firstSession.accessCount, "Unchanged UI should not be accessed again");
+        assertEquals(1, secondSession.accessCount, "Unchanged UI should not be accessed again");
+
+        ticker.tick(now + 1000);
+        assertEquals(2, firstSession.accessCount, "Changed UI should be accessed");
+        assertEquals("Session Duration: 4 seconds", statisticsText(firstUI, 3));
+    }
+
+    @Test
+    @DisplayName("Scheduler should run only while UIs are registered")
+    public void testSchedulerLifecycle() {
+        assertFalse(ticker.isRunning(), "Ticker should start idle");
+        ticker.register(firstUI);
+        ticker.register(secondUI);
+        assertTrue(ticker.isRunning(), "Ticker should run with registered UIs");
+        ticker.unregister(firstUI);
+        assertTrue(ticker.isRunning(), "Ticker should keep running for the remaining UI");
+        ticker.unregister(secondUI);
+        assertFalse(ticker.isRunning(), "Ticker should stop with the last UI");
+    }
+
+    /**
+     * Session that runs access tasks immediately and counts them.
+     */
+    private static class CountingSession extends VaadinSession {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int accessCount;
+
+        CountingSession() {
+            super(null);
+        }
+
+        @Override
+        public Lock getLockInstance() {
+            return lock;
+        }
+
+        @Override
+        public void unlock() {
+            lock.unlock();
+        }
+
+        @Override
+        public Future<Void> access(Runnable runnable) {
+            accessCount++;
+            lock();
+            try {
+                runnable.run();
+            } finally {
+                unlock();
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.nitinsurana.vaadinsample;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for TimestampFormatter class
+ */
+public class TimestampFormatterTest {
+
+    private static final String[] ZONES = {
+        "UTC", "Europe/Prague", "America/New_York", "Asia/Kolkata", "Australia/Lord_Howe", "Pacific/Apia"
+    };
+
+    private static SimpleDateFormat reference(String pattern, TimeZone zone, Locale locale) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, locale);
+        format.setTimeZone(zone);
+        return format;
+    }
+
+    private static void assertMatches(TimestampFormatter formatter, SimpleDateFormat dateTime,
+                                      SimpleDateFormat fileStamp, long timestamp) {
+        String expected = dateTime.format(new Date(timestamp));
+        assertEquals(expected, formatter.formatDateTime(timestamp), "String at " + timestamp);
+
+        char[] chars = new char[40];
+        int end = formatter.formatDateTime(timestamp, chars, 3);
+        assertEquals(expected, new String(chars, 3, end - 3), "char[] at " + timestamp);
+
+        byte[] bytes = new byte[80];
+        end = formatter.formatDateTime(timestamp, bytes, 5);
+        assertEquals(expected, new String(bytes, 5, end - 5, StandardCharsets.UTF_8), "byte[] at " + timestamp);
+
+        assertEquals("x" + expected, formatter.formatDateTime(timestamp, new StringBuilder("x")).toString());
+
+        assertEquals(fileStamp.format(new Date(timestamp)),
+                formatter.formatFileStamp(timestamp, new StringBuilder()).toString(), "File stamp at " + timestamp);
+    }
+
+    @Test
+    @DisplayName("Output should match SimpleDateFormat for random timestamps in several zones")
+    public void testMatchesSimpleDateFormat() {
+        Random random = new Random(42);
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            TimestampFormatter formatter = new TimestampFormatter(zone, Locale.US);
+            SimpleDateFormat dateTime = reference("yyyy-MM-dd HH:mm:ss", zone, Locale.US);
+            SimpleDateFormat fileStamp = reference("yyyyMMdd_HHmm", zone, Locale.US);
+            for (int i = 0; i < 2000; i++) {
+                // Roughly 1900..2100, including negative epoch values
+                long timestamp = (long) ((random.nextDouble() * 200 - 70) * 365.25 * 86_400_000L);
+                assertMatches(formatter, dateTime, fileStamp, timestamp);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Consecutive timestamps should stay correct across day and DST boundaries")
+    public void testSequentialAcrossTransitions() {
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            TimestampFormatter formatter = new TimestampFormatter(zone, Locale.US);
+            SimpleDateFormat dateTime = reference("yyyy-MM-dd HH:mm:ss", zone, Locale.US);
+            SimpleDateFormat fileStamp = reference("yyyyMMdd_HHmm", zone, Locale.US);
+            // Walk through 2024 in 7 minute 13.5 second steps
+            long start = 1_704_067_200_000L;
+            for (long timestamp = start; timestamp < start + 366L * 86_400_000L; timestamp += 433_500L) {
+                assertMatches(formatter, dateTime, fileStamp, timestamp);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Years outside the fast path should still match SimpleDateFormat")
+    public void testOutOfRangeYears() {
+        TimeZone zone = TimeZone.getTimeZone("Europe/Prague");
+        TimestampFormatter formatter = new TimestampFormatter(zone, Locale.US);
+        SimpleDateFormat dateTime = reference("yyyy-MM-dd HH:mm:ss", zone, Locale.US);
+        SimpleDateFormat fileStamp = reference("yyyyMMdd_HHmm", zone, Locale.US);
+        for (long timestamp : new long[]{-15_000_000_000_000L, -12_219_292_800_001L, 253_402_300_800_000L, 0L}) {
+            assertMatches(formatter, dateTime, fileStamp, timestamp);
+        }
+    }
+
+    @Test
+    @DisplayName("Locales with other calendars or digits should match SimpleDateFormat")
+    public void testLocaleFallback() {
+        TimeZone zone = TimeZone.getTimeZone("Asia/Bangkok");
+        Locale thai = new Locale("th", "TH", "TH");
+        TimestampFormatter formatter = new TimestampFormatter(zone, thai);
+        SimpleDateFormat dateTime = reference("yyyy-MM-dd HH:mm:ss", zone, thai);
+        SimpleDateFormat fileStamp = reference("yyyyMMdd_HHmm", zone, thai);
+        assertMatches(formatter, dateTime, fileStamp, 1_700_000_000_000L);
+    }
+
+    @Test
+    @DisplayName("Formatting into a char array should not allocate")
+    public void testNoAllocation() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Thread allocation tracking is not available");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        TimestampFormatter formatter = new TimestampFormatter(TimeZone.getTimeZone("Europe/Prague"), Locale.US);
+        char[] target = new char[TimestampFormatter.DATE_TIME_LENGTH];
+        byte[] bytes = new byte[TimestampFormatter.DATE_TIME_LENGTH];
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < 20_000; i++) {
+            formatter.formatDateTime(timestamp + i * 1_001L, target, 0);
+        }
+        long threadId = Thread.currentThread().getId();
+        // The first call may allocate itself, so measure from the second one
+        allocations.getThreadAllocatedBytes(threadId);
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            formatter.formatDateTime(timestamp + i * 1_001L, target, 0);
+            formatter.formatDateTime(timestamp + i * 999L, bytes, 0);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(allocated < 4096, "Formatting 200k timestamps allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,61 @@
+package com.nitinsurana.vaadinsample;
+
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.vaadin.server.FileDownloader;
+import com.vaadin.server.communication.data.RpcDataProviderExtension;
+import com.vaadin.server.widgetsetutils.ConnectorBundleLoaderFactory;
+import com.vaadin.shared.ui.Connect;
+import com.vaadin.shared.ui.Connect.LoadStyle;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Link;
+import com.vaadin.ui.NativeSelect;
+import com.vaadin.ui.Panel;
+import com.vaadin.ui.ProgressBar;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+import com.vaadin.ui.renderers.TextRenderer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Generates the connector bundles of the production widgetset.
+ * <p>
+ * The connectors of the components and extensions that {@link MyVaadinUI}
+ * and {@link AdminUI} use are compiled into the initial fragment, so the
+ * first render needs no further download. All other connectors are loaded
+ * lazily, each from its own code-split fragment, instead of with the
+ * deferred bundle that is fetched right after every start.
+ */
+public class OptimizedConnectorBundleLoaderFactory extends ConnectorBundleLoaderFactory {
+
+    private static final Set<String> EAGER_CONNECTORS = new HashSet<>(Arrays.asList(
+            UI.class.getName(),
+            VerticalLayout.class.getName(),
+            HorizontalLayout.class.getName(),
+            Panel.class.getName(),
+            Label.class.getName(),
+            Button.class.getName(),
+            NativeSelect.class.getName(),
+            ProgressBar.class.getName(),
+            Link.class.getName(),
+            FileDownloader.class.getName(),
+            ClickBatcher.class.getName(),
+            Grid.class.getName(),
+            Grid.NoSelectionModel.class.getName(),
+            Grid.DetailComponentManager.class.getName(),
+            RpcDataProviderExtension.class.getName(),
+            TextRenderer.class.getName()));
+
+    @Override
+    protected LoadStyle getLoadStyle(JClassType connectorType) {
+        Connect connect = connectorType.getAnnotation(Connect.class);
+        if (EAGER_CONNECTORS.contains(connect.value().getName())) {
+            return LoadStyle.EAGER;
+        }
+        return LoadStyle.LAZY;
+    }
+}
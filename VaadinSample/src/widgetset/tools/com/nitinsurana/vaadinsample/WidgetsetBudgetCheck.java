@@ -0,0 +1,139 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Fails the build when a permutation's initial download is larger than the
+ * budget.
+ * <p>
+ * The check reads the GWT compile report of every permutation: the initial
+ * load sequence from {@code splitPoints<n>.xml.gz} and the fragment sizes
+ * from {@code stories<n>.xml.gz}. The initial download is the initial
+ * fragment followed by the fragments of the initial load sequence, in the
+ * order the browser fetches them before the application starts. The
+ * cumulative size is printed after each fragment, so a failure names the
+ * fragment that crossed the budget.
+ * <p>
+ * Usage: {@code WidgetsetBudgetCheck <soycReport directory> <budget in bytes>}
+ */
+public final class WidgetsetBudgetCheck {
+
+    private static final String SPLIT_POINTS = "splitPoints";
+    private static final String STORIES = "stories";
+    private static final String SUFFIX = ".xml.gz";
+
+    private WidgetsetBudgetCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: WidgetsetBudgetCheck <soycReport directory> <budget in bytes>");
+        }
+        File reportDirectory = new File(args[0]);
+        long budget = Long.parseLong(args[1]);
+        int permutations = 0;
+        List<String> failures = new ArrayList<>();
+        File report;
+        while ((report = new File(reportDirectory, SPLIT_POINTS + permutations + SUFFIX)).isFile()) {
+            long initialDownload = check(permutations, report,
+                    new File(reportDirectory, STORIES + permutations + SUFFIX), budget);
+            if (initialDownload > budget) {
+                failures.add(String.format(Locale.ROOT, "permutation %d: %,d bytes", permutations, initialDownload));
+            }
+            permutations++;
+        }
+        if (permutations == 0) {
+            throw new IllegalStateException("No compile report in " + reportDirectory
+                    + "; the widgetset must be compiled with compileReport enabled");
+        }
+        if (!failures.isEmpty()) {
+            System.err.printf(Locale.ROOT, "Initial download exceeds the budget of %,d bytes: %s%n", budget,
+                    String.join(", ", failures));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints the initial download of one permutation in load order.
+     *
+     * @return the size of the initial download in bytes
+     */
+    private static long check(int permutation, File splitPoints, File stories, long budget)
+            throws IOException, XMLStreamException {
+        Map<Integer, Long> fragmentSizes = readFragmentSizes(stories);
+        Set<Integer> loadOrder = new LinkedHashSet<>();
+        loadOrder.add(0);
+        loadOrder.addAll(readInitialSequence(splitPoints));
+        System.out.printf(Locale.ROOT, "Permutation %d initial download (budget %,d bytes):%n", permutation, budget);
+        long total = 0;
+        for (int fragment : loadOrder) {
+            Long size = fragmentSizes.get(fragment);
+            if (size == null) {
+                throw new IllegalStateException("Fragment " + fragment + " is missing from " + stories);
+            }
+            total += size;
+            System.out.printf(Locale.ROOT, "  fragment %d: %,d bytes, %,d bytes in total%s%n", fragment, size, total,
+                    total > budget ? " - OVER BUDGET" : "");
+        }
+        return total;
+    }
+
+    /**
+     * Reads the fragments of the initial load sequence, in load order. The
+     * initial fragment itself is not listed.
+     */
+    private static List<Integer> readInitialSequence(File splitPoints) throws IOException, XMLStreamException {
+        List<Integer> sequence = new ArrayList<>();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(splitPoints))) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+            boolean inSequence = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamReader.START_ELEMENT) {
+                    if (reader.getLocalName().equals("initialseq")) {
+                        inSequence = true;
+                    } else if (inSequence && reader.getLocalName().equals("splitpointref")) {
+                        sequence.add(Integer.valueOf(reader.getAttributeValue(null, "id")));
+                    }
+                } else if (event == XMLStreamReader.END_ELEMENT && reader.getLocalName().equals("initialseq")) {
+                    inSequence = false;
+                }
+            }
+            reader.close();
+        }
+        return sequence;
+    }
+
+    /**
+     * Reads the size of every fragment from its size map, skipping the size
+     * breakdowns inside.
+     */
+    private static Map<Integer, Long> readFragmentSizes(File stories) throws IOException, XMLStreamException {
+        Map<Integer, Long> sizes = new HashMap<>();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(stories))) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamReader.START_ELEMENT && reader.getLocalName().equals("sizemap")) {
+                    sizes.put(Integer.valueOf(reader.getAttributeValue(null, "fragment")),
+                            Long.valueOf(reader.getAttributeValue(null, "size")));
+                }
+            }
+            reader.close();
+        }
+        return sizes;
+    }
+}
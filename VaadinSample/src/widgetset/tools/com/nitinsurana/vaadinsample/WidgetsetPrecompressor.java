@@ -0,0 +1,132 @@
+package com.nitinsurana.vaadinsample;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Writes precompressed variants next to the compiled widgetset resources, so
+ * the servlet container can send them without compressing on every request.
+ * <p>
+ * Each compressible resource gets a {@code .gz} file at the best gzip level,
+ * replacing the one the GWT compiler writes at its default level. A
+ * {@code .br} file is written by the {@code brotli} command line tool when
+ * it is installed; the JDK has no brotli encoder. A variant that is not
+ * smaller than the resource is not kept. Variants get the modification time
+ * of their resource, so all representations share one last-modified date.
+ * <p>
+ * Usage: {@code WidgetsetPrecompressor <widgetset directory> [brotli command]}
+ */
+public final class WidgetsetPrecompressor {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long BROTLI_TIMEOUT_SECONDS = 60;
+
+    private final String brotli;
+    private long resourceBytes;
+    private long gzipBytes;
+    private long brotliBytes;
+
+    private WidgetsetPrecompressor(String brotli) {
+        this.brotli = brotli;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("Usage: WidgetsetPrecompressor <widgetset directory> [brotli command]");
+        }
+        File directory = new File(args[0]);
+        if (!directory.isDirectory()) {
+            throw new IllegalArgumentException("No compiled widgetset in " + directory);
+        }
+        String brotli = args.length > 1 ? args[1] : "brotli";
+        if (!isAvailable(brotli)) {
+            System.out.println("'" + brotli + "' was not found, writing gzip variants only");
+            brotli = null;
+        }
+        WidgetsetPrecompressor precompressor = new WidgetsetPrecompressor(brotli);
+        int files = precompressor.compressAll(directory);
+        System.out.printf(Locale.ROOT, "Precompressed %d resources: %,d bytes, gzip %,d bytes%s%n", files,
+                precompressor.resourceBytes, precompressor.gzipBytes,
+                brotli != null ? String.format(Locale.ROOT, ", brotli %,d bytes", precompressor.brotliBytes) : "");
+    }
+
+    private int compressAll(File directory) throws IOException, InterruptedException {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            throw new IOException("Could not list " + directory);
+        }
+        int files = 0;
+        for (File child : children) {
+            if (child.isDirectory()) {
+                files += compressAll(child);
+            } else if (StaticResourceServlet.isCompressible(child.getName())) {
+                compress(child);
+                files++;
+            }
+        }
+        return files;
+    }
+
+    private void compress(File resource) throws IOException, InterruptedException {
+        resourceBytes += resource.length();
+        File gzip = new File(resource.getPath() + ".gz");
+        try (InputStream in = new GzipEncodingInputStream(new FileInputStream(resource),
+                Deflater.BEST_COMPRESSION, BUFFER_SIZE)) {
+            Files.copy(in, gzip.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        gzipBytes += keepIfSmaller(gzip, resource);
+        if (brotli != null) {
+            File br = new File(resource.getPath() + ".br");
+            if (run(brotli, "--best", "--force", "--output=" + br.getPath(), resource.getPath()) != 0) {
+                throw new IOException("Could not brotli-compress " + resource);
+            }
+            brotliBytes += keepIfSmaller(br, resource);
+        }
+    }
+
+    /**
+     * Deletes {@code variant} unless it is smaller than {@code resource}.
+     *
+     * @return the bytes of the kept variant, or the resource's if it was
+     *         deleted
+     */
+    private static long keepIfSmaller(File variant, File resource) throws IOException {
+        if (variant.length() >= resource.length()) {
+            Files.delete(variant.toPath());
+            return resource.length();
+        }
+        if (!variant.setLastModified(resource.lastModified())) {
+            throw new IOException("Could not set the modification time of " + variant);
+        }
+        return variant.length();
+    }
+
+    private static boolean isAvailable(String command) throws InterruptedException {
+        try {
+            return run(command, "--version") == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs an external command.
+     *
+     * @return its exit code
+     */
+    private static int run(String... command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        if (!process.waitFor(BROTLI_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IOException("Timed out: " + String.join(" ", command));
+        }
+        return process.exitValue();
+    }
+}